@@ -0,0 +1,252 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.Document;
+import com.objective.threesixty.Value;
+import com.objective.threesixty.remoteagent.sdk.BinaryDetails;
+import com.objective.threesixty.remoteagent.sdk.utils.CustomParameters;
+import com.objective.threesixty.remoteagent.sdk.utils.ValueUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks the reader's crawl, document and binary paths against synthetic source folders. {@link #walkBaseline}
+ * crawls the same trees with {@link Files#walk} and a separate attribute read per file, as a floor to compare
+ * {@link #getDocuments} against.
+ * <p>
+ * Trees are generated once under {@code target/jmh-data} and reused by later runs, since writing a million files
+ * takes far longer than crawling them. Each leaf folder holds {@value #FILES_PER_FOLDER} files, two levels deep.
+ */
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class FileSystemReaderBenchmark {
+    static final int FILES_PER_FOLDER = 100;
+    static final Path DATA = Paths.get("target", "jmh-data");
+
+    @State(Scope.Benchmark)
+    public static class Tree {
+        @Param({"1000", "100000", "1000000"})
+        public int files;
+
+        @Param({"1", "4"})
+        public int crawlParallelism;
+
+        FileSystemReader reader;
+        CustomParameters parameters;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            Path root = generateTree(DATA.resolve("tree-" + files), files);
+            reader = new FileSystemReader();
+            parameters = parameters(Map.of(
+                "sourceFilePath", ValueUtils.stringValue(root.toString()),
+                "crawlParallelism", ValueUtils.stringValue(String.valueOf(crawlParallelism))));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            reader.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PlainTree {
+        @Param({"1000", "100000", "1000000"})
+        public int files;
+
+        Path root;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            root = generateTree(DATA.resolve("tree-" + files), files);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SingleFile {
+        FileSystemReader reader;
+        Path file;
+        BasicFileAttributes attributes;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            reader = new FileSystemReader();
+            file = generateTree(DATA.resolve("tree-1000"), 1000).resolve("d000").resolve("d000").resolve("Report 042.docx");
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            reader.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Binary {
+        @Param({"1048576", "67108864"})
+        public long size;
+
+        FileSystemReader reader;
+        CustomParameters parameters;
+        String docId;
+        final byte[] buffer = new byte[64 * 1024];
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            Path file = DATA.resolve("binary-" + size + ".bin");
+            if (!Files.exists(file) || Files.size(file) != size) {
+                Files.createDirectories(DATA);
+                writeRandom(file, size);
+            }
+            reader = new FileSystemReader();
+            docId = file.toAbsolutePath().toString();
+            parameters = parameters(Map.of());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            reader.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long getDocuments(Tree tree) {
+        try (Stream<Document> documents = tree.reader.getDocuments(tree.parameters, null)) {
+            return documents.count();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long walkBaseline(PlainTree tree) throws IOException {
+        long total = 0;
+        try (Stream<Path> paths = Files.walk(tree.root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    total += attributes.size();
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public Document documentFromPath(SingleFile single) {
+        return single.reader.documentFromPath(single.file, single.attributes, null);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public long getDocumentBinary(Binary binary) throws IOException {
+        BinaryDetails details = binary.reader.getDocumentBinary(binary.docId, binary.parameters, null);
+        long total = 0;
+        try (InputStream in = details.getInputStream()) {
+            for (int n = in.read(binary.buffer); n >= 0; n = in.read(binary.buffer)) {
+                total += n;
+            }
+        }
+        return total;
+    }
+
+    static CustomParameters parameters(Map<String, Value> values) {
+        return new CustomParameters(new HashMap<>(values));
+    }
+
+    /**
+     * Creates {@code files} small files under {@code root}, unless a previous run already has.
+     */
+    static Path generateTree(Path root, int files) throws IOException {
+        // kept outside the tree, so it is not crawled
+        Path complete = root.resolveSibling(root.getFileName() + ".complete");
+        if (Files.exists(complete)) {
+            return root;
+        }
+
+        byte[] content = new byte[256];
+        for (int i = 0; i < files; i++) {
+            int folder = i / FILES_PER_FOLDER;
+            Path dir = root.resolve(String.format("d%03d", folder / 100)).resolve(String.format("d%03d", folder % 100));
+            if (i % FILES_PER_FOLDER == 0) {
+                Files.createDirectories(dir);
+            }
+            String name = String.format(i % 3 == 0 ? "Report %03d.docx" : i % 3 == 1 ? "scan %03d.pdf" : "notes %03d.txt",
+                i % FILES_PER_FOLDER);
+            Files.write(dir.resolve(name), content);
+        }
+        Files.createFile(complete);
+        return root;
+    }
+
+    private static void writeRandom(Path file, long size) throws IOException {
+        byte[] block = new byte[1024 * 1024];
+        new Random(42).nextBytes(block);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += block.length) {
+                out.write(block, 0, (int) Math.min(block.length, size - written));
+            }
+        }
+    }
+}
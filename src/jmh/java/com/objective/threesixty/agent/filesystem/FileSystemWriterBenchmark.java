@@ -0,0 +1,157 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.google.protobuf.Timestamp;
+import com.objective.threesixty.Document;
+import com.objective.threesixty.MetadataType;
+import com.objective.threesixty.remoteagent.sdk.utils.CustomParameters;
+import com.objective.threesixty.remoteagent.sdk.utils.ValueUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link FileSystemWriter#writeDocument} with the same content arriving in buffers of varied sizes, and
+ * the path sanitising done for every written document.
+ */
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+public class FileSystemWriterBenchmark {
+    @State(Scope.Benchmark)
+    public static class Write {
+        @Param({"8192", "65536", "1048576"})
+        public int bufferSize;
+
+        @Param({"16777216"})
+        public int contentSize;
+
+        FileSystemWriter writer;
+        CustomParameters parameters;
+        Document document;
+        Map<String, MetadataType> metadata;
+        byte[] content;
+        final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            Path output = Files.createDirectories(FileSystemReaderBenchmark.DATA.resolve("writer-output"));
+            writer = new FileSystemWriter();
+            parameters = FileSystemReaderBenchmark.parameters(Map.of("outFilePath", ValueUtils.stringValue(output.toString())));
+            document = Document.newBuilder()
+                .setId("/source/reports/Quarterly Report.docx")
+                .setName("Quarterly Report.docx")
+                .setParentPath("/source/reports")
+                .setSize(contentSize)
+                .build();
+            metadata = Map.of(
+                "fileName", MetadataType.newBuilder().setString(document.getName()).build(),
+                "fileSize", MetadataType.newBuilder().setLong(contentSize).build(),
+                "modifiedDate", MetadataType.newBuilder().setDateTime(Timestamp.newBuilder().setSeconds(1_727_740_800L)).build());
+            content = new byte[contentSize];
+            new Random(42).nextBytes(content);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            writer.close();
+        }
+
+        /**
+         * Wraps the content without copying, as buffers arriving from the SDK would be.
+         */
+        Flux<DataBuffer> buffers() {
+            return Flux.range(0, (contentSize + bufferSize - 1) / bufferSize)
+                .map(i -> {
+                    int offset = i * bufferSize;
+                    return bufferFactory.wrap(ByteBuffer.wrap(content, offset, Math.min(bufferSize, contentSize - offset)));
+                });
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Paths {
+        FileSystemWriter writer;
+        final String[] paths = {
+            "/source/reports/2024",
+            "C:/Users/jane/Documents/",
+            "/shares/finance:archive/quarterly/q3/",
+            "relative/path/without/separators/to/trim",
+        };
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            writer = new FileSystemWriter();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            writer.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public Document writeDocument(Write write) {
+        return write.writer.writeDocument(write.document, write.metadata, write.buffers(), write.parameters, null).block();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public void sanitizePath(Paths paths, Blackhole blackhole) {
+        for (String path : paths.paths) {
+            blackhole.consume(paths.writer.sanitizePath(path));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import com.objective.threesixty.MetadataType;
+import com.objective.threesixty.StringArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes a 50 key metadata map, shaped like what the reader extracts plus typical custom fields, with
+ * {@link MetadataEncoder} and with the {@code Properties} round trip it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+@State(Scope.Benchmark)
+public class MetadataEncoderBenchmark {
+    private Map<String, MetadataType> metadata;
+
+    @Setup
+    public void setUp() {
+        metadata = new HashMap<>();
+        metadata.put("fileName", string("Quarterly Report Q3 2024 (final).docx"));
+        metadata.put("filePath", string("/data/shares/finance/reports/2024/Quarterly Report Q3 2024 (final).docx"));
+        metadata.put("parentPath", string("/data/shares/finance/reports/2024"));
+        metadata.put("mimeType", string("application/vnd.openxmlformats-officedocument.wordprocessingml.document"));
+        metadata.put("owner", string("CORP\\jane.citizen"));
+        metadata.put("group", string("CORP\\finance-readers"));
+        metadata.put("permissions", string("rw-r-----"));
+        metadata.put("isDirectory", bool(false));
+        metadata.put("isSymbolicLink", bool(false));
+        metadata.put("isHidden", bool(false));
+        metadata.put("isArchived", bool(true));
+        metadata.put("size", longValue(1_482_337L));
+        metadata.put("version", longValue(17L));
+        metadata.put("pageCount", longValue(42L));
+        metadata.put("wordCount", longValue(12_873L));
+        metadata.put("retentionYears", longValue(7L));
+        metadata.put("createdDate", dateTime(1_696_118_400L, 0));
+        metadata.put("modifiedDate", dateTime(1_727_740_800L, 123_000_000));
+        metadata.put("accessedDate", dateTime(1_728_000_000L, 456_789_000));
+        metadata.put("reviewDate", dateTime(1_759_276_800L, 0));
+        metadata.put("disposalDate", dateTime(1_948_665_600L, 0));
+        metadata.put("sha256", binary(32));
+        metadata.put("md5", binary(16));
+        metadata.put("rating", MetadataType.newBuilder().setDouble(4.75).build());
+        metadata.put("confidence", MetadataType.newBuilder().setDecimal(0.98f).build());
+        metadata.put("keywords", MetadataType.newBuilder()
+            .setArray(StringArray.newBuilder().addValues("finance").addValues("quarterly").addValues("board"))
+            .build());
+        metadata.put("description", MetadataType.newBuilder()
+            .setLargeString("Quarterly financial report for the board: revenue, expenses & forecasts. "
+                + "Includes <draft> commentary from the CFO's office, and the auditor's notes.")
+            .build());
+        for (int i = 0; metadata.size() < 50; i++) {
+            metadata.put("custom.field" + i, string("Value for custom field " + i + " = café"));
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeXml() {
+        return MetadataEncoder.forCurrentThread().appendXml(metadata).toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeXmlWithProperties() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        toProperties(metadata).storeToXML(out, MetadataEncoder.COMMENT);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeProperties() {
+        return MetadataEncoder.forCurrentThread()
+            .appendPropertiesComment(MetadataEncoder.COMMENT)
+            .appendProperties(metadata, "")
+            .toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodePropertiesWithProperties() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        toProperties(metadata).store(out, MetadataEncoder.COMMENT);
+        return out.toByteArray();
+    }
+
+    private static Properties toProperties(Map<String, MetadataType> metadata) {
+        Properties properties = new Properties();
+        metadata.forEach((key, value) -> {
+            String stringValue = MetadataEncoder.stringValue(key, value);
+            if (stringValue != null) {
+                properties.put(key, stringValue);
+            }
+        });
+        return properties;
+    }
+
+    private static MetadataType string(String value) {
+        return MetadataType.newBuilder().setString(value).build();
+    }
+
+    private static MetadataType bool(boolean value) {
+        return MetadataType.newBuilder().setBoolean(value).build();
+    }
+
+    private static MetadataType longValue(long value) {
+        return MetadataType.newBuilder().setLong(value).build();
+    }
+
+    private static MetadataType dateTime(long seconds, int nanos) {
+        return MetadataType.newBuilder().setDateTime(Timestamp.newBuilder().setSeconds(seconds).setNanos(nanos)).build();
+    }
+
+    private static MetadataType binary(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + 7);
+        }
+        return MetadataType.newBuilder().setBinary(ByteString.copyFrom(bytes)).build();
+    }
+}
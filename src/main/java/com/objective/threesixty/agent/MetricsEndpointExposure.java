@@ -0,0 +1,65 @@
+package com.objective.threesixty.agent;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adds the metrics endpoints to the exposed actuator endpoints when {@value #EXPOSE_PROPERTY} is {@code true}.
+ * <p>
+ * The SDK's own {@code application-default.yaml} sets the exposed endpoints, and as a profile-specific file it overrides
+ * anything set in {@code application.yaml}. The endpoints are therefore added to whatever list is in effect once all
+ * config files have been read, so the setting applies whichever profiles are active.
+ */
+public class MetricsEndpointExposure implements EnvironmentPostProcessor {
+    static final String EXPOSE_PROPERTY = "filesystem.metrics.expose-endpoints";
+    static final String INCLUDE_PROPERTY = "management.endpoints.web.exposure.include";
+    static final List<String> ENDPOINTS = List.of("health", "metrics", "prometheus");
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.getProperty(EXPOSE_PROPERTY, Boolean.class, false)) {
+            return;
+        }
+        Set<String> include = new LinkedHashSet<>(Binder.get(environment)
+            .bind(INCLUDE_PROPERTY, Bindable.setOf(String.class))
+            .orElse(Set.of()));
+        include.addAll(ENDPOINTS);
+        environment.getPropertySources().addFirst(new MapPropertySource("filesystemMetricsEndpoints",
+            Map.of(INCLUDE_PROPERTY, String.join(",", include))));
+    }
+}
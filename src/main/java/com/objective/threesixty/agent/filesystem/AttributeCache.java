@@ -0,0 +1,153 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Recently read file attributes and the document metadata built from them, so that repeated metadata requests for
+ * the same file do not each read its attributes and rebuild its metadata.
+ * <p>
+ * Entries are added by metadata requests rather than by crawls, so that discovering files costs nothing here. They are
+ * keyed by absolute path, and remember the file key, size and modified time they were read with. An entry is trusted
+ * without touching the file for {@value #DEFAULT_MAX_AGE_MILLIS} ms after it was read, which covers the repeated
+ * metadata requests made for a document while it is transferred. After that, the file's attributes must be read again,
+ * and only the metadata taken from the file's content is reused, if the file key, size and modified time still match.
+ * Metadata such as the owner and permissions can change without touching the modified time, so is always rebuilt. At most
+ * {@value #MAX_ENTRIES} entries are kept, dropping the least recently used.
+ */
+final class AttributeCache {
+    static final int MAX_ENTRIES = 100_000;
+    static final long DEFAULT_MAX_AGE_MILLIS = 5_000;
+
+    private final long maxAgeNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry> entries;
+    private long hits;
+    private long misses;
+
+    AttributeCache() {
+        this(MAX_ENTRIES, DEFAULT_MAX_AGE_MILLIS, System::nanoTime);
+    }
+
+    AttributeCache(int maxEntries, long maxAgeMillis, LongSupplier nanoClock) {
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the entry for the file if it was read recently enough to use without reading the file again, otherwise
+     * {@code null}
+     */
+    synchronized Entry getFresh(Path file) {
+        Entry entry = entries.get(key(file));
+        if (entry != null && nanoClock.getAsLong() - entry.readAt() <= maxAgeNanos) {
+            hits++;
+            return entry;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Records attributes just read for the file, keeping the content metadata from the previous read if the file has
+     * not changed since.
+     *
+     * @return the entry, whose metadata is {@code null} as it still needs building
+     */
+    synchronized Entry put(Path file, BasicFileAttributes attributes) {
+        String key = key(file);
+        Entry previous = entries.get(key);
+        Entry entry = new Entry(attributes, nanoClock.getAsLong(), null,
+            previous != null && previous.matches(attributes) ? previous.contentMetadata() : null);
+        entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Stores the metadata built for an entry, unless the file has been read again since.
+     *
+     * @param contentMetadata the part of {@code metadata} taken from the file's content, or {@code null} if it should
+     *                        not be reused
+     */
+    synchronized void putMetadata(Path file, Entry entry, Map<String, MetadataType> metadata,
+                                  Map<String, MetadataType> contentMetadata) {
+        String key = key(file);
+        if (entries.get(key) == entry) {
+            entries.put(key, new Entry(entry.attributes(), entry.readAt(), metadata, contentMetadata));
+        }
+    }
+
+    synchronized void remove(Path file) {
+        entries.remove(key(file));
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * @param metadata        the document metadata built from these attributes, not including content digests, or
+     *                        {@code null} if not built yet
+     * @param contentMetadata the metadata taken from the file's content by {@link MetadataExtractors}, or {@code null}
+     *                        if not read yet
+     */
+    record Entry(BasicFileAttributes attributes, long readAt, Map<String, MetadataType> metadata,
+                 Map<String, MetadataType> contentMetadata) {
+        boolean matches(BasicFileAttributes current) {
+            return Objects.equals(attributes.fileKey(), current.fileKey())
+                && attributes.size() == current.size()
+                && attributes.lastModifiedTime().equals(current.lastModifiedTime());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.remoteagent.sdk.agent.AuthConnection;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Auth connections that have been checked or registered, keyed by connection ID, with the result of their last check.
+ * <p>
+ * A connection is dropped once it has not been checked or registered for the time to live, or when more than the
+ * maximum number are held, dropping the least recently used. Expired connections are dropped as new ones are added,
+ * and are never returned. A connection checked again with the same properties before it expires reuses its last result.
+ */
+final class AuthConnectionRegistry {
+    static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+    static final long DEFAULT_TTL_MINUTES = 60;
+
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Registration> connections;
+    private long expired;
+    private long evicted;
+
+    AuthConnectionRegistry() {
+        this(DEFAULT_MAX_CONNECTIONS, TimeUnit.MINUTES.toMillis(DEFAULT_TTL_MINUTES), System::nanoTime);
+    }
+
+    AuthConnectionRegistry(int maxConnections, long ttlMillis, LongSupplier nanoClock) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.nanoClock = nanoClock;
+        this.connections = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Registration> eldest) {
+                if (size() > maxConnections) {
+                    evicted++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Adds the connection, or renews it if it is already held, without checking it.
+     */
+    synchronized void register(AuthConnection connection) {
+        long now = nanoClock.getAsLong();
+        Registration previous = live(connection.id(), now);
+        String result = previous != null && previous.connection().equals(connection) ? previous.checkResult() : null;
+        put(connection, result, now);
+    }
+
+    /**
+     * @param check run if the connection has not been checked with its current properties since it was last used
+     * @return the result of the check, which is empty if the connection is valid
+     */
+    String check(AuthConnection connection, Function<AuthConnection, String> check) {
+        synchronized (this) {
+            long now = nanoClock.getAsLong();
+            Registration previous = live(connection.id(), now);
+            if (previous != null && previous.checkResult() != null && previous.connection().equals(connection)) {
+                put(connection, previous.checkResult(), now);
+                return previous.checkResult();
+            }
+        }
+
+        // checked outside the lock, so a slow check does not hold up other connections
+        String result = check.apply(connection);
+        synchronized (this) {
+            put(connection, result, nanoClock.getAsLong());
+        }
+        return result;
+    }
+
+    synchronized Set<AuthConnection> connections() {
+        long now = nanoClock.getAsLong();
+        removeExpired(now);
+        return connections.values().stream()
+            .filter(registration -> now - registration.usedAt() <= ttlNanos)
+            .map(Registration::connection)
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    synchronized int size() {
+        return connections.size();
+    }
+
+    /**
+     * @return connections dropped because they had not been used within the time to live
+     */
+    synchronized long expired() {
+        return expired;
+    }
+
+    /**
+     * @return connections dropped to stay within the maximum number held
+     */
+    synchronized long evicted() {
+        return evicted;
+    }
+
+    private Registration live(String id, long now) {
+        Registration registration = connections.get(id);
+        if (registration != null && now - registration.usedAt() > ttlNanos) {
+            connections.remove(id);
+            expired++;
+            return null;
+        }
+        return registration;
+    }
+
+    private void put(AuthConnection connection, String checkResult, long now) {
+        removeExpired(now);
+        connections.put(connection.id(), new Registration(connection, checkResult, now));
+    }
+
+    /**
+     * Drops expired connections from the least recently used end, stopping at the first that is still live.
+     */
+    private void removeExpired(long now) {
+        Iterator<Registration> iterator = connections.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().usedAt() <= ttlNanos) {
+                return;
+            }
+            iterator.remove();
+            expired++;
+        }
+    }
+
+    /**
+     * @param checkResult the result of the last check, or {@code null} if only registered
+     */
+    private record Registration(AuthConnection connection, String checkResult, long usedAt) {
+    }
+}
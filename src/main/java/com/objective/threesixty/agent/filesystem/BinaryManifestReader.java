@@ -0,0 +1,158 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import com.objective.threesixty.MetadataType;
+import com.objective.threesixty.StringArray;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads the segments written by {@link BinaryManifestWriter}.
+ */
+final class BinaryManifestReader {
+    private BinaryManifestReader() {
+    }
+
+    /**
+     * Passes each document's path and metadata in {@code segment} to {@code consumer}, in the order they were written.
+     * A record cut short at the end of the segment is ignored.
+     */
+    static void read(Path segment, BiConsumer<String, Map<String, MetadataType>> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 64 * 1024))) {
+            if (in.readInt() != BinaryManifestWriter.MAGIC || in.readByte() != BinaryManifestWriter.VERSION) {
+                throw new IOException("Not a metadata manifest segment: " + segment);
+            }
+
+            List<String> keys = new ArrayList<>();
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    return;
+                }
+                try {
+                    if (type == BinaryManifestWriter.KEY_RECORD) {
+                        keys.add(readString(in));
+                    } else if (type == BinaryManifestWriter.DOCUMENT_RECORD) {
+                        byte[] payload = new byte[(int) readVarint(in)];
+                        in.readFully(payload);
+                        readDocument(new DataInputStream(new ByteArrayInputStream(payload)), keys, consumer);
+                    } else {
+                        throw new IOException("Unknown record type " + type + " in metadata manifest segment: " + segment);
+                    }
+                } catch (EOFException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void readDocument(DataInputStream in, List<String> keys, BiConsumer<String, Map<String, MetadataType>> consumer) throws IOException {
+        String path = readString(in);
+        int entries = (int) readVarint(in);
+        Map<String, MetadataType> metadata = new HashMap<>(entries * 2);
+        for (int i = 0; i < entries; i++) {
+            String key = keys.get((int) readVarint(in));
+            metadata.put(key, readValue(in));
+        }
+        consumer.accept(path, metadata);
+    }
+
+    private static MetadataType readValue(DataInputStream in) throws IOException {
+        MetadataType.Builder value = MetadataType.newBuilder();
+        MetadataType.TypeCase type = MetadataType.TypeCase.forNumber(in.readUnsignedByte());
+        if (type == null) {
+            throw new IOException("Unknown metadata type in manifest");
+        }
+        switch (type) {
+            case STRING -> value.setString(readString(in));
+            case LARGESTRING -> value.setLargeString(readString(in));
+            case BOOLEAN -> value.setBoolean(in.readUnsignedByte() != 0);
+            case BINARY -> {
+                byte[] bytes = new byte[(int) readVarint(in)];
+                in.readFully(bytes);
+                value.setBinary(ByteString.copyFrom(bytes));
+            }
+            case DATETIME -> value.setDateTime(Timestamp.newBuilder()
+                .setSeconds(unZigZag(readVarint(in)))
+                .setNanos((int) readVarint(in)));
+            case DECIMAL -> value.setDecimal(Float.intBitsToFloat(in.readInt()));
+            case LONG -> value.setLong(unZigZag(readVarint(in)));
+            case INTEGER -> value.setInteger((int) unZigZag(readVarint(in)));
+            case DOUBLE -> value.setDouble(Double.longBitsToDouble(in.readLong()));
+            case ARRAY -> {
+                StringArray.Builder array = StringArray.newBuilder();
+                for (long i = readVarint(in); i > 0; i--) {
+                    array.addValues(readString(in));
+                }
+                value.setArray(array);
+            }
+            default -> throw new IOException("Unsupported metadata type in manifest: " + type);
+        }
+        return value.build();
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in metadata manifest");
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,252 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Appends document metadata to rolling binary manifest segments, as an alternative to a sidecar file per document.
+ * <p>
+ * Each segment starts with {@link #MAGIC} and {@link #VERSION}, followed by records:
+ * <ul>
+ *     <li>{@code 'K'} key: a string, which is given the next key id in the segment, starting at 0</li>
+ *     <li>{@code 'D'} document: a varint payload length, then the document path, a varint entry count and, per entry,
+ *     a varint key id, the {@link MetadataType.TypeCase} number as one byte and the value</li>
+ * </ul>
+ * Strings are a varint byte length followed by UTF-8, integers and longs are zig-zag varints, and every key is defined
+ * before the first document that uses it. Segments are self-contained, so each can be loaded on its own. A new segment
+ * is started when the current one reaches {@code maxSegmentBytes}, and on every restart, so a record cut short by a
+ * crash is only ever at the end of a segment.
+ * <p>
+ * Records are buffered until {@link #flush} or {@link #close}, so callers can append a batch and flush it once.
+ * Appending after {@code close} starts a new segment.
+ */
+class BinaryManifestWriter implements Closeable {
+    static final int MAGIC = 0x33364D46;
+    static final byte VERSION = 1;
+    static final byte KEY_RECORD = 'K';
+    static final byte DOCUMENT_RECORD = 'D';
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.bin");
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final Map<String, Integer> keyIds = new HashMap<>();
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(4096);
+    private final ByteArrayOutputStream prefix = new ByteArrayOutputStream(256);
+    private int segmentNumber;
+    private OutputStream segment;
+    private long segmentBytes;
+
+    private BinaryManifestWriter(Path directory, long maxSegmentBytes, int lastSegmentNumber) {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.segmentNumber = lastSegmentNumber;
+    }
+
+    static BinaryManifestWriter open(Path directory, long maxSegmentBytes) throws IOException {
+        Files.createDirectories(directory);
+        int last = 0;
+        try (Stream<Path> segments = Files.list(directory)) {
+            for (Path segment : (Iterable<Path>) segments::iterator) {
+                Matcher matcher = SEGMENT_NAME.matcher(segment.getFileName().toString());
+                if (matcher.matches()) {
+                    last = Math.max(last, Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        return new BinaryManifestWriter(directory, maxSegmentBytes, last);
+    }
+
+    static String segmentName(int segmentNumber) {
+        return String.format("segment-%06d.bin", segmentNumber);
+    }
+
+    /**
+     * Appends one document's metadata to the current segment, without flushing it. Keys without a value are left out.
+     */
+    synchronized void append(String path, Map<String, MetadataType> metadata) throws IOException {
+        if (segment == null) {
+            startSegment();
+        }
+
+        record.reset();
+        prefix.reset();
+        writeString(record, path);
+        int entries = 0;
+        for (MetadataType value : metadata.values()) {
+            if (value.getTypeCase() != MetadataType.TypeCase.TYPE_NOT_SET) {
+                entries++;
+            }
+        }
+        writeVarint(record, entries);
+        for (Map.Entry<String, MetadataType> entry : metadata.entrySet()) {
+            MetadataType value = entry.getValue();
+            if (value.getTypeCase() != MetadataType.TypeCase.TYPE_NOT_SET) {
+                writeVarint(record, keyId(entry.getKey()));
+                record.write(value.getTypeCase().getNumber());
+                writeValue(record, value);
+            }
+        }
+
+        prefix.write(DOCUMENT_RECORD);
+        writeVarint(prefix, record.size());
+        try {
+            prefix.writeTo(segment);
+            record.writeTo(segment);
+        } catch (IOException e) {
+            // the segment's key dictionary may now be incomplete, so carry on in a new one
+            abandonSegment();
+            throw e;
+        }
+        segmentBytes += prefix.size() + record.size();
+
+        if (segmentBytes >= maxSegmentBytes) {
+            closeSegment();
+        }
+    }
+
+    /**
+     * Writes out the records appended since the last flush.
+     */
+    synchronized void flush() throws IOException {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.flush();
+        } catch (IOException e) {
+            abandonSegment();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeSegment();
+    }
+
+    private int keyId(String key) {
+        Integer id = keyIds.get(key);
+        if (id == null) {
+            id = keyIds.size();
+            keyIds.put(key, id);
+            // new keys go ahead of the document record that uses them
+            prefix.write(KEY_RECORD);
+            writeString(prefix, key);
+        }
+        return id;
+    }
+
+    private void startSegment() throws IOException {
+        segmentNumber++;
+        segment = new BufferedOutputStream(Files.newOutputStream(directory.resolve(segmentName(segmentNumber)),
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 64 * 1024);
+        segment.write(new byte[] {(byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16), (byte) (MAGIC >>> 8), (byte) MAGIC, VERSION});
+        segmentBytes = 5;
+        keyIds.clear();
+    }
+
+    private void closeSegment() throws IOException {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+    private void abandonSegment() {
+        try {
+            closeSegment();
+        } catch (IOException e) {
+            segment = null;
+        }
+    }
+
+    private static void writeValue(ByteArrayOutputStream out, MetadataType value) {
+        switch (value.getTypeCase()) {
+            case STRING -> writeString(out, value.getString());
+            case LARGESTRING -> writeString(out, value.getLargeString());
+            case BOOLEAN -> out.write(value.getBoolean() ? 1 : 0);
+            case BINARY -> {
+                writeVarint(out, value.getBinary().size());
+                out.writeBytes(value.getBinary().toByteArray());
+            }
+            case DATETIME -> {
+                writeVarint(out, zigZag(value.getDateTime().getSeconds()));
+                writeVarint(out, value.getDateTime().getNanos());
+            }
+            case DECIMAL -> writeFixed(out, Float.floatToIntBits(value.getDecimal()), 4);
+            case LONG -> writeVarint(out, zigZag(value.getLong()));
+            case INTEGER -> writeVarint(out, zigZag(value.getInteger()));
+            case DOUBLE -> writeFixed(out, Double.doubleToLongBits(value.getDouble()), 8);
+            case ARRAY -> {
+                writeVarint(out, value.getArray().getValuesCount());
+                value.getArray().getValuesList().forEach(element -> writeString(out, element));
+            }
+            default -> throw new IllegalArgumentException("Unsupported metadata type: " + value.getTypeCase());
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeFixed(ByteArrayOutputStream out, long bits, int bytes) {
+        for (int i = bytes - 1; i >= 0; i--) {
+            out.write((int) (bits >>> (8 * i)));
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
@@ -0,0 +1,201 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SHA-256 and MD5 digests of document content, computed while the content is being read or written anyway.
+ * <p>
+ * Digests are keyed by absolute path and are only returned while the file's size and modified time still match the
+ * version they were computed over. At most {@value #MAX_TRACKED_DOCUMENTS} documents are remembered.
+ */
+@Component
+class ContentDigests {
+    static final int MAX_TRACKED_DOCUMENTS = 100_000;
+
+    private final Map<String, Entry> digests = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_TRACKED_DOCUMENTS;
+        }
+    };
+
+    /**
+     * @return the digests of the file, or {@code null} if they were not computed over its current version
+     */
+    synchronized Digests get(Path file, BasicFileAttributes attributes) {
+        Entry entry = digests.get(key(file));
+        if (entry == null || entry.size() != attributes.size() || entry.modified() != attributes.lastModifiedTime().toMillis()) {
+            return null;
+        }
+        return entry.digests();
+    }
+
+    synchronized void put(Path file, BasicFileAttributes attributes, Digests fileDigests) {
+        digests.put(key(file), new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), fileDigests));
+    }
+
+    /**
+     * Wraps the whole content of {@code file}, recording its digests once the stream has been read to the end.
+     *
+     * @param attributes the file's attributes, read when {@code in} was opened
+     */
+    InputStream digesting(Path file, BasicFileAttributes attributes, InputStream in) {
+        return new DigestingInputStream(in, file, attributes);
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    record Digests(String sha256, String md5) {
+    }
+
+    private record Entry(long size, long modified, Digests digests) {
+    }
+
+    /**
+     * Running SHA-256 and MD5 over content that arrives in pieces.
+     */
+    static final class Digester {
+        private final MessageDigest sha256 = DigestUtils.getSha256Digest();
+        private final MessageDigest md5 = DigestUtils.getMd5Digest();
+        private long length;
+        private Digests result;
+
+        void update(byte b) {
+            sha256.update(b);
+            md5.update(b);
+            length++;
+        }
+
+        void update(byte[] bytes, int offset, int count) {
+            sha256.update(bytes, offset, count);
+            md5.update(bytes, offset, count);
+            length += count;
+        }
+
+        /**
+         * Consumes the remaining bytes of {@code buffer}.
+         */
+        void update(ByteBuffer buffer) {
+            length += buffer.remaining();
+            ByteBuffer copy = buffer.duplicate();
+            sha256.update(buffer);
+            md5.update(copy);
+        }
+
+        long length() {
+            return length;
+        }
+
+        /**
+         * Completes the digests. Later calls return the same result.
+         */
+        Digests finish() {
+            if (result == null) {
+                result = new Digests(Hex.encodeHexString(sha256.digest()), Hex.encodeHexString(md5.digest()));
+            }
+            return result;
+        }
+    }
+
+    private final class DigestingInputStream extends FilterInputStream {
+        private final Path file;
+        private final BasicFileAttributes attributes;
+        private final Digester digester = new Digester();
+        private boolean finished;
+
+        DigestingInputStream(InputStream in, Path file, BasicFileAttributes attributes) {
+            super(in);
+            this.file = file;
+            this.attributes = attributes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                finish();
+            } else {
+                digester.update((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = in.read(b, off, len);
+            if (count < 0) {
+                finish();
+            } else {
+                digester.update(b, off, count);
+            }
+            return count;
+        }
+
+        /**
+         * Skipped bytes are never seen, so the digests of a stream that skips are not recorded.
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            if (skipped > 0) {
+                finished = true;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (digester.length() == attributes.size()) {
+                put(file, attributes, digester.finish());
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.remoteagent.sdk.utils.RepositoryUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a {@link SearchIndex} of the files under a root folder, keyed by absolute path.
+ * <p>
+ * The text of files with a text MIME type, up to a maximum size, is read as UTF-8 and indexed along with the file
+ * name. Other files are indexed by name alone. Files whose size and modified time have not changed since they were
+ * last indexed are not read again, so a rescan only reads what changed. Folders that cannot be read are skipped, and
+ * the files indexed under them are kept until a later scan can read them.
+ * <p>
+ * Once started, the root is watched by a {@link SourceWatcher} and files are indexed or removed as they change, on the
+ * indexer's own thread. Each scan adds the folders it walks to the watch. If changes are lost, the root is rescanned
+ * {@value #RESCAN_DELAY_MILLIS} ms later, letting a burst of overflows settle into one rescan. If the root, or any
+ * folder under it, cannot be watched, the watch is stopped and the root is rescanned every
+ * {@value #PERIODIC_RESCAN_MINUTES} minutes instead.
+ */
+final class ContentIndexer implements SourceWatcher.Listener, Closeable {
+    static final Set<String> TEXT_MIME_TYPES = Set.of("application/json", "application/xml", "application/javascript",
+        "application/x-javascript", "application/x-sh", "application/x-yaml", "application/sql", "image/svg+xml");
+    static final long RESCAN_DELAY_MILLIS = 1000;
+    static final long PERIODIC_RESCAN_MINUTES = 10;
+    private static final Log logger = LogFactory.getLog(ContentIndexer.class);
+
+    private final Path root;
+    private final long maxFileBytes;
+    private final SearchIndex index;
+    private final ScheduledExecutorService executor;
+    private volatile boolean complete;
+    private Future<?> scan;
+    private SourceWatcher watcher;
+    private boolean rescanPending;
+
+    ContentIndexer(Path root, long maxFileBytes) {
+        this(root, maxFileBytes, new SearchIndex());
+    }
+
+    ContentIndexer(Path root, long maxFileBytes, SearchIndex index) {
+        this.root = root.toAbsolutePath().normalize();
+        this.maxFileBytes = maxFileBytes;
+        this.index = index;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "content-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    Path root() {
+        return root;
+    }
+
+    SearchIndex index() {
+        return index;
+    }
+
+    /**
+     * @return {@code true} once the first full scan of the root has finished
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Starts watching the root, then scans all of it, on the indexer's own thread.
+     *
+     * @return completes once the first scan has finished
+     */
+    Future<?> start() {
+        executor.execute(this::watch);
+        return scanInBackground();
+    }
+
+    /**
+     * Starts a scan of the whole root on the indexer's own thread, unless one is already waiting to run.
+     */
+    synchronized Future<?> scanInBackground() {
+        if (scan == null || scan.isDone()) {
+            scan = executor.submit(this::rescan);
+        }
+        return scan;
+    }
+
+    @Override
+    public void changed(Path path) {
+        executor.execute(() -> indexChanged(path));
+    }
+
+    @Override
+    public void deleted(Path path) {
+        executor.execute(() -> removeAll(path));
+    }
+
+    @Override
+    public synchronized void overflow() {
+        if (!rescanPending) {
+            rescanPending = true;
+            executor.schedule(() -> {
+                synchronized (this) {
+                    rescanPending = false;
+                }
+                rescan();
+            }, RESCAN_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Indexes every new or changed file under the root, and removes files that are no longer there.
+     */
+    void scan() throws IOException {
+        Set<String> seen = new HashSet<>();
+        Set<Path> failed = new HashSet<>();
+        FileTreeWalker.Listener skipFailures = new FileTreeWalker.Listener() {
+            @Override
+            public boolean preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                register(dir);
+                return true;
+            }
+
+            @Override
+            public void visitFailed(Path path, IOException e) {
+                logger.warn("Failed to index " + path + ": " + e);
+                failed.add(path);
+            }
+        };
+        try (Stream<FileTreeWalker.FileEntry> files = FileTreeWalker.walk(root, skipFailures)) {
+            files.forEach(entry -> {
+                seen.add(entry.path().toString());
+                try {
+                    index(entry.path(), entry.attributes());
+                } catch (IOException e) {
+                    logger.warn("Failed to index " + entry.path() + ": " + e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (String path : index.paths()) {
+            // files in folders that could not be listed are kept, as they may still be there
+            if (!seen.contains(path) && !isUnderAny(Path.of(path), failed)) {
+                index.remove(path);
+            }
+        }
+        index.flush();
+        complete = true;
+    }
+
+    /**
+     * Indexes the file unless it is already indexed with the same size and modified time.
+     *
+     * @return {@code true} if the file was read and indexed
+     */
+    boolean index(Path file, BasicFileAttributes attributes) throws IOException {
+        String path = file.toString();
+        long modified = attributes.lastModifiedTime().toMillis();
+        if (index.isCurrent(path, attributes.size(), modified)) {
+            return false;
+        }
+
+        Map<String, Integer> termFreqs = new HashMap<>();
+        String name = file.getFileName().toString();
+        SearchTokenizer.tokenize(name, term -> termFreqs.merge(term, 1, Integer::sum));
+        if (attributes.size() <= maxFileBytes && isText(name)) {
+            try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+                new SearchTokenizer().tokenize(reader, term -> termFreqs.merge(term, 1, Integer::sum));
+            } catch (NoSuchFileException e) {
+                index.remove(path);
+                return false;
+            }
+        }
+        index.add(path, attributes.size(), modified, termFreqs);
+        return true;
+    }
+
+    void remove(Path file) {
+        index.remove(file.toString());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        synchronized (this) {
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to stop watching " + root, e);
+                }
+            }
+        }
+        index.close();
+    }
+
+    private synchronized void watch() {
+        try {
+            watcher = SourceWatcher.start(root, this);
+        } catch (IOException e) {
+            rescanPeriodically(e);
+        }
+    }
+
+    /**
+     * Watches the folder before the scan lists it, so no change made after the listing is missed.
+     */
+    private void register(Path dir) {
+        SourceWatcher current;
+        synchronized (this) {
+            current = watcher;
+        }
+        if (current == null) {
+            return;
+        }
+        try {
+            current.register(dir);
+        } catch (IOException e) {
+            watchFailed(current, e);
+        }
+    }
+
+    private synchronized void watchFailed(SourceWatcher failed, IOException e) {
+        if (watcher != failed) {
+            return;
+        }
+        watcher = null;
+        try {
+            failed.close();
+        } catch (IOException closeFailure) {
+            logger.warn("Failed to stop watching " + root, closeFailure);
+        }
+        rescanPeriodically(e);
+    }
+
+    private void rescanPeriodically(IOException e) {
+        logger.warn("Could not watch " + root + " for changes. Rescanning it every " + PERIODIC_RESCAN_MINUTES
+            + " minutes instead.", e);
+        executor.scheduleWithFixedDelay(this::rescan, PERIODIC_RESCAN_MINUTES, PERIODIC_RESCAN_MINUTES, TimeUnit.MINUTES);
+    }
+
+    private void rescan() {
+        try {
+            scan();
+        } catch (RuntimeException | IOException e) {
+            logger.error("Failed to index " + root, e);
+        }
+    }
+
+    /**
+     * Indexes a changed file, or everything under a folder that was created or moved in.
+     */
+    private void indexChanged(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attributes.isDirectory()) {
+                try (Stream<FileTreeWalker.FileEntry> files = FileTreeWalker.walk(path, FileTreeWalker.ENTER_ALL)) {
+                    for (FileTreeWalker.FileEntry entry : (Iterable<FileTreeWalker.FileEntry>) files::iterator) {
+                        index(entry.path(), entry.attributes());
+                    }
+                }
+            } else {
+                FileTreeWalker.FileEntry file = FileTreeWalker.regularFile(path, attributes, null);
+                if (file != null) {
+                    index(file.path(), file.attributes());
+                }
+            }
+        } catch (NoSuchFileException e) {
+            removeAll(path);
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Failed to index " + path + ": " + e);
+        }
+    }
+
+    /**
+     * Removes a deleted file, or everything that was under a deleted folder.
+     */
+    private void removeAll(Path path) {
+        if (index.remove(path.toString())) {
+            return;
+        }
+        String prefix = path.toString() + File.separator;
+        for (String indexed : index.paths()) {
+            if (indexed.startsWith(prefix)) {
+                index.remove(indexed);
+            }
+        }
+    }
+
+    private static boolean isUnderAny(Path file, Set<Path> folders) {
+        if (folders.isEmpty()) {
+            return false;
+        }
+        for (Path parent = file; parent != null; parent = parent.getParent()) {
+            if (folders.contains(parent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isText(String fileName) {
+        String mimeType = RepositoryUtils.getMimeTypeForFileName(fileName);
+        return mimeType != null && (mimeType.startsWith("text/") || TEXT_MIME_TYPES.contains(mimeType));
+    }
+}
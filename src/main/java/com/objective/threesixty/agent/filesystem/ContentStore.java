@@ -0,0 +1,128 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Content-addressed blob store for deduplicated output. Each distinct content is kept once, under its SHA-256, and
+ * output files are hard links to the blob. Where a hard link cannot be made, for example because the output folder is
+ * on another volume, the blob is copied instead.
+ * <p>
+ * Content is staged in the store's {@code tmp} folder while it is hashed, then either moved into place or, if the
+ * blob already exists, discarded.
+ */
+class ContentStore {
+    private static final Log logger = LogFactory.getLog(ContentStore.class);
+    private static final String TEMP_DIRECTORY = "tmp";
+
+    private final Path directory;
+    private final DirectoryCache directories;
+
+    ContentStore(Path directory) {
+        this(directory, new DirectoryCache());
+    }
+
+    /**
+     * @param directories the directories already created, shared between the stores of a writer
+     */
+    ContentStore(Path directory, DirectoryCache directories) {
+        this.directory = directory;
+        this.directories = directories;
+    }
+
+    /**
+     * @return a new, not yet created, path to stage content in
+     */
+    Path newTempFile() throws IOException {
+        Path temp = directory.resolve(TEMP_DIRECTORY);
+        directories.createDirectories(temp);
+        return temp.resolve(UUID.randomUUID().toString());
+    }
+
+    boolean contains(String sha256) {
+        return Files.exists(blob(sha256));
+    }
+
+    /**
+     * Moves staged content into the store, or deletes it if the store already holds the same content.
+     *
+     * @return {@code true} if the content was new
+     */
+    boolean commit(Path tempFile, String sha256) throws IOException {
+        Path blob = blob(sha256);
+        if (Files.exists(blob)) {
+            Files.delete(tempFile);
+            return false;
+        }
+
+        directories.createDirectories(blob.getParent());
+        try {
+            Files.move(tempFile, blob, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            // stored by a concurrent write of the same content
+            Files.delete(tempFile);
+            return false;
+        }
+    }
+
+    /**
+     * Replaces {@code target} with a link to the stored content.
+     */
+    void link(String sha256, Path target) throws IOException {
+        Path blob = blob(sha256);
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, blob);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            logger.debug("Could not link " + target + " to " + blob + ", copying instead: " + e.getMessage());
+            Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    void discard(Path tempFile) {
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            logger.warn("Could not delete staged content: " + tempFile, e);
+        }
+    }
+
+    Path blob(String sha256) {
+        return directory.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+}
@@ -0,0 +1,536 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.CountingInputStream;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable record of what a previous crawl of a source folder emitted, used to make later crawls incremental.
+ * <p>
+ * The journal is an append-only log of file and directory records, replayed into an in-memory index when opened.
+ * A file is reported as changed unless its size, modified time and file key all match the last emitted record.
+ * If {@code skipUnchangedDirectories} is set, directories that had no subdirectories, and whose modified time has not
+ * moved since they were last fully listed, are not entered at all. A directory's modified time only changes when its
+ * own entries are added, removed or renamed, so directories with subdirectories are always listed, and files edited
+ * in place inside a skipped directory are not picked up. A directory is only recorded as fully listed if none of its
+ * files were left out by another filter, such as a date range, so a later crawl with a wider filter still lists it.
+ * <p>
+ * Once a directory has been listed, records of entries below it that the crawl did not see are dropped, so files and
+ * folders deleted from the source do not stay in the journal.
+ * <p>
+ * Paths are not kept as strings. Each entry is held as 64-bit fingerprints of its path, its parent's path and its
+ * state, in primitive arrays, which costs about 40 bytes per entry on the heap and 25 bytes in the log, so a source
+ * of 40 million files needs around 1.6 GB rather than the tens of gigabytes path strings would take. Two paths with
+ * the same fingerprint share an entry; across 40 million paths the chance of any such collision is about one in twenty
+ * thousand, and its only effect is that one file may be skipped, or emitted again, on a single crawl.
+ * <p>
+ * The log is flushed every {@value #FLUSH_EVERY_RECORDS} records, and at least once a second while records are being
+ * added, so a crash only loses the most recent records. A truncated final record, left behind if the agent stopped
+ * mid-write, is discarded when the journal is replayed, so the affected file is simply emitted again.
+ * <p>
+ * A journal is locked, through a {@code .lock} file beside it, from {@link #open} until {@link #close}, so a second
+ * crawl of the same source, from this agent or another one sharing the journal folder, fails to open it rather than
+ * interleaving its records with the first.
+ */
+class CrawlJournal implements FileTreeWalker.Listener, Closeable {
+    private static final Log logger = LogFactory.getLog(CrawlJournal.class);
+    private static final HashFunction FINGERPRINT = Hashing.farmHashFingerprint64();
+    private static final int MAGIC = 0x33364A4E;
+    private static final int VERSION = 2;
+    private static final byte FILE_RECORD = 'F';
+    private static final byte DIRECTORY_RECORD = 'D';
+    private static final byte REMOVED_RECORD = 'X';
+    private static final int MIN_RECORDS_BEFORE_COMPACTION = 10_000;
+    private static final int FLUSH_EVERY_RECORDS = 1_000;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path journalFile;
+    private final boolean skipUnchangedDirectories;
+    private final EntryTable entries = new EntryTable();
+    private final EntryTable listed = new EntryTable();
+    private final Map<Path, DirectoryState> pendingDirectories = new HashMap<>();
+    private FileChannel lockChannel;
+    private DataOutputStream log;
+    private long records;
+    private int unflushedRecords;
+    private long lastFlush = System.nanoTime();
+
+    private CrawlJournal(Path journalFile, boolean skipUnchangedDirectories) {
+        this.journalFile = journalFile;
+        this.skipUnchangedDirectories = skipUnchangedDirectories;
+    }
+
+    /**
+     * Opens, or creates, the journal for {@code sourceRoot} inside {@code journalDirectory}.
+     *
+     * @throws IOException if the journal is already open for another crawl
+     */
+    static CrawlJournal open(Path journalDirectory, Path sourceRoot, boolean skipUnchangedDirectories) throws IOException {
+        Files.createDirectories(journalDirectory);
+        String name = DigestUtils.sha256Hex(sourceRoot.toAbsolutePath().normalize().toString()) + ".journal";
+        CrawlJournal journal = new CrawlJournal(journalDirectory.resolve(name), skipUnchangedDirectories);
+        journal.lock(sourceRoot);
+        try {
+            journal.replay();
+            journal.openLog();
+        } catch (IOException | RuntimeException e) {
+            journal.lockChannel.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * @return {@code false} if the file was last emitted with the same size, modified time and file key
+     */
+    synchronized boolean hasChanged(Path file, BasicFileAttributes attributes) {
+        int slot = entries.find(fingerprint(file));
+        return slot < 0 || entries.isDirectory(slot) || entries.values[slot] != fileState(attributes);
+    }
+
+    /**
+     * Leaves files that have not changed since they were last emitted out of the walk.
+     */
+    @Override
+    public synchronized boolean visitFile(Path file, BasicFileAttributes attributes) {
+        entries.markSeen(fingerprint(file));
+        return hasChanged(file, attributes);
+    }
+
+    /**
+     * Keeps the file's directory from being recorded as fully listed, as the file was not emitted.
+     */
+    @Override
+    public synchronized void fileExcluded(Path file) {
+        entries.markSeen(fingerprint(file));
+        DirectoryState parentState = pendingDirectories.get(file.getParent());
+        if (parentState != null) {
+            parentState.complete = false;
+        }
+    }
+
+    synchronized void recordEmitted(Path file, BasicFileAttributes attributes) {
+        long path = fingerprint(file);
+        long parent = fingerprint(file.getParent());
+        long state = fileState(attributes);
+        entries.put(path, parent, state, false);
+        append(FILE_RECORD, path, parent, state);
+    }
+
+    @Override
+    public synchronized boolean preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+        DirectoryState parentState = pendingDirectories.get(dir.getParent());
+        if (parentState != null) {
+            parentState.subdirectories++;
+        }
+        long path = fingerprint(dir);
+        entries.markSeen(path);
+
+        long modified = attributes.lastModifiedTime().toMillis();
+        int previous = entries.find(path);
+        if (skipUnchangedDirectories && previous >= 0 && entries.isDirectory(previous)
+            && entries.values[previous] == directoryState(modified, 0)) {
+            return false;
+        }
+        pendingDirectories.put(dir, new DirectoryState(modified));
+        return true;
+    }
+
+    /**
+     * Forgets a directory this journal agreed to enter but that a wrapping filter then left out of the walk.
+     */
+    @Override
+    public synchronized void directoryDeclined(Path dir) {
+        pendingDirectories.remove(dir);
+    }
+
+    @Override
+    public synchronized void postVisitDirectory(Path dir) {
+        DirectoryState state = pendingDirectories.remove(dir);
+        if (state == null) {
+            return;
+        }
+        long path = fingerprint(dir);
+        listed.put(path, 0, 0, true);
+        if (state.complete) {
+            long parent = fingerprint(dir.getParent());
+            long value = directoryState(state.modified, state.subdirectories);
+            entries.put(path, parent, value, true);
+            append(DIRECTORY_RECORD, path, parent, value);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (log == null) {
+            return;
+        }
+        try {
+            removeUnseen();
+            log.close();
+            log = null;
+            if (records > MIN_RECORDS_BEFORE_COMPACTION && records > 2L * entries.size) {
+                compact();
+            }
+        } finally {
+            log = null;
+            lockChannel.close();
+        }
+    }
+
+    private void lock(Path sourceRoot) throws IOException {
+        Path lockFile = journalFile.resolveSibling(journalFile.getFileName() + ".lock");
+        lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        } catch (IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Crawl journal for " + sourceRoot + " is in use by another crawl: " + journalFile);
+        }
+    }
+
+    private void append(byte type, long path, long parent, long value) {
+        try {
+            log.writeByte(type);
+            log.writeLong(path);
+            log.writeLong(parent);
+            log.writeLong(value);
+            records++;
+            if (++unflushedRecords >= FLUSH_EVERY_RECORDS || System.nanoTime() - lastFlush >= FLUSH_INTERVAL_NANOS) {
+                log.flush();
+                unflushedRecords = 0;
+                lastFlush = System.nanoTime();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to crawl journal: " + journalFile, e);
+        }
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+
+        long validLength = 0;
+        CountingInputStream counter = new CountingInputStream(new BufferedInputStream(Files.newInputStream(journalFile)));
+        try (DataInputStream in = new DataInputStream(counter)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                logger.warn("Ignoring crawl journal with unrecognised format: " + journalFile);
+                in.close();
+                Files.delete(journalFile);
+                return;
+            }
+            validLength = counter.getCount();
+            while (true) {
+                byte type = in.readByte();
+                long path = in.readLong();
+                long parent = in.readLong();
+                long value = in.readLong();
+                if (type == REMOVED_RECORD) {
+                    entries.remove(path);
+                } else {
+                    entries.put(path, parent, value, type == DIRECTORY_RECORD);
+                }
+                records++;
+                validLength = counter.getCount();
+            }
+        } catch (EOFException e) {
+            // end of the log, or a record cut short by a crash
+        }
+        entries.clearSeen();
+
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            if (validLength == 0) {
+                channel.truncate(0);
+            } else if (channel.size() > validLength) {
+                logger.warn("Discarding incomplete record at the end of crawl journal: " + journalFile);
+                channel.truncate(validLength);
+            }
+        }
+    }
+
+    /**
+     * Drops the records of entries this crawl did not see in directories it listed completely.
+     */
+    private void removeUnseen() {
+        if (listed.size == 0) {
+            return;
+        }
+        // removing an entry can shift a later one into its slot, so the slot is checked again before moving on
+        for (int slot = 0; slot < entries.capacity(); ) {
+            if (entries.isUsed(slot) && !entries.isSeen(slot) && listed.find(entries.parents[slot]) >= 0) {
+                append(REMOVED_RECORD, entries.keys[slot], 0, 0);
+                entries.removeAt(slot);
+            } else {
+                slot++;
+            }
+        }
+    }
+
+    private void openLog() throws IOException {
+        boolean isNew = !Files.exists(journalFile) || Files.size(journalFile) == 0;
+        log = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(journalFile,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+        if (isNew) {
+            log.writeInt(MAGIC);
+            log.writeInt(VERSION);
+        }
+    }
+
+    private void compact() throws IOException {
+        Path compacted = journalFile.resolveSibling(journalFile.getFileName() + ".compact");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(compacted)))) {
+            log = out;
+            records = 0;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (int slot = 0; slot < entries.capacity(); slot++) {
+                if (entries.isUsed(slot)) {
+                    byte type = entries.isDirectory(slot) ? DIRECTORY_RECORD : FILE_RECORD;
+                    append(type, entries.keys[slot], entries.parents[slot], entries.values[slot]);
+                }
+            }
+        } finally {
+            log = null;
+        }
+        Files.move(compacted, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long fingerprint(Path path) {
+        return path == null ? 0 : FINGERPRINT.hashString(path.toString(), StandardCharsets.UTF_8).asLong();
+    }
+
+    private static long fileState(BasicFileAttributes attributes) {
+        return FINGERPRINT.newHasher()
+            .putLong(attributes.size())
+            .putLong(attributes.lastModifiedTime().toMillis())
+            .putString(Objects.toString(attributes.fileKey(), ""), StandardCharsets.UTF_8)
+            .hash()
+            .asLong();
+    }
+
+    /**
+     * Packs a directory's modified time with whether it had subdirectories, the only part of the count that matters.
+     */
+    private static long directoryState(long modified, long subdirectories) {
+        return modified << 1 | (subdirectories > 0 ? 1 : 0);
+    }
+
+    private static final class DirectoryState {
+        private final long modified;
+        private long subdirectories;
+        private boolean complete = true;
+
+        DirectoryState(long modified) {
+            this.modified = modified;
+        }
+    }
+
+    /**
+     * Open addressing hash table from path fingerprint to parent fingerprint, state and flags, held in parallel
+     * arrays so that each entry costs a few dozen bytes rather than a map entry, a string and a state object.
+     */
+    private static final class EntryTable {
+        private static final byte USED = 1;
+        private static final byte DIRECTORY = 2;
+        private static final byte SEEN = 4;
+        private static final int MAX_CAPACITY = 1 << 30;
+
+        private long[] keys;
+        private long[] parents;
+        private long[] values;
+        private byte[] flags;
+        private int size;
+
+        EntryTable() {
+            allocate(1 << 10);
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        boolean isUsed(int slot) {
+            return (flags[slot] & USED) != 0;
+        }
+
+        boolean isDirectory(int slot) {
+            return (flags[slot] & DIRECTORY) != 0;
+        }
+
+        boolean isSeen(int slot) {
+            return (flags[slot] & SEEN) != 0;
+        }
+
+        /**
+         * @return the entry's slot, or -1 if there is none
+         */
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int slot = home(key); isUsed(slot); slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        void markSeen(long key) {
+            int slot = find(key);
+            if (slot >= 0) {
+                flags[slot] |= SEEN;
+            }
+        }
+
+        void clearSeen() {
+            for (int slot = 0; slot < flags.length; slot++) {
+                flags[slot] &= ~SEEN;
+            }
+        }
+
+        /**
+         * Adds or replaces an entry, marking it as seen.
+         */
+        void put(long key, long parent, long value, boolean directory) {
+            if (size >= keys.length * 3L / 4) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = home(key);
+            while (isUsed(slot) && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (!isUsed(slot)) {
+                size++;
+            }
+            keys[slot] = key;
+            parents[slot] = parent;
+            values[slot] = value;
+            flags[slot] = (byte) (USED | SEEN | (directory ? DIRECTORY : 0));
+        }
+
+        void remove(long key) {
+            int slot = find(key);
+            if (slot >= 0) {
+                removeAt(slot);
+            }
+        }
+
+        /**
+         * Removes the entry in {@code slot}, shifting later entries of the same probe run back so lookups still
+         * find them.
+         */
+        void removeAt(int slot) {
+            int mask = keys.length - 1;
+            int gap = slot;
+            for (int next = (gap + 1) & mask; isUsed(next); next = (next + 1) & mask) {
+                int home = home(keys[next]);
+                boolean homeInRange = gap <= next ? gap < home && home <= next : gap < home || home <= next;
+                if (!homeInRange) {
+                    keys[gap] = keys[next];
+                    parents[gap] = parents[next];
+                    values[gap] = values[next];
+                    flags[gap] = flags[next];
+                    gap = next;
+                }
+            }
+            flags[gap] = 0;
+            size--;
+        }
+
+        private int home(long key) {
+            return (int) (key ^ key >>> 32) & (keys.length - 1);
+        }
+
+        private void grow() {
+            if (keys.length >= MAX_CAPACITY) {
+                throw new IllegalStateException("Crawl journal cannot hold more than " + size + " entries");
+            }
+            long[] oldKeys = keys;
+            long[] oldParents = parents;
+            long[] oldValues = values;
+            byte[] oldFlags = flags;
+            allocate(oldKeys.length * 2);
+            int mask = keys.length - 1;
+            for (int old = 0; old < oldKeys.length; old++) {
+                if ((oldFlags[old] & USED) != 0) {
+                    int slot = home(oldKeys[old]);
+                    while (isUsed(slot)) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[old];
+                    parents[slot] = oldParents[old];
+                    values[slot] = oldValues[old];
+                    flags[slot] = oldFlags[old];
+                    size++;
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            parents = new long[capacity];
+            values = new long[capacity];
+            flags = new byte[capacity];
+            size = 0;
+        }
+    }
+}
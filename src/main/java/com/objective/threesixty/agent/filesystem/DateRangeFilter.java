@@ -0,0 +1,107 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Applies a job's modified date filter while walking, so files outside the range are dropped before any document is
+ * built for them, and never reach the consumer of a parallel walk.
+ * <p>
+ * With {@code pruneFolders} set, folders without subfolders that were last modified before the start of the range are
+ * not listed at all. Adding, removing or renaming a file updates its folder's modified time, so such a folder cannot
+ * have gained a file since the start of the range; only files edited in place are missed. Whether a folder has
+ * subfolders is taken from its POSIX link count, so nothing is pruned on file systems that do not report one.
+ */
+class DateRangeFilter implements FileTreeWalker.Listener {
+    private final FileTreeWalker.Listener delegate;
+    private final long start;
+    private final long end;
+    private final boolean pruneFolders;
+
+    DateRangeFilter(FileTreeWalker.Listener delegate, long start, long end, boolean pruneFolders) {
+        this.delegate = delegate;
+        this.start = start;
+        this.end = end;
+        this.pruneFolders = pruneFolders;
+    }
+
+    static boolean inRange(long lastModifiedTime, long start, long end) {
+        return lastModifiedTime >= start && lastModifiedTime <= end;
+    }
+
+    @Override
+    public boolean preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+        // the delegate is always told about the folder, so a crawl journal still counts it as a subfolder
+        if (!delegate.preVisitDirectory(dir, attributes)) {
+            return false;
+        }
+        if (!pruneFolders || attributes.lastModifiedTime().toMillis() >= start || !hasNoSubdirectories(dir)) {
+            return true;
+        }
+        delegate.directoryDeclined(dir);
+        return false;
+    }
+
+    @Override
+    public boolean visitFile(Path file, BasicFileAttributes attributes) {
+        if (!inRange(attributes.lastModifiedTime().toMillis(), start, end)) {
+            // so a crawl journal does not record the folder as fully listed
+            delegate.fileExcluded(file);
+            return false;
+        }
+        return delegate.visitFile(file, attributes);
+    }
+
+    @Override
+    public void fileExcluded(Path file) {
+        delegate.fileExcluded(file);
+    }
+
+    @Override
+    public void directoryDeclined(Path dir) {
+        delegate.directoryDeclined(dir);
+    }
+
+    @Override
+    public void postVisitDirectory(Path dir) throws IOException {
+        delegate.postVisitDirectory(dir);
+    }
+
+    private boolean hasNoSubdirectories(Path dir) {
+        try {
+            // a directory links to itself and its parent, plus one link from each subdirectory
+            return Files.getAttribute(dir, "unix:nlink", LinkOption.NOFOLLOW_LINKS) instanceof Integer links && links == 2;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Directories that have already been created, so that writing many documents to the same folder does not check for
+ * and create it each time.
+ * <p>
+ * Concurrent requests for the same new directory share a single creation: the first creates it, and the rest wait
+ * for that to finish. A directory's parents are remembered along with it. Directories removed by something else after
+ * being remembered are not noticed, so a caller that finds one missing should {@link #invalidate} it and try again. At
+ * most {@value #MAX_DIRECTORIES} directories are remembered, dropping the least recently used.
+ */
+final class DirectoryCache {
+    static final int MAX_DIRECTORIES = 100_000;
+
+    private final Map<Path, CompletableFuture<Void>> directories = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, CompletableFuture<Void>> eldest) {
+            return size() > MAX_DIRECTORIES;
+        }
+    };
+
+    /**
+     * Creates the directory and any missing parents, unless it has already been created through this cache.
+     */
+    void createDirectories(Path directory) throws IOException {
+        Path key = directory.toAbsolutePath().normalize();
+        CompletableFuture<Void> creation;
+        boolean creator = false;
+        synchronized (this) {
+            creation = directories.get(key);
+            if (creation == null) {
+                creation = new CompletableFuture<>();
+                directories.put(key, creation);
+                creator = true;
+            }
+        }
+
+        if (creator) {
+            create(key, creation);
+        }
+        try {
+            creation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets the directory, so the next request creates it again.
+     */
+    synchronized void invalidate(Path directory) {
+        directories.remove(directory.toAbsolutePath().normalize());
+    }
+
+    synchronized int size() {
+        return directories.size();
+    }
+
+    private void create(Path directory, CompletableFuture<Void> creation) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException | RuntimeException e) {
+            // not remembered, so the next request tries again
+            synchronized (this) {
+                directories.remove(directory, creation);
+            }
+            creation.completeExceptionally(e);
+            return;
+        }
+
+        synchronized (this) {
+            for (Path parent = directory.getParent(); parent != null && !directories.containsKey(parent); parent = parent.getParent()) {
+                directories.put(parent, CompletableFuture.completedFuture(null));
+            }
+        }
+        creation.complete(null);
+    }
+}
@@ -0,0 +1,132 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+import com.objective.threesixty.StringArray;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.FileOwnerAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Extractors for metadata kept in file system attributes rather than in the content. Each returns nothing on file
+ * systems without the attribute view it reads.
+ */
+final class FileAttributeExtractors {
+    static final int MAX_XATTR_BYTES = 4096;
+
+    private FileAttributeExtractors() {
+    }
+
+    /**
+     * The owner, group and permissions, as {@code owner}, {@code group} and {@code permissions} in {@code rwxr-x---}
+     * form. Only the owner is available on file systems without POSIX attributes.
+     */
+    static final class Posix implements MetadataExtractor {
+        @Override
+        public Map<String, MetadataType> extract(FileSample file) throws IOException {
+            PosixFileAttributeView posix = Files.getFileAttributeView(file.path(), PosixFileAttributeView.class);
+            if (posix != null) {
+                PosixFileAttributes attributes = posix.readAttributes();
+                return Map.of(
+                    "owner", string(attributes.owner().getName()),
+                    "group", string(attributes.group().getName()),
+                    "permissions", string(PosixFilePermissions.toString(attributes.permissions())));
+            }
+            FileOwnerAttributeView owner = Files.getFileAttributeView(file.path(), FileOwnerAttributeView.class);
+            return owner != null ? Map.of("owner", string(owner.getOwner().getName())) : Map.of();
+        }
+    }
+
+    /**
+     * The access control list, as {@code acl}: one {@code principal:type:permission,...} value per entry, in order.
+     */
+    static final class Acl implements MetadataExtractor {
+        @Override
+        public Map<String, MetadataType> extract(FileSample file) throws IOException {
+            AclFileAttributeView view = Files.getFileAttributeView(file.path(), AclFileAttributeView.class);
+            if (view == null) {
+                return Map.of();
+            }
+            StringArray.Builder entries = StringArray.newBuilder();
+            for (AclEntry entry : view.getAcl()) {
+                entries.addValues(entry.principal().getName() + ":" + entry.type() + ":"
+                    + entry.permissions().stream().map(Enum::name).sorted().collect(Collectors.joining(",")));
+            }
+            return Map.of("acl", MetadataType.newBuilder().setArray(entries).build());
+        }
+    }
+
+    /**
+     * User-defined extended attributes, as {@code xattr.<name>}, decoded as UTF-8. Values over
+     * {@value #MAX_XATTR_BYTES} bytes are left out.
+     */
+    static final class ExtendedAttributes implements MetadataExtractor {
+        @Override
+        public Map<String, MetadataType> extract(FileSample file) throws IOException {
+            UserDefinedFileAttributeView view = Files.getFileAttributeView(file.path(), UserDefinedFileAttributeView.class);
+            if (view == null) {
+                return Map.of();
+            }
+            Map<String, MetadataType> metadata = new HashMap<>();
+            try {
+                for (String name : view.list()) {
+                    if (view.size(name) <= MAX_XATTR_BYTES) {
+                        ByteBuffer value = ByteBuffer.allocate(MAX_XATTR_BYTES);
+                        view.read(name, value);
+                        value.flip();
+                        metadata.put("xattr." + name, string(StandardCharsets.UTF_8.newDecoder()
+                            .onMalformedInput(CodingErrorAction.REPLACE)
+                            .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                            .decode(value).toString()));
+                    }
+                }
+            } catch (UnsupportedOperationException e) {
+                // a file system that cannot hold user attributes has none
+                return Map.of();
+            }
+            return metadata;
+        }
+    }
+
+    private static MetadataType string(String value) {
+        return MetadataType.newBuilder().setString(value).build();
+    }
+}
@@ -0,0 +1,189 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.objective.threesixty.MetadataType;
+import com.objective.threesixty.RunApiResponse;
+import com.objective.threesixty.remoteagent.sdk.agent.AuthConnection;
+import com.objective.threesixty.remoteagent.sdk.utils.CustomParameters;
+import com.objective.threesixty.remoteagent.sdk.utils.ValueUtils;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The REST-style endpoints served through {@code runApi}, with JSON request and response bodies.
+ * <p>
+ * {@code POST /batch/metadata} takes {@code {"ids": [...]}}, or a bare array of document IDs, and returns
+ * {@code {"documents": [...]}} in the same order, each with either its {@code metadata} or an {@code error}. At most
+ * {@value #MAX_BATCH_SIZE} IDs are accepted per request. If the search connection has a root path, only documents
+ * under it are read, comparing real paths so that symbolic links cannot lead out of it, and each document is read
+ * through the real path that was checked. Errors are reported by kind only, without the exception or the paths it
+ * names.
+ */
+class FileSystemApi {
+    static final String BATCH_METADATA = "/batch/metadata";
+    static final int MAX_BATCH_SIZE = 10_000;
+    static final int OK = 200;
+    static final int BAD_REQUEST = 400;
+    static final int NOT_FOUND = 404;
+    static final int METHOD_NOT_ALLOWED = 405;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final FileSystemReader reader;
+
+    FileSystemApi(FileSystemReader reader) {
+        this.reader = reader;
+    }
+
+    RunApiResponse handle(AuthConnection authConn, String method, String endpoint, String body, CustomParameters params) {
+        String path = normalize(endpoint);
+        if (!BATCH_METADATA.equals(path)) {
+            return error(NOT_FOUND, "Unknown endpoint: " + endpoint);
+        }
+        if (!"POST".equalsIgnoreCase(method)) {
+            return error(METHOD_NOT_ALLOWED, "Use POST for " + BATCH_METADATA);
+        }
+
+        List<String> ids;
+        try {
+            ids = documentIds(body);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return error(BAD_REQUEST, "Expected {\"ids\": [...]} or an array of document IDs: " + e.getMessage());
+        }
+        if (ids.size() > MAX_BATCH_SIZE) {
+            return error(BAD_REQUEST, "At most " + MAX_BATCH_SIZE + " document IDs are accepted per request");
+        }
+        return response(OK, batchMetadata(authConn, ids, params));
+    }
+
+    private ObjectNode batchMetadata(AuthConnection authConn, List<String> ids, CustomParameters params) {
+        String rootPath = params.getOrDefault("searchRootPath", ValueUtils.stringValue("")).getString();
+        Path root = rootPath.isBlank() ? null : realPath(rootPath);
+        List<FileSystemReader.MetadataResult> results = rootPath.isBlank() || root != null
+            ? reader.getDocumentMetadata(ids, root, params, authConn)
+            : null;
+
+        ObjectNode response = mapper.createObjectNode();
+        ArrayNode documents = response.putArray("documents");
+        for (int i = 0; i < ids.size(); i++) {
+            ObjectNode document = documents.addObject().put("id", ids.get(i));
+            FileSystemReader.MetadataResult result = results != null ? results.get(i) : null;
+            if (result == null || result.error() instanceof FileSystemReader.OutsideRootException) {
+                document.put("error", "Document is outside the search root");
+            } else if (result.error() != null) {
+                document.put("error", errorMessage(result.error()));
+            } else {
+                ObjectNode metadata = document.putObject("metadata");
+                // sorted, so responses are stable
+                new TreeMap<>(result.metadata()).forEach((key, value) -> put(metadata, key, value));
+            }
+        }
+        return response;
+    }
+
+    private List<String> documentIds(String body) throws JsonProcessingException {
+        JsonNode json = mapper.readTree(body == null || body.isBlank() ? "null" : body);
+        JsonNode ids = json != null && json.isObject() ? json.get("ids") : json;
+        if (ids == null || !ids.isArray()) {
+            throw new IllegalArgumentException("no ID array found");
+        }
+        List<String> result = new ArrayList<>(ids.size());
+        for (JsonNode id : ids) {
+            if (!id.isTextual() || id.asText().isBlank()) {
+                throw new IllegalArgumentException("document IDs must be non-blank strings");
+            }
+            result.add(id.asText());
+        }
+        return result;
+    }
+
+    private static void put(ObjectNode metadata, String key, MetadataType value) {
+        switch (value.getTypeCase()) {
+            case BOOLEAN -> metadata.put(key, value.getBoolean());
+            case INTEGER -> metadata.put(key, value.getInteger());
+            case LONG -> metadata.put(key, value.getLong());
+            case DOUBLE -> metadata.put(key, value.getDouble());
+            case DECIMAL -> metadata.put(key, value.getDecimal());
+            case ARRAY -> value.getArray().getValuesList().forEach(metadata.putArray(key)::add);
+            case TYPE_NOT_SET -> {
+            }
+            default -> metadata.put(key, MetadataEncoder.stringValue(key, value));
+        }
+    }
+
+    /**
+     * Returns the path with every symbolic link resolved, or {@code null} if it does not exist or is not a valid path.
+     */
+    private static Path realPath(String path) {
+        try {
+            return Paths.get(path).toRealPath();
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String errorMessage(Exception error) {
+        if (error instanceof NoSuchFileException) {
+            return "Document not found";
+        } else if (error instanceof AccessDeniedException) {
+            return "Access denied";
+        } else if (error instanceof InvalidPathException) {
+            return "Invalid document ID";
+        }
+        return "Document metadata could not be read";
+    }
+
+    private static String normalize(String endpoint) {
+        String path = endpoint == null ? "" : endpoint.trim();
+        if (!path.startsWith("/")) {
+            path = "/" + path;
+        }
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    private RunApiResponse error(int code, String message) {
+        return response(code, mapper.createObjectNode().put("error", message));
+    }
+
+    private static RunApiResponse response(int code, JsonNode body) {
+        return RunApiResponse.newBuilder().setCode(code).setResponse(body.toString()).build();
+    }
+}
@@ -28,24 +28,74 @@ package com.objective.threesixty.agent.filesystem;
 
 import com.objective.threesixty.remoteagent.sdk.agent.AuthConnection;
 import com.objective.threesixty.remoteagent.sdk.agent.AuthConnectionFactory;
-import lombok.Getter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class FileSystemAuthConnFactory implements AuthConnectionFactory {
-    @Getter
-    private final Set<AuthConnection> authConnections = ConcurrentHashMap.newKeySet();
+    private final AuthConnectionRegistry authConnections;
+    private final Counter connectionChecks;
+
+    public FileSystemAuthConnFactory() {
+        this(Metrics.globalRegistry);
+    }
+
+    FileSystemAuthConnFactory(MeterRegistry registry) {
+        this(new AuthConnectionRegistry(), registry);
+    }
+
+    FileSystemAuthConnFactory(int maxConnections, long ttlMinutes) {
+        this(maxConnections, ttlMinutes, Metrics.globalRegistry);
+    }
+
+    @Autowired
+    FileSystemAuthConnFactory(@Value("${filesystem.auth.max-connections:" + AuthConnectionRegistry.DEFAULT_MAX_CONNECTIONS + "}") int maxConnections,
+                              @Value("${filesystem.auth.connection-ttl-minutes:" + AuthConnectionRegistry.DEFAULT_TTL_MINUTES + "}") long ttlMinutes,
+                              MeterRegistry registry) {
+        this(new AuthConnectionRegistry(maxConnections, TimeUnit.MINUTES.toMillis(ttlMinutes), System::nanoTime), registry);
+    }
+
+    FileSystemAuthConnFactory(AuthConnectionRegistry authConnections, MeterRegistry registry) {
+        this.authConnections = authConnections;
+        this.connectionChecks = Counter.builder("filesystem.auth.checks")
+            .description("Connection checks requested")
+            .register(registry);
+        Gauge.builder("filesystem.auth.connections", authConnections, AuthConnectionRegistry::size)
+            .description("Auth connections registered")
+            .register(registry);
+        FunctionCounter.builder("filesystem.auth.evictions", authConnections, AuthConnectionRegistry::expired)
+            .description("Auth connections dropped from the registry")
+            .tag("cause", "expired")
+            .register(registry);
+        FunctionCounter.builder("filesystem.auth.evictions", authConnections, AuthConnectionRegistry::evicted)
+            .description("Auth connections dropped from the registry")
+            .tag("cause", "size")
+            .register(registry);
+    }
+
+    /**
+     * @return the connections checked or registered within their time to live
+     */
+    public Set<AuthConnection> getAuthConnections() {
+        return authConnections.connections();
+    }
 
     public void register(AuthConnection connector) {
-        authConnections.add(connector);
+        authConnections.register(connector);
     }
 
     @Override
     public String checkConnection(AuthConnection conn) {
-        register(conn);
-        return "";
+        connectionChecks.increment();
+        return authConnections.check(conn, connection -> "");
     }
 }
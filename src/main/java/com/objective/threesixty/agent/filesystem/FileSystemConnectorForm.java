@@ -29,6 +29,8 @@ package com.objective.threesixty.agent.filesystem;
 import com.objective.threesixty.CheckboxField;
 import com.objective.threesixty.Field;
 import com.objective.threesixty.NumberField;
+import com.objective.threesixty.Option;
+import com.objective.threesixty.SelectField;
 import com.objective.threesixty.TextField;
 import com.objective.threesixty.remoteagent.sdk.agent.ConnectorForm;
 import org.springframework.stereotype.Component;
@@ -45,8 +47,61 @@ public class FileSystemConnectorForm implements ConnectorForm {
             .setId("sourceFilePath")
             .setTextField(TextField.newBuilder().build())
             .build();
+        Field incrementalCrawl = Field.newBuilder()
+            .setLabel("Incremental Crawl")
+            .setDescription("Only return files that are new or changed since the last crawl of this File Path")
+            .setId("incrementalCrawl")
+            .setCheckboxField(CheckboxField.newBuilder().setValue(false).build())
+            .build();
+        Field crawlJournalPath = Field.newBuilder()
+            .setLabel("Crawl Journal Path")
+            .setDescription("Folder on the agent host where the crawl journal is kept")
+            .setId("crawlJournalPath")
+            .setDependsOn(incrementalCrawl.getId())
+            .setTextField(TextField.newBuilder().build())
+            .build();
+        Field skipUnchangedFolders = Field.newBuilder()
+            .setLabel("Skip Unchanged Folders")
+            .setDescription("Do not list folders without subfolders whose modified date has not changed since the last crawl. "
+                + "Files edited in place inside those folders are not detected")
+            .setId("skipUnchangedFolders")
+            .setDependsOn(incrementalCrawl.getId())
+            .setCheckboxField(CheckboxField.newBuilder().setValue(false).build())
+            .build();
+        Field watchSourceFolder = Field.newBuilder()
+            .setLabel("Watch For Changes")
+            .setDescription("Keep watching the File Path between crawls, so the next crawl only lists folders with changes. "
+                + "Falls back to a full listing if any changes are missed")
+            .setId("watchSourceFolder")
+            .setDependsOn(incrementalCrawl.getId())
+            .setCheckboxField(CheckboxField.newBuilder().setValue(false).build())
+            .build();
+
+        Field crawlParallelism = Field.newBuilder()
+            .setLabel("Crawl Parallelism")
+            .setDescription("Number of folders listed at the same time. Higher values help on network shares "
+                + "with slow folder listings. Files are returned in no particular order when above 1")
+            .setId("crawlParallelism")
+            .setNumberField(NumberField.newBuilder().setValue(1).setMin(1).setMax(64).build())
+            .build();
 
-        return List.of(filePath);
+        Field pruneFoldersByDate = Field.newBuilder()
+            .setLabel("Skip Folders Older Than Date Filter")
+            .setDescription("Do not list folders without subfolders that were last modified before the start of the "
+                + "job's date filter. Files edited in place inside those folders are not detected")
+            .setId("pruneFoldersByDate")
+            .setCheckboxField(CheckboxField.newBuilder().setValue(false).build())
+            .build();
+
+        Field computeDigests = Field.newBuilder()
+            .setLabel("Compute Content Digests")
+            .setDescription("Compute SHA-256 and MD5 digests while binaries are read, and return them in document metadata")
+            .setId("computeDigests")
+            .setCheckboxField(CheckboxField.newBuilder().setValue(false).build())
+            .build();
+
+        return List.of(filePath, incrementalCrawl, crawlJournalPath, skipUnchangedFolders, watchSourceFolder, crawlParallelism,
+            pruneFoldersByDate, computeDigests);
     }
 
     @Override
@@ -62,7 +117,81 @@ public class FileSystemConnectorForm implements ConnectorForm {
             .setId("metadataAsXml")
             .setCheckboxField(CheckboxField.newBuilder().setValue(true).build())
             .build();
-        return List.of(filePath, metadataAsXml);
+        Field computeDigests = Field.newBuilder()
+            .setLabel("Compute Content Digests")
+            .setDescription("Compute SHA-256 and MD5 digests while binaries are written, and return them in document metadata")
+            .setId("computeDigests")
+            .setCheckboxField(CheckboxField.newBuilder().setValue(false).build())
+            .build();
+        Field deduplicateContent = Field.newBuilder()
+            .setLabel("Deduplicate Content")
+            .setDescription("Store each distinct binary once, and write output files as hard links to it. Linked output "
+                + "files share their content, so editing one in place changes all of them")
+            .setId("deduplicateContent")
+            .setCheckboxField(CheckboxField.newBuilder().setValue(false).build())
+            .build();
+        Field contentStorePath = Field.newBuilder()
+            .setLabel("Content Store Path")
+            .setDescription("Folder to store deduplicated content in. Must be on the same volume as the output file path. "
+                + "Defaults to .content-store in the output file path")
+            .setId("contentStorePath")
+            .setDependsOn("deduplicateContent")
+            .setTextField(TextField.newBuilder().build())
+            .build();
+        Field groupCommit = Field.newBuilder()
+            .setLabel("Group Commit")
+            .setDescription("Force written files to disk in batches rather than one at a time. Each document is only "
+                + "reported as written once its batch is on disk")
+            .setId("groupCommit")
+            .setCheckboxField(CheckboxField.newBuilder().setValue(false).build())
+            .build();
+        Field groupCommitWindowMs = Field.newBuilder()
+            .setLabel("Group Commit Window (ms)")
+            .setDescription("Longest time a written file waits for its batch to be forced")
+            .setId("groupCommitWindowMs")
+            .setDependsOn("groupCommit")
+            .setNumberField(NumberField.newBuilder().setValue(50).setMin(1).setMax(10000).build())
+            .build();
+        Field groupCommitMaxFiles = Field.newBuilder()
+            .setLabel("Group Commit Batch Size")
+            .setDescription("Number of files that forces a batch before its window has ended")
+            .setId("groupCommitMaxFiles")
+            .setDependsOn("groupCommit")
+            .setNumberField(NumberField.newBuilder().setValue(64).setMin(1).setMax(100000).build())
+            .build();
+        Field metadataOutput = Field.newBuilder()
+            .setLabel("Metadata Output")
+            .setDescription("Write metadata to a sidecar file per document, append it to a "
+                + MetadataSidecarWriter.MANIFEST_FILE_NAME + " manifest in each output folder, or append it to binary "
+                + "manifest segments in " + MetadataSidecarWriter.BINARY_MANIFEST_DIRECTORY + " under the output file path")
+            .setId("metadataOutput")
+            .setSelectField(SelectField.newBuilder()
+                .setValue("sidecar")
+                .addOptions(Option.newBuilder().setValue("sidecar").setLabel("Sidecar file per document").build())
+                .addOptions(Option.newBuilder().setValue("manifest").setLabel("Manifest per folder").build())
+                .addOptions(Option.newBuilder().setValue("binaryManifest").setLabel("Binary manifest").build())
+                .build())
+            .build();
+        Field atomicWrites = Field.newBuilder()
+            .setLabel("Atomic Writes")
+            .setDescription("Write each binary to a temp file, then rename it over the output file, so a failed write "
+                + "leaves the previous file and its metadata sidecar unchanged. Temp files left by a crash are deleted "
+                + "once over an hour old, the first time the agent writes to their folder. Not used with Deduplicate "
+                + "Content")
+            .setId("atomicWrites")
+            .setCheckboxField(CheckboxField.newBuilder().setValue(false).build())
+            .build();
+        Field copyLocalSources = Field.newBuilder()
+            .setLabel("Copy Local Sources Directly")
+            .setDescription("When the source documents were read by this agent's File System source, copy each file "
+                + "directly on the agent host instead of streaming its content through 3Sixty, as long as the file and "
+                + "the document's size are unchanged since it was read. Not used when computing digests or "
+                + "deduplicating content")
+            .setId("copyLocalSources")
+            .setCheckboxField(CheckboxField.newBuilder().setValue(false).build())
+            .build();
+        return List.of(filePath, metadataAsXml, computeDigests, deduplicateContent, contentStorePath, groupCommit,
+            groupCommitWindowMs, groupCommitMaxFiles, metadataOutput, atomicWrites, copyLocalSources);
     }
 
     @Override
@@ -100,11 +229,24 @@ public class FileSystemConnectorForm implements ConnectorForm {
 
     @Override
     public List<Field> getSearchConnectionFields() {
-        return List.of(Field.newBuilder()
-            .setLabel("Does nothing")
-            .setId("textField")
-            .setDescription("Does nothing")
+        Field searchRootPath = Field.newBuilder()
+            .setLabel("Search Root Path")
+            .setDescription("Folder whose files are indexed and searched. Collections are folders under it")
+            .setId("searchRootPath")
             .setTextField(TextField.newBuilder().build())
-            .build());
+            .build();
+        Field searchMaxResults = Field.newBuilder()
+            .setLabel("Maximum Results")
+            .setDescription("Number of best matching files returned by a search")
+            .setId("searchMaxResults")
+            .setNumberField(NumberField.newBuilder().setValue(FileSystemContentSearchService.DEFAULT_MAX_RESULTS).setMin(1).setMax(1000).build())
+            .build();
+        Field searchMaxFileMb = Field.newBuilder()
+            .setLabel("Maximum Indexed File Size (MB)")
+            .setDescription("Text files larger than this are indexed by name only")
+            .setId("searchMaxFileMb")
+            .setNumberField(NumberField.newBuilder().setValue(FileSystemContentSearchService.DEFAULT_MAX_FILE_MB).setMin(1).setMax(1024).build())
+            .build();
+        return List.of(searchRootPath, searchMaxResults, searchMaxFileMb);
     }
 }
@@ -26,22 +26,128 @@ package com.objective.threesixty.agent.filesystem;
  * %-
  */
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.objective.threesixty.RunApiResponse;
 import com.objective.threesixty.remoteagent.sdk.agent.AuthConnection;
 import com.objective.threesixty.remoteagent.sdk.agent.ContentSearchService;
 import com.objective.threesixty.remoteagent.sdk.utils.CustomParameters;
+import com.objective.threesixty.remoteagent.sdk.utils.ValueUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Answers searches from an in-memory {@link SearchIndex} of the files under the search connection's root folder.
+ * <p>
+ * Each root is indexed in the background the first time it is searched, with the first query waiting up to
+ * {@value #INITIAL_SCAN_WAIT_SECONDS} seconds for it, and answered from whatever has been indexed by then. From then
+ * on the root is watched, and the index updated as files change. A non-blank collection limits results to that
+ * folder under the root. Results are returned as JSON, best match first.
+ * <p>
+ * {@code runApi} serves the endpoints of {@link FileSystemApi}.
+ */
 @Component
 public class FileSystemContentSearchService implements ContentSearchService {
+    static final int DEFAULT_MAX_RESULTS = 50;
+    static final int DEFAULT_MAX_FILE_MB = 10;
+    static final long INITIAL_SCAN_WAIT_SECONDS = 5;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<Path, ContentIndexer> indexers = new ConcurrentHashMap<>();
+    private final FileSystemApi api;
+
+    public FileSystemContentSearchService() {
+        this(new FileSystemReader());
+    }
+
+    @Autowired
+    public FileSystemContentSearchService(FileSystemReader reader) {
+        this.api = new FileSystemApi(reader);
+    }
+
     @Override
     public String runQuery(AuthConnection authConn, String collection, String searchString, CustomParameters params) {
-        // Filesystem does not use content search
-        return "";
+        String rootPath = params.getOrDefault("searchRootPath", ValueUtils.stringValue("")).getString();
+        if (rootPath.isBlank() || searchString == null || searchString.isBlank()) {
+            return "";
+        }
+        Path root = Paths.get(rootPath).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            throw new IllegalArgumentException("Search root is not a folder: " + root);
+        }
+        Path scope = collection == null || collection.isBlank() ? root : root.resolve(collection).normalize();
+        if (!scope.startsWith(root)) {
+            throw new IllegalArgumentException("Collection is outside the search root: " + collection);
+        }
+
+        int maxResults = NumericParameters.intParameter(params, "searchMaxResults", DEFAULT_MAX_RESULTS);
+        ContentIndexer indexer = indexer(root, NumericParameters.longParameter(params, "searchMaxFileMb", DEFAULT_MAX_FILE_MB));
+        String prefix = scope.equals(root) ? "" : scope + File.separator;
+        List<SearchIndex.Hit> hits = indexer.index().search(searchString, maxResults, path -> path.startsWith(prefix));
+
+        ObjectNode response = mapper.createObjectNode()
+            .put("query", searchString)
+            .put("complete", indexer.isComplete());
+        ArrayNode results = response.putArray("results");
+        for (SearchIndex.Hit hit : hits) {
+            results.addObject()
+                .put("id", hit.path())
+                .put("name", Paths.get(hit.path()).getFileName().toString())
+                .put("score", hit.score())
+                .put("size", hit.size())
+                .put("modified", hit.modified());
+        }
+        return response.toString();
     }
 
     @Override
     public RunApiResponse runApi(AuthConnection authConn, String method, String endpoint, String queryParams, String body, CustomParameters params) {
-        return null;
+        return api.handle(authConn, method, endpoint, body, params);
+    }
+
+    @PreDestroy
+    void close() {
+        indexers.values().forEach(ContentIndexer::close);
+        indexers.clear();
+    }
+
+    /**
+     * Returns the root's indexer, starting it and waiting a while for its first scan if it is new. The maximum file
+     * size only applies when the indexer is created.
+     */
+    private ContentIndexer indexer(Path root, long maxFileMb) {
+        ContentIndexer existing = indexers.get(root);
+        if (existing != null) {
+            return existing;
+        }
+        ContentIndexer created = new ContentIndexer(root, maxFileMb * 1024L * 1024L);
+        existing = indexers.putIfAbsent(root, created);
+        if (existing != null) {
+            created.close();
+            return existing;
+        }
+        try {
+            created.start().get(INITIAL_SCAN_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // answered from what has been indexed so far
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to index " + root, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return created;
     }
 }
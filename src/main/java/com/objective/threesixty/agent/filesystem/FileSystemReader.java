@@ -34,8 +34,20 @@ import com.objective.threesixty.remoteagent.sdk.agent.AuthConnection;
 import com.objective.threesixty.remoteagent.sdk.agent.RepositoryReader;
 import com.objective.threesixty.remoteagent.sdk.utils.CustomParameters;
 import com.objective.threesixty.remoteagent.sdk.utils.RepositoryUtils;
+import com.objective.threesixty.remoteagent.sdk.utils.ValueUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.SneakyThrows;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -43,18 +55,74 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
-import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Stream;
 
 @Component
 public class FileSystemReader implements RepositoryReader {
+    static final int METADATA_BATCH_THREADS = 32;
+
+    private final ContentDigests contentDigests;
+    private final LocalDocuments localDocuments;
+    private final MeterRegistry registry;
+    private final Counter documentsDiscovered;
+    private final Timer statTimer;
+    private final DistributionSummary bytesRead;
+    private final Map<String, WatchedChanges> watchedSources = new ConcurrentHashMap<>();
+    private final Queue<SourceWatcher> sourceWatchers = new ConcurrentLinkedQueue<>();
+    private final AttributeCache attributeCache = new AttributeCache();
+    private final Scheduler metadataScheduler = IoSchedulers.newScheduler(METADATA_BATCH_THREADS, "metadata-reader");
+    private final MetadataExtractors metadataExtractors = MetadataExtractors.defaults();
+
+    public FileSystemReader() {
+        this(new ContentDigests(), new LocalDocuments(), Metrics.globalRegistry);
+    }
+
+    FileSystemReader(ContentDigests contentDigests) {
+        this(contentDigests, new LocalDocuments(), Metrics.globalRegistry);
+    }
+
+    FileSystemReader(ContentDigests contentDigests, MeterRegistry registry) {
+        this(contentDigests, new LocalDocuments(), registry);
+    }
+
+    @Autowired
+    FileSystemReader(ContentDigests contentDigests, LocalDocuments localDocuments, MeterRegistry registry) {
+        this.contentDigests = contentDigests;
+        this.localDocuments = localDocuments;
+        this.registry = registry;
+        this.documentsDiscovered = Counter.builder("filesystem.reader.documents")
+            .description("Documents returned by getDocuments")
+            .register(registry);
+        this.statTimer = Timer.builder("filesystem.reader.stat")
+            .description("Latency of reading a file's attributes, including during traversal")
+            .register(registry);
+        FunctionCounter.builder("filesystem.reader.attribute.cache", attributeCache, AttributeCache::hits)
+            .description("Metadata requests answered from recently read attributes, or not")
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("filesystem.reader.attribute.cache", attributeCache, AttributeCache::misses)
+            .description("Metadata requests answered from recently read attributes, or not")
+            .tag("result", "miss")
+            .register(registry);
+        this.bytesRead = DistributionSummary.builder("filesystem.reader.bytes.read")
+            .description("Bytes of content returned by each getDocumentBinary call")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
     //Not needed for this implementation
     @Override
     public void init(CustomParameters parameters) {
@@ -62,22 +130,138 @@ public class FileSystemReader implements RepositoryReader {
 
     @Override
     public Document getDocument(String docId, CustomParameters parameters, AuthConnection conn) {
-        return documentFromPath(Paths.get(docId), parameters);
+        try {
+            return documentFromPath(Paths.get(docId), parameters);
+        } catch (RuntimeException e) {
+            recordError("getDocument");
+            throw e;
+        }
     }
 
     @SneakyThrows
     @Override
     public Map<String, MetadataType> getDocumentMetadata(String docId, CustomParameters parameters, AuthConnection conn) {
-        Path path = Paths.get(docId);
-        Map<String, MetadataType> metadata = new ConcurrentHashMap<>();
-        metadata.put("fileName", MetadataType.newBuilder().setString(path.getFileName().toString()).build());
-        metadata.put("fileSize", MetadataType.newBuilder().setLong(Files.size(path)).build());
+        try {
+            Path path = Paths.get(docId);
+            return metadataFromPath(path, attributeCache.getFresh(path));
+        } catch (IOException e) {
+            recordError("getDocumentMetadata");
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the metadata of many documents at once, returning the results in the order of {@code docIds}. Documents
+     * whose attributes were read recently are answered from the attribute cache straight away, and the rest are read
+     * up to {@value #METADATA_BATCH_THREADS} at a time. A document whose metadata cannot be read has the error in its
+     * result instead, so one missing file does not fail the batch.
+     */
+    public List<MetadataResult> getDocumentMetadata(List<String> docIds, CustomParameters parameters, AuthConnection conn) {
+        return getDocumentMetadata(docIds, null, parameters, conn);
+    }
+
+    /**
+     * As {@link #getDocumentMetadata(List, CustomParameters, AuthConnection)}, but only reads documents under
+     * {@code root}. Each document's real path is resolved in its own task, and its metadata is read through that
+     * path, so a link changed after the check cannot lead out of the root. Documents outside it, or whose real path
+     * cannot be resolved, have an {@link OutsideRootException} as their error.
+     *
+     * @param root a real path, or {@code null} to read documents anywhere
+     */
+    List<MetadataResult> getDocumentMetadata(List<String> docIds, Path root, CustomParameters parameters, AuthConnection conn) {
+        MetadataResult[] results = new MetadataResult[docIds.size()];
+        List<Integer> uncached = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            String docId = docIds.get(i);
+            if (root != null) {
+                // resolved in the parallel tasks below
+                uncached.add(i);
+                continue;
+            }
+            try {
+                Path path = Paths.get(docId);
+                AttributeCache.Entry cached = attributeCache.getFresh(path);
+                if (cached != null) {
+                    results[i] = new MetadataResult(docId, metadataFromPath(path, cached), null);
+                } else {
+                    uncached.add(i);
+                }
+            } catch (IOException | RuntimeException e) {
+                recordError("getDocumentMetadata");
+                results[i] = new MetadataResult(docId, null, e);
+            }
+        }
+
+        Flux.fromIterable(uncached)
+            .flatMap(i -> Mono.fromRunnable(() -> results[i] = metadataResult(docIds.get(i), root)).subscribeOn(metadataScheduler),
+                METADATA_BATCH_THREADS)
+            .then()
+            .block();
+        return Arrays.asList(results);
+    }
+
+    private MetadataResult metadataResult(String docId, Path root) {
+        try {
+            Path path = root != null ? realPathUnder(root, docId) : Paths.get(docId);
+            return new MetadataResult(docId, metadataFromPath(path, attributeCache.getFresh(path)), null);
+        } catch (IOException | RuntimeException e) {
+            recordError("getDocumentMetadata");
+            return new MetadataResult(docId, null, e);
+        }
+    }
+
+    private static Path realPathUnder(Path root, String docId) throws OutsideRootException {
+        Path path;
+        try {
+            path = Paths.get(docId).toRealPath();
+        } catch (IOException | RuntimeException e) {
+            // reported the same as a path outside the root, so the error does not tell whether the file exists
+            throw new OutsideRootException(docId);
+        }
+        if (!path.startsWith(root)) {
+            throw new OutsideRootException(docId);
+        }
+        return path;
+    }
+
+    /**
+     * @param cached the file's cache entry if it is fresh enough to use without reading the file, otherwise
+     *               {@code null}
+     */
+    private Map<String, MetadataType> metadataFromPath(Path path, AttributeCache.Entry cached) throws IOException {
+        AttributeCache.Entry entry = cached != null ? cached : attributeCache.put(path, readAttributes(path));
+        Map<String, MetadataType> fileMetadata = entry.metadata();
+        if (fileMetadata == null) {
+            MetadataExtractors.Result extracted = metadataExtractors.extract(path, entry.attributes(), entry.contentMetadata());
+            fileMetadata = new HashMap<>(extracted.metadata());
+            fileMetadata.put("fileName", MetadataType.newBuilder().setString(path.getFileName().toString()).build());
+            fileMetadata.put("fileSize", MetadataType.newBuilder().setLong(entry.attributes().size()).build());
+            fileMetadata = Map.copyOf(fileMetadata);
+            attributeCache.putMetadata(path, entry, fileMetadata, extracted.contentMetadata());
+        }
+        Map<String, MetadataType> metadata = new ConcurrentHashMap<>(fileMetadata);
+
+        // only available once the content has been streamed through getDocumentBinary or writeDocument
+        ContentDigests.Digests digests = contentDigests.get(path, entry.attributes());
+        if (digests != null) {
+            metadata.put("sha256", MetadataType.newBuilder().setString(digests.sha256()).build());
+            metadata.put("md5", MetadataType.newBuilder().setString(digests.md5()).build());
+        }
         return metadata;
     }
 
     @SneakyThrows
     @Override
     public Stream<Document> getDocuments(CustomParameters parameters, AuthConnection conn) {
+        try {
+            return discoverDocuments(parameters).peek(document -> documentsDiscovered.increment());
+        } catch (Exception e) {
+            recordError("getDocuments");
+            throw e;
+        }
+    }
+
+    private Stream<Document> discoverDocuments(CustomParameters parameters) throws IOException {
         String filePath = parameters.get("sourceFilePath").getString();
         Path directory = Paths.get(filePath);
 
@@ -85,21 +269,23 @@ public class FileSystemReader implements RepositoryReader {
             return Stream.of(documentFromPath(directory, parameters)).filter(Objects::nonNull);
         }
 
-        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
-            Stream<Path> pathStream = Files.walk(directory);
+        CrawlJournal journal = openCrawlJournal(directory, parameters);
+        WatchedChanges.Crawl watchedCrawl = journal != null ? beginWatchedCrawl(directory, parameters, journal) : null;
+        FileTreeWalker.Listener crawlListener = watchedCrawl != null ? watchedCrawl : journal;
+        boolean pruneFolders = parameters.getOrDefault("pruneFoldersByDate", ValueUtils.booleanValue(false)).getBoolean();
+        FileTreeWalker.Listener listener = new DateRangeFilter(crawlListener != null ? crawlListener : FileTreeWalker.ENTER_ALL,
+            parameters.getStartTimeOfDateFilter(), parameters.getEndTimeOfDateFilter(), pruneFolders);
 
-            return pathStream
-                .onClose(() -> { // close the directoryStream when all the paths have been processed
-                    try {
-                        directoryStream.close();
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                })
-                .filter(Files::isRegularFile)
-                .map(path -> documentFromPath(path, parameters))
-                .filter(Objects::nonNull);
-        }
+        int parallelism = NumericParameters.intParameter(parameters, "crawlParallelism", 1);
+
+        return FileTreeWalker.walk(directory, parallelism, listener, statTimer)
+            .onClose(() -> {
+                if (watchedCrawl != null) {
+                    watchedCrawl.close();
+                }
+                closeCrawlJournal(journal);
+            })
+            .map(file -> documentFromPath(file.path(), file.attributes(), journal));
     }
 
     @Override
@@ -107,8 +293,11 @@ public class FileSystemReader implements RepositoryReader {
         Path path = Paths.get(docId);
         BinaryDetails bd = new BinaryDetails(docId, InputStream.nullInputStream(), RepositoryUtils.getMimeTypeForFileName(path.getFileName().toString()));
         try {
-            bd.setInputStream(getFileInputStream(docId));
-        } catch (FileNotFoundException e) {
+            BasicFileAttributes attributes = readAttributes(path);
+            bd.setInputStream(openBinary(docId, attributes, parameters));
+            bytesRead.record(attributes.size());
+        } catch (IOException e) {
+            recordError("getDocumentBinary");
             bd.setInputStream(InputStream.nullInputStream());
             getLogger().error("Error accessing directory " + docId + " when getting binary details. Setting InputStream to nullInputStream.", e);
         }
@@ -126,8 +315,10 @@ public class FileSystemReader implements RepositoryReader {
 
         try {
             Files.delete(document.toPath());
+            attributeCache.remove(document.toPath());
             getLogger().debug("Deleted " + docId);
         } catch (Exception e) {
+            recordError("deleteDocument");
             getLogger().error("Could not delete " + docId + ":\n" + e.getMessage(), e);
             throw e;
         }
@@ -136,7 +327,7 @@ public class FileSystemReader implements RepositoryReader {
     private Document documentFromPath(Path path, CustomParameters parameters) {
         BasicFileAttributes attributes;
         try {
-            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            attributes = readAttributes(path);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -144,7 +335,16 @@ public class FileSystemReader implements RepositoryReader {
         if (!inRange(attributes.lastModifiedTime().toMillis(), parameters)) {
             return null;
         }
+        return documentFromPath(path, attributes, null);
+    }
 
+    /**
+     * Builds the document for a file that has already passed the walk's date and crawl journal filters.
+     *
+     * @param attributes the file's attributes, as already read while walking the source folder
+     */
+    @VisibleForTesting
+    Document documentFromPath(Path path, BasicFileAttributes attributes, CrawlJournal journal) {
         // remove drive letter from parent path. specific to Windows FileSystem implementations
         String root = Objects.toString(path.getRoot(), "");
         String parentPath = Objects.toString(path.getParent(), "");
@@ -155,8 +355,9 @@ public class FileSystemReader implements RepositoryReader {
         }
 
         String docId = path.toString();
+        localDocuments.put(docId, path, attributes);
 
-        return Document.newBuilder()
+        Document document = Document.newBuilder()
             .setId(docId)
             .setName(path.getFileName().toString())
             .setCreatedDate(RepositoryUtils.fromInstant(attributes.creationTime().toInstant()))
@@ -165,14 +366,127 @@ public class FileSystemReader implements RepositoryReader {
             .setSize(attributes.size())
             .setParentPath(parentPath)
             .build();
+
+        if (journal != null) {
+            journal.recordEmitted(path, attributes);
+        }
+        return document;
+    }
+
+    private CrawlJournal openCrawlJournal(Path directory, CustomParameters parameters) throws IOException {
+        if (!parameters.getOrDefault("incrementalCrawl", ValueUtils.booleanValue(false)).getBoolean()) {
+            return null;
+        }
+
+        String journalPath = parameters.getOrDefault("crawlJournalPath", ValueUtils.stringValue("")).getString();
+        if (journalPath.isBlank()) {
+            getLogger().warn("Incremental crawl is enabled but no crawl journal path is set. Crawling " + directory + " in full.");
+            return null;
+        }
+
+        boolean skipUnchangedFolders = parameters.getOrDefault("skipUnchangedFolders", ValueUtils.booleanValue(false)).getBoolean();
+        return CrawlJournal.open(Paths.get(journalPath), directory, skipUnchangedFolders);
+    }
+
+    private InputStream openBinary(String docId, BasicFileAttributes attributes, CustomParameters parameters) throws IOException {
+        InputStream in = getFileInputStream(docId);
+        return computeDigests(parameters) ? digesting(docId, attributes, in) : in;
+    }
+
+    private boolean computeDigests(CustomParameters parameters) {
+        return parameters.getOrDefault("computeDigests", ValueUtils.booleanValue(false)).getBoolean();
+    }
+
+    private InputStream digesting(String docId, BasicFileAttributes attributes, InputStream in) {
+        return contentDigests.digesting(Paths.get(docId), attributes, in);
+    }
+
+    /**
+     * Starts watching the source folder the first time it is crawled with this journal, so that later crawls only
+     * list the folders that changed in between. The crawl registers the folders it walks with the watch. Returns {@code null} if the folder is not to be, or cannot be, watched.
+     */
+    private WatchedChanges.Crawl beginWatchedCrawl(Path directory, CustomParameters parameters, CrawlJournal journal) {
+        if (!parameters.getOrDefault("watchSourceFolder", ValueUtils.booleanValue(false)).getBoolean()) {
+            return null;
+        }
+
+        Path root = directory.toAbsolutePath().normalize();
+        String key = parameters.get("crawlJournalPath").getString() + File.pathSeparator + root;
+        WatchedChanges changes = watchedSources.get(key);
+        if (changes == null) {
+            synchronized (watchedSources) {
+                changes = watchedSources.get(key);
+                if (changes == null) {
+                    changes = new WatchedChanges(root);
+                    try {
+                        SourceWatcher watcher = SourceWatcher.start(root, changes);
+                        changes.setWatcher(watcher);
+                        sourceWatchers.add(watcher);
+                    } catch (IOException e) {
+                        getLogger().warn("Could not watch " + root + " for changes. Crawling it using the journal alone.", e);
+                        return null;
+                    }
+                    watchedSources.put(key, changes);
+                }
+            }
+        }
+        return changes.beginCrawl(journal);
+    }
+
+    @PreDestroy
+    void close() {
+        for (SourceWatcher watcher = sourceWatchers.poll(); watcher != null; watcher = sourceWatchers.poll()) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                getLogger().warn("Failed to stop watching " + watcher.root(), e);
+            }
+        }
+        watchedSources.clear();
+        metadataScheduler.dispose();
+        metadataExtractors.close();
+    }
+
+    private void closeCrawlJournal(CrawlJournal journal) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private BasicFileAttributes readAttributes(Path path) throws IOException {
+        return FileTreeWalker.readAttributes(path, statTimer);
+    }
+
+    private void recordError(String operation) {
+        registry.counter("filesystem.reader.errors", "operation", operation).increment();
     }
 
     private boolean inRange(long lastModifiedTime, CustomParameters parameters) {
-        return lastModifiedTime >= parameters.getStartTimeOfDateFilter() && lastModifiedTime <= parameters.getEndTimeOfDateFilter();
+        return DateRangeFilter.inRange(lastModifiedTime, parameters.getStartTimeOfDateFilter(), parameters.getEndTimeOfDateFilter());
     }
 
     @VisibleForTesting
     InputStream getFileInputStream(String docId) throws FileNotFoundException {
         return new FileInputStream(Path.of(docId).toFile());
     }
+
+    /**
+     * A document in a batch that is not under the batch's root once links are resolved, or does not exist.
+     */
+    static final class OutsideRootException extends IOException {
+        OutsideRootException(String docId) {
+            super("Document is outside the search root: " + docId);
+        }
+    }
+
+    /**
+     * The metadata of one document in a batch, or the error reading it.
+     */
+    public record MetadataResult(String docId, Map<String, MetadataType> metadata, Exception error) {
+    }
 }
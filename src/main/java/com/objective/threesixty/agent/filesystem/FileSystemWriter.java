@@ -33,39 +33,138 @@ import com.objective.threesixty.MetadataType;
 import com.objective.threesixty.remoteagent.sdk.agent.AuthConnection;
 import com.objective.threesixty.remoteagent.sdk.agent.RepositoryWriter;
 import com.objective.threesixty.remoteagent.sdk.utils.CustomParameters;
+import com.objective.threesixty.remoteagent.sdk.utils.ValueUtils;
 import io.micrometer.common.util.StringUtils;
-import org.apache.commons.codec.binary.Hex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.BaseSubscriber;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.time.Instant;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Map;
-import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 @Component
 public class FileSystemWriter implements RepositoryWriter {
+    private static final String DEFAULT_CONTENT_STORE = ".content-store";
+    private static final long DEFAULT_GROUP_COMMIT_WINDOW_MS = 50;
+    private static final int DEFAULT_MAX_CONCURRENT_FILES = 64;
+    private static final int DEFAULT_IO_THREADS = 16;
+    private static final int DEFAULT_METADATA_THREADS = 4;
+    private static final String METADATA_SIDECAR = "sidecar";
+    private static final String METADATA_MANIFEST = "manifest";
+    private static final String METADATA_BINARY_MANIFEST = "binaryManifest";
+    static final String STAGING_SUFFIX = ".writing";
+    static final long STALE_STAGING_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final boolean CAN_FORCE_DIRECTORIES = File.separatorChar == '/';
+
+    private final ContentDigests contentDigests;
+    private final LocalDocuments localDocuments;
+    private final DirectoryCache directories = new DirectoryCache();
+    // folders already cleared of stale staging files; one entry per folder written to atomically, never evicted, so
+    // no folder is swept twice
+    private final Set<Path> sweptDirectories = ConcurrentHashMap.newKeySet();
+    private final WritePipeline writePipeline;
+    private final MetadataSidecarWriter metadataWriter;
+    private final Map<GroupCommitSettings, GroupCommitter> groupCommitters = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+    private final Timer writeTimer;
+    private final DistributionSummary bytesWritten;
+    private final Counter localCopies;
+    private final Timer fileForceTimer;
+    private final Timer groupForceTimer;
+
+    public FileSystemWriter() {
+        this(new ContentDigests(), new LocalDocuments(), DEFAULT_MAX_CONCURRENT_FILES, DEFAULT_IO_THREADS, DEFAULT_METADATA_THREADS,
+            MetadataSidecarWriter.DEFAULT_SEGMENT_MB, Metrics.globalRegistry);
+    }
+
+    @Autowired
+    FileSystemWriter(ContentDigests contentDigests,
+                     LocalDocuments localDocuments,
+                     @Value("${filesystem.writer.max-concurrent-files:" + DEFAULT_MAX_CONCURRENT_FILES + "}") int maxConcurrentFiles,
+                     @Value("${filesystem.writer.io-threads:" + DEFAULT_IO_THREADS + "}") int ioThreads,
+                     @Value("${filesystem.writer.metadata-threads:" + DEFAULT_METADATA_THREADS + "}") int metadataThreads,
+                     @Value("${filesystem.writer.manifest-segment-mb:" + MetadataSidecarWriter.DEFAULT_SEGMENT_MB + "}") int manifestSegmentMb,
+                     MeterRegistry registry) {
+        this(contentDigests, localDocuments, new WritePipeline(maxConcurrentFiles, ioThreads, registry),
+            new MetadataSidecarWriter(metadataThreads, manifestSegmentMb * 1024L * 1024L), registry);
+    }
+
+    FileSystemWriter(ContentDigests contentDigests, WritePipeline writePipeline, MetadataSidecarWriter metadataWriter, MeterRegistry registry) {
+        this(contentDigests, new LocalDocuments(), writePipeline, metadataWriter, registry);
+    }
+
+    FileSystemWriter(ContentDigests contentDigests, LocalDocuments localDocuments, WritePipeline writePipeline,
+                     MetadataSidecarWriter metadataWriter, MeterRegistry registry) {
+        this.contentDigests = contentDigests;
+        this.localDocuments = localDocuments;
+        this.writePipeline = writePipeline;
+        this.metadataWriter = metadataWriter;
+        this.registry = registry;
+        this.writeTimer = Timer.builder("filesystem.writer.write")
+            .description("Time to write a document's content and metadata, once it has a write slot")
+            .register(registry);
+        this.bytesWritten = DistributionSummary.builder("filesystem.writer.bytes.written")
+            .description("Bytes of content written for each document")
+            .baseUnit("bytes")
+            .register(registry);
+        this.localCopies = Counter.builder("filesystem.writer.local.copies")
+            .description("Documents copied straight from a file this agent's reader returned them from")
+            .register(registry);
+        this.fileForceTimer = forceTimer(registry, "file");
+        this.groupForceTimer = forceTimer(registry, "group");
+    }
+
+    private static Timer forceTimer(MeterRegistry registry, String mode) {
+        return Timer.builder("filesystem.writer.fsync")
+            .description("Latency of forcing written content to storage, per file or per group commit batch")
+            .tag("mode", mode)
+            .register(registry);
+    }
+
     @Override
     public Mono<Document> writeDocument(Document doc, Map<String, MetadataType> metadata, Flux<DataBuffer> binaries, CustomParameters params, AuthConnection authConn) {
         File outputFile = createOutputFile(doc, params);
 
-        return Mono.fromCallable(() -> ensureFileExists(outputFile))
-            .subscribeOn(Schedulers.boundedElastic())
-            .flatMap(file -> writeFileContent(file, binaries, metadata, params, doc))
-            .doOnError(e -> getLogger().error("Error processing file: " + outputFile.getPath(), e))
+        // an atomic write stages the content in a temp file next to the output file, which is created instead of it
+        boolean atomic = atomicWrites(params);
+        return writePipeline.submit(timed(writeTimer, Mono.fromCallable(() -> atomic ? stage(outputFile) : ensureFileExists(outputFile.toPath()))
+                .flatMap(created -> writeFileContent(outputFile, atomic ? created : null, binaries, metadata, params, doc))))
+            .doOnError(e -> {
+                recordError("writeDocument");
+                getLogger().error("Error processing file: " + outputFile.getPath(), e);
+            })
             .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
     }
 
@@ -77,26 +176,330 @@ public class FileSystemWriter implements RepositoryWriter {
         ).toFile();
     }
 
-    private Mono<Document> writeFileContent(File file, Flux<DataBuffer> binaries, Map<String, MetadataType> metadata, CustomParameters params, Document doc) {
-        return Mono.using(
-            () -> AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE),
-            channel -> DataBufferUtils.write(binaries, channel)
-                .onErrorResume(e -> handleErrorDuringWrite(file, e))
-                .then(flushFile(channel, file))
-                .doFinally(signal -> writeMetadata(file, metadata, params))
-                .then(createUpdatedDocument(file, doc)),
-            this::closeFileChannel
-        );
+    /**
+     * @param staged the temp file to write the content to and then move into place, or {@code null} to write it to
+     *               {@code file} directly
+     */
+    private Mono<Document> writeFileContent(File file, Path staged, Flux<DataBuffer> binaries, Map<String, MetadataType> metadata, CustomParameters params, Document doc) {
+        ContentStore store = contentStore(params);
+        ContentDigests.Digester digester = store != null || params.getOrDefault("computeDigests", ValueUtils.booleanValue(false)).getBoolean()
+            ? new ContentDigests.Digester()
+            : null;
+        long[] length = new long[1];
+        Flux<DataBuffer> content = binaries.doOnNext(buffer -> {
+            length[0] += buffer.readableByteCount();
+            writePipeline.recordBytes(buffer.readableByteCount());
+            if (digester != null) {
+                digest(digester, buffer);
+            }
+        });
+        GroupCommitter committer = groupCommitter(params);
+        // content that passes through the agent anyway cannot be digested without reading it
+        boolean copyLocalSources = params.getOrDefault("copyLocalSources", ValueUtils.booleanValue(false)).getBoolean();
+        if (copyLocalSources) {
+            localDocuments.enable();
+        }
+        LocalDocuments.Source localSource = digester == null && copyLocalSources ? localDocuments.get(doc.getId()) : null;
+
+        // with a content store, the binary is staged there and the output file becomes a link to the stored blob
+        return Mono.fromCallable(() -> store != null ? store.newTempFile() : staged != null ? staged : file.toPath())
+            .flatMap(target -> (localSource != null ? copyLocalContent(localSource, doc, target, file, committer == null, length) : Mono.just(false))
+                .flatMap(copied -> copied
+                    ? cancelContent(binaries)
+                    : Mono.using(
+                        () -> AsynchronousFileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE),
+                        channel -> DataBufferUtils.write(content, channel)
+                            .onErrorResume(e -> handleErrorDuringWrite(file, e))
+                            .then(committer == null ? flushUnlessStored(channel, file, store, digester) : Mono.empty()),
+                        this::closeFileChannel
+                    ).then())
+                // nothing is left open while waiting for the batch, so the write slot can go to the next document
+                .then(committer != null ? writePipeline.releaseSlot().then(commitUnlessStored(committer, target, store, digester)) : Mono.empty())
+                .then(store != null ? storeContent(store, target, file, digester)
+                    : staged != null ? moveIntoPlace(staged, file, committer == null) : Mono.empty())
+                .doOnError(e -> {
+                    if (store != null) {
+                        store.discard(target);
+                    } else if (staged != null) {
+                        discardStagingFile(staged);
+                    }
+                }))
+            .then(recordDigests(file, digester))
+            .doOnSuccess(ignored -> bytesWritten.record(length[0]))
+            // metadata is written even if the content could not be, unless the write is atomic, when the previous
+            // content and metadata are both left as they were
+            .onErrorResume(e -> staged != null ? Mono.error(e) : writeMetadata(file, metadata, params, false)
+                .onErrorResume(metadataError -> Mono.empty())
+                .then(Mono.error(e)))
+            .then(writeMetadata(file, metadata, params, staged != null))
+            .then(createUpdatedDocument(file, doc));
+    }
+
+    /**
+     * Atomic writes do not apply with a content store, where content is already staged and then linked into place.
+     */
+    private boolean atomicWrites(CustomParameters params) {
+        return params.getOrDefault("atomicWrites", ValueUtils.booleanValue(false)).getBoolean()
+            && !params.getOrDefault("deduplicateContent", ValueUtils.booleanValue(false)).getBoolean();
+    }
+
+    private static Path stagingFile(File file) {
+        return file.toPath().resolveSibling("." + file.getName() + "." + UUID.randomUUID() + STAGING_SUFFIX);
+    }
+
+    /**
+     * Copies a document this agent's reader returned from its local file, without its content passing through the SDK
+     * or the Java heap. {@link FileChannel#transferTo} lets the operating system move the bytes, using
+     * {@code sendfile} or {@code copy_file_range} on Linux where the JDK and kernel support them.
+     * <p>
+     * The content is only copied if it must be the same as the streamed content: the document still has the size the
+     * reader returned, and the file has the same size and modified time as when it was read, both before and after the
+     * copy. Otherwise, or if the file can no longer be read, the streamed content is written instead.
+     *
+     * @param force force the copy to storage, when it is not left to a group commit
+     * @return whether the content was copied
+     */
+    private Mono<Boolean> copyLocalContent(LocalDocuments.Source source, Document doc, Path target, File file, boolean force, long[] length) {
+        return Mono.fromCallable(() -> {
+            if (doc.getSize() != source.size() || !isUnchanged(source)) {
+                return false;
+            }
+            try (FileChannel in = FileChannel.open(source.file(), StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+                long size = source.size();
+                long position = 0;
+                while (position < size) {
+                    long transferred = in.transferTo(position, size - position, out);
+                    if (transferred <= 0) {
+                        break; // the source was truncated while being copied
+                    }
+                    position += transferred;
+                }
+                if (position != size || !isUnchanged(source)) {
+                    // changed while being copied, so the streamed content replaces the copy
+                    out.truncate(0);
+                    return false;
+                }
+                length[0] = position;
+                writePipeline.recordBytes(position);
+                if (force) {
+                    long start = System.nanoTime();
+                    try {
+                        out.force(true);
+                    } finally {
+                        fileForceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error copying " + source.file() + " to: " + file.getPath(), e);
+            }
+            localCopies.increment();
+            return true;
+        }).subscribeOn(writePipeline.scheduler());
+    }
+
+    /**
+     * Subscribes to content that is not needed and cancels it before requesting any, so the source can stop sending it.
+     * Anything the source delivers regardless is released.
+     */
+    private static Mono<Void> cancelContent(Flux<DataBuffer> binaries) {
+        return Mono.fromRunnable(() -> binaries.subscribe(new BaseSubscriber<DataBuffer>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                cancel();
+            }
+
+            @Override
+            protected void hookOnNext(DataBuffer buffer) {
+                DataBufferUtils.release(buffer);
+            }
+        }));
+    }
+
+    private static boolean isUnchanged(LocalDocuments.Source source) {
+        try {
+            return source.isUnchanged(Files.readAttributes(source.file(), BasicFileAttributes.class));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param forceDirectory force the folder after the move, so that the file is durable under its new name too
+     */
+    private Mono<Object> moveIntoPlace(Path staged, File file, boolean forceDirectory) {
+        return Mono.fromRunnable(() -> {
+            try {
+                Files.move(staged, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                if (forceDirectory) {
+                    forceDirectory(staged.getParent());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error moving written content into place: " + file.getPath(), e);
+            }
+        }).subscribeOn(writePipeline.scheduler());
+    }
+
+    /**
+     * Windows cannot open a folder as a channel, so folders are only forced elsewhere.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        if (!CAN_FORCE_DIRECTORIES) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Creates the staging file for an atomic write, first clearing stale staging files out of its folder if this is
+     * the first atomic write to it.
+     */
+    private Path stage(File outputFile) throws IOException {
+        Path staged = ensureFileExists(stagingFile(outputFile));
+        Path directory = staged.getParent().toAbsolutePath().normalize();
+        if (sweptDirectories.add(directory)) {
+            removeStaleStagingFiles(directory);
+        }
+        return staged;
+    }
+
+    /**
+     * Deletes the staging files in a folder that were last written to over an hour ago, which a crash or a killed
+     * agent left behind. Newer ones may belong to a write still in progress.
+     */
+    private void removeStaleStagingFiles(Path directory) {
+        long staleBefore = System.currentTimeMillis() - STALE_STAGING_MILLIS;
+        try (DirectoryStream<Path> staged = Files.newDirectoryStream(directory, ".*" + STAGING_SUFFIX)) {
+            for (Path file : staged) {
+                try {
+                    if (Files.getLastModifiedTime(file, LinkOption.NOFOLLOW_LINKS).toMillis() < staleBefore) {
+                        Files.deleteIfExists(file);
+                        getLogger().info("Deleted stale staging file: " + file);
+                    }
+                } catch (IOException e) {
+                    getLogger().warn("Could not delete stale staging file: " + file, e);
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            getLogger().warn("Could not check for stale staging files in " + directory, e);
+        }
+    }
+
+    private void discardStagingFile(Path staged) {
+        try {
+            Files.deleteIfExists(staged);
+        } catch (IOException e) {
+            getLogger().warn("Could not delete staged content: " + staged, e);
+        }
+    }
+
+    private ContentStore contentStore(CustomParameters params) {
+        if (!params.getOrDefault("deduplicateContent", ValueUtils.booleanValue(false)).getBoolean()) {
+            return null;
+        }
+        String storePath = params.getOrDefault("contentStorePath", ValueUtils.stringValue("")).getString();
+        return new ContentStore(storePath.isBlank()
+            ? Paths.get(params.get("outFilePath").getString(), DEFAULT_CONTENT_STORE)
+            : Paths.get(storePath), directories);
+    }
+
+    /**
+     * @return the group committer for the job's settings, or {@code null} if each file is to be forced as it is written.
+     * Batches are sized like the write pipeline by default, as that many files can finish writing at once.
+     */
+    private GroupCommitter groupCommitter(CustomParameters params) {
+        if (!params.getOrDefault("groupCommit", ValueUtils.booleanValue(false)).getBoolean()) {
+            return null;
+        }
+        GroupCommitSettings settings = new GroupCommitSettings(
+            NumericParameters.longParameter(params, "groupCommitWindowMs", DEFAULT_GROUP_COMMIT_WINDOW_MS),
+            NumericParameters.intParameter(params, "groupCommitMaxFiles", writePipeline.maxConcurrentWrites()));
+        return groupCommitters.computeIfAbsent(settings, s -> new GroupCommitter(s.windowMillis(), s.maxFiles(),
+            writePipeline.scheduler(), groupForceTimer));
+    }
+
+    /**
+     * Forces any files still waiting for a group commit batch, and closes the binary metadata manifests.
+     */
+    @PreDestroy
+    void close() {
+        groupCommitters.values().forEach(GroupCommitter::close);
+        groupCommitters.clear();
+        try {
+            metadataWriter.close();
+        } catch (IOException e) {
+            getLogger().warn("Failed to close metadata manifests", e);
+        }
     }
 
     private Mono<Object> flushFile(AsynchronousFileChannel channel, File file) {
         return Mono.defer(() -> Mono.fromRunnable(() -> {
+            long start = System.nanoTime();
             try {
                 channel.force(true); // Ensure data is flushed to disk
             } catch (IOException e) {
                 throw new UncheckedIOException("Error forcing file channel: " + file.getPath(), e);
+            } finally {
+                fileForceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }).subscribeOn(writePipeline.scheduler()));
+    }
+
+    /**
+     * Content that is already in the store is discarded rather than kept, so it does not need to be durable.
+     */
+    private Mono<Object> flushUnlessStored(AsynchronousFileChannel channel, File file, ContentStore store, ContentDigests.Digester digester) {
+        return Mono.defer(() -> isStored(store, digester) ? Mono.empty() : flushFile(channel, file));
+    }
+
+    private Mono<Void> commitUnlessStored(GroupCommitter committer, Path target, ContentStore store, ContentDigests.Digester digester) {
+        return Mono.defer(() -> isStored(store, digester) ? Mono.empty() : committer.commit(target));
+    }
+
+    private boolean isStored(ContentStore store, ContentDigests.Digester digester) {
+        return store != null && store.contains(digester.finish().sha256());
+    }
+
+    private Mono<Object> storeContent(ContentStore store, Path tempFile, File file, ContentDigests.Digester digester) {
+        return Mono.fromRunnable(() -> {
+            String sha256 = digester.finish().sha256();
+            try {
+                if (!store.commit(tempFile, sha256)) {
+                    getLogger().debug("Content of " + file.getPath() + " is already stored as " + sha256);
+                }
+                store.link(sha256, file.toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error storing content of: " + file.getPath(), e);
+            }
+        }).subscribeOn(writePipeline.scheduler());
+    }
+
+    private void digest(ContentDigests.Digester digester, DataBuffer buffer) {
+        // the buffers are views, so the data buffer's read position is left for the file write
+        try (DataBuffer.ByteBufferIterator buffers = buffer.readableByteBuffers()) {
+            while (buffers.hasNext()) {
+                digester.update(buffers.next());
             }
-        }).subscribeOn(Schedulers.boundedElastic()));
+        }
+    }
+
+    private Mono<Object> recordDigests(File file, ContentDigests.Digester digester) {
+        if (digester == null) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(() -> {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                if (attributes.size() == digester.length()) {
+                    contentDigests.put(file.toPath(), attributes, digester.finish());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading attributes of: " + file.getPath(), e);
+            }
+        });
     }
 
     private Mono<Document> createUpdatedDocument(File file, Document doc) {
@@ -119,38 +522,67 @@ public class FileSystemWriter implements RepositoryWriter {
         return Mono.error(e);
     }
 
-    private void writeMetadata(File file, Map<String, MetadataType> metadata, CustomParameters params) {
-        try {
-            writeMetadataToXml(file, metadata, params);
-        } catch (IOException e) {
-            throw new UncheckedIOException("Failed to write metadata for: " + file.getPath(), e);
-        }
+    /**
+     * @param atomic replace a sidecar file in a single rename, rather than overwriting it in place
+     */
+    private Mono<Void> writeMetadata(File file, Map<String, MetadataType> metadata, CustomParameters params, boolean atomic) {
+        return Mono.defer(() -> {
+            String output = params.getOrDefault("metadataOutput", ValueUtils.stringValue(METADATA_SIDECAR)).getString();
+            Timer timer = registry.timer("filesystem.writer.metadata", "output", output);
+            if (METADATA_MANIFEST.equals(output)) {
+                return timed(timer, metadataWriter.appendToManifest(file.toPath(), metadata));
+            } else if (METADATA_BINARY_MANIFEST.equals(output)) {
+                return timed(timer, metadataWriter.appendToBinaryManifest(Paths.get(params.get("outFilePath").getString()), file.toPath(), metadata));
+            }
+            boolean isXml = params.getOrDefault("metadataAsXml", ValueUtils.booleanValue(true)).getBoolean();
+            return timed(timer, metadataWriter.writeSidecar(Paths.get(createMetadataFilePath(file, isXml)), metadata, isXml, atomic));
+        }).doOnError(e -> {
+            recordError("writeMetadata");
+            getLogger().error("Failed to write metadata for: " + file.getPath(), e);
+        });
     }
 
-    private File ensureFileExists(File outputFile) throws IOException {
-        if (!outputFile.getParentFile().exists() && !outputFile.getParentFile().mkdirs()) {
-            throw new IOException("Failed to create directories: " + outputFile.getParentFile().getPath());
-        } else if (!outputFile.exists() && !outputFile.createNewFile()) {
-            throw new IOException("Failed to create file: " + outputFile.getPath());
-        }
-        return outputFile;
+    /**
+     * Records how long {@code mono} takes from subscription until it terminates or is cancelled.
+     */
+    private <T> Mono<T> timed(Timer timer, Mono<T> mono) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return mono.doOnTerminate(() -> sample.stop(timer))
+                .doOnCancel(() -> sample.stop(timer));
+        });
     }
 
-    private void writeMetadataToXml(File file, Map<String, MetadataType> metadata, CustomParameters params) throws IOException {
-        String metadataFilePath = createMetadataFilePath(file, params);
-        Properties props = buildMetadataProperties(metadata);
+    private void recordError(String operation) {
+        registry.counter("filesystem.writer.errors", "operation", operation).increment();
+    }
 
-        try (FileOutputStream fos = new FileOutputStream(metadataFilePath)) {
-            if (params.get("metadataAsXml").getBoolean()) {
-                props.storeToXML(fos, "---No Comment---");
-            } else {
-                props.store(fos, "---No Comment---");
-            }
+    /**
+     * Creates the file, and its folder unless this writer has already created it, in a single call when the folder is
+     * known to exist.
+     */
+    private Path ensureFileExists(Path file) throws IOException {
+        directories.createDirectories(file.getParent());
+        try {
+            createIfMissing(file);
+        } catch (NoSuchFileException e) {
+            // the folder was removed after it was created
+            directories.invalidate(file.getParent());
+            directories.createDirectories(file.getParent());
+            createIfMissing(file);
         }
+        return file;
     }
 
-    private String createMetadataFilePath(File file, CustomParameters params) {
-        boolean isXml = params.get("metadataAsXml").getBoolean();
+    private static void createIfMissing(Path file) throws IOException {
+        try {
+            Files.createFile(file);
+        } catch (FileAlreadyExistsException e) {
+            // replaced by the write
+        }
+    }
+
+    private String createMetadataFilePath(File file, boolean isXml) {
         String fileName = getXMLFileName(file, true, "", "", isXml);
         return file.getParent() + File.separator + fileName;
     }
@@ -175,45 +607,14 @@ public class FileSystemWriter implements RepositoryWriter {
         return sb.toString();
     }
 
-    private Properties buildMetadataProperties(Map<String, MetadataType> metadata) {
-        Properties props = new Properties();
-        for (Map.Entry<String, MetadataType> entry : metadata.entrySet()) {
-            props.put(entry.getKey(), extractMetadataStringValue(entry.getKey(), entry.getValue()));
-        }
-        return props;
-    }
-
     @VisibleForTesting
     String extractMetadataStringValue(String key, MetadataType value) {
-        if (value.hasArray()) {
-            return value.getArray().toString();
-        } else if (value.hasBinary()) {
-            return Hex.encodeHexString(value.getBinary().toByteArray());
-        } else if (value.hasBoolean()) {
-            return String.valueOf(value.getBoolean());
-        } else if (value.hasDouble()) {
-            return String.valueOf(value.getDouble());
-        } else if (value.hasDecimal()) {
-            return String.valueOf(value.getDecimal());
-        } else if (value.hasDateTime()) {
-            return convertTimestampToUTCString(value.getDateTime());
-        } else if (value.hasInteger()) {
-            return String.valueOf(value.getInteger());
-        } else if (value.hasLargeString()) {
-            return value.getLargeString();
-        } else if (value.hasLong()) {
-            return String.valueOf(value.getLong());
-        } else if (value.hasString()) {
-            return value.getString();
-        }
-        getLogger().warn("Incompatible type. No value found for metadata key " + key);
-        return null;
+        return MetadataEncoder.stringValue(key, value);
     }
 
     @VisibleForTesting
     String convertTimestampToUTCString(Timestamp timestamp) {
-        Instant instant = Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
-        return DateTimeFormatter.ISO_INSTANT.withZone(ZoneOffset.UTC).format(instant);
+        return MetadataEncoder.timestampToUTCString(timestamp);
     }
 
     @VisibleForTesting
@@ -228,4 +629,7 @@ public class FileSystemWriter implements RepositoryWriter {
 
         return path;
     }
+
+    private record GroupCommitSettings(long windowMillis, int maxFiles) {
+    }
 }
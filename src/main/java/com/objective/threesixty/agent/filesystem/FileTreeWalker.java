@@ -0,0 +1,303 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import io.micrometer.core.instrument.Timer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily walks a directory tree depth first, returning regular files in the same order as {@link Files#walk}.
+ * Unlike {@link Files#walk}, a {@link Listener} decides whether each directory is entered, and is told once a
+ * directory has been completely listed, so that unchanged subtrees can be skipped without being read.
+ * <p>
+ * Like {@link Files#walkFileTree}, each entry's attributes are read once and handed on with it, so callers never need
+ * to read them again. {@link Files#walkFileTree} itself only pushes entries to a visitor, so cannot back a lazily
+ * consumed stream.
+ */
+final class FileTreeWalker implements Iterator<FileTreeWalker.FileEntry>, Closeable {
+    static final Listener ENTER_ALL = new Listener() {
+    };
+
+    private final Deque<OpenDirectory> stack = new ArrayDeque<>();
+    private final Listener listener;
+    private final Timer statTimer;
+    private FileEntry next;
+
+    private FileTreeWalker(Path root, Listener listener, Timer statTimer) {
+        this.listener = listener;
+        this.statTimer = statTimer;
+        try {
+            enter(root, readAttributes(root, statTimer));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Walks {@code root} on the calling thread if {@code parallelism} is 1 or less, otherwise on a
+     * {@link ParallelFileTreeWalker} with that many workers.
+     */
+    static Stream<FileEntry> walk(Path root, int parallelism, Listener listener) {
+        return walk(root, parallelism, listener, null);
+    }
+
+    /**
+     * @param statTimer records the latency of every attribute read made by the walk, or {@code null}
+     */
+    static Stream<FileEntry> walk(Path root, int parallelism, Listener listener, Timer statTimer) {
+        if (parallelism > 1) {
+            return ParallelFileTreeWalker.walk(root, parallelism, listener, statTimer);
+        }
+        return walk(root, listener, statTimer);
+    }
+
+    static Stream<FileEntry> walk(Path root, Listener listener) {
+        return walk(root, listener, null);
+    }
+
+    private static Stream<FileEntry> walk(Path root, Listener listener, Timer statTimer) {
+        FileTreeWalker walker = new FileTreeWalker(root, listener, statTimer);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(walker, Spliterator.DISTINCT | Spliterator.NONNULL), false)
+            .onClose(walker::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public FileEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        FileEntry result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void close() {
+        while (!stack.isEmpty()) {
+            closeDirectory(stack.pop());
+        }
+    }
+
+    /**
+     * Returns the entry if it is a regular file, or a symbolic link to one, otherwise {@code null}. Links are
+     * followed for files, like {@link Files#isRegularFile}, but never for directories, like {@link Files#walk}.
+     *
+     * @param attributes the entry's attributes, read without following links
+     */
+    static FileEntry regularFile(Path entry, BasicFileAttributes attributes, Timer statTimer) {
+        if (attributes.isRegularFile()) {
+            return new FileEntry(entry, attributes);
+        } else if (attributes.isSymbolicLink()) {
+            try {
+                BasicFileAttributes target = readAttributes(entry, statTimer);
+                return target.isRegularFile() ? new FileEntry(entry, target) : null;
+            } catch (IOException e) {
+                return null; // broken link
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the entry's attributes, recording how long the read took if {@code statTimer} is set.
+     */
+    static BasicFileAttributes readAttributes(Path entry, Timer statTimer, LinkOption... options) throws IOException {
+        if (statTimer == null) {
+            return Files.readAttributes(entry, BasicFileAttributes.class, options);
+        }
+        long start = System.nanoTime();
+        try {
+            return Files.readAttributes(entry, BasicFileAttributes.class, options);
+        } finally {
+            statTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private FileEntry advance() {
+        while (!stack.isEmpty()) {
+            OpenDirectory top = stack.peek();
+            Path entry;
+            try {
+                if (!top.entries().hasNext()) {
+                    stack.pop();
+                    closeDirectory(top);
+                    listener.postVisitDirectory(top.dir());
+                    continue;
+                }
+                entry = top.entries().next();
+            } catch (DirectoryIteratorException e) {
+                // the rest of the directory is skipped, and it is never reported complete
+                stack.pop();
+                closeDirectory(top);
+                visitFailed(top.dir(), e.getCause());
+                continue;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            BasicFileAttributes attributes;
+            try {
+                attributes = readAttributes(entry, statTimer, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e) {
+                visitFailed(entry, e);
+                continue;
+            }
+
+            if (attributes.isDirectory()) {
+                enter(entry, attributes);
+            } else {
+                FileEntry file = regularFile(entry, attributes, statTimer);
+                if (file != null && listener.visitFile(file.path(), file.attributes())) {
+                    return file;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void enter(Path dir, BasicFileAttributes attributes) {
+        try {
+            if (!listener.preVisitDirectory(dir, attributes)) {
+                return;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        DirectoryStream<Path> stream;
+        try {
+            stream = Files.newDirectoryStream(dir);
+        } catch (IOException e) {
+            visitFailed(dir, e);
+            return;
+        }
+        stack.push(new OpenDirectory(dir, stream, stream.iterator()));
+    }
+
+    private void visitFailed(Path path, IOException e) {
+        try {
+            listener.visitFailed(path, e);
+        } catch (IOException rethrown) {
+            throw new UncheckedIOException(rethrown);
+        }
+    }
+
+    private void closeDirectory(OpenDirectory directory) {
+        try {
+            directory.stream().close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Callbacks invoked as directories are entered and completed. Implementations used with a parallel walk are
+     * called from several threads at once.
+     */
+    interface Listener {
+        /**
+         * @return {@code false} to skip the directory and everything below it
+         */
+        default boolean preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+            return true;
+        }
+
+        /**
+         * @param attributes the file's attributes, following links
+         * @return {@code false} to leave the file out of the walk
+         */
+        default boolean visitFile(Path file, BasicFileAttributes attributes) {
+            return true;
+        }
+
+        /**
+         * Invoked instead of {@link #visitFile} when a listener wrapping this one leaves the file out of the walk.
+         */
+        default void fileExcluded(Path file) {
+        }
+
+        /**
+         * Invoked when a listener wrapping this one leaves out a directory this listener's {@link #preVisitDirectory}
+         * agreed to enter, so {@link #postVisitDirectory} will not be invoked for it.
+         */
+        default void directoryDeclined(Path dir) {
+        }
+
+        /**
+         * Invoked once every entry of the directory, and of the directories below it, has been returned.
+         * Not invoked if the walk is closed before the directory is complete, or if the directory could not be fully
+         * listed.
+         */
+        default void postVisitDirectory(Path dir) throws IOException {
+        }
+
+        /**
+         * Invoked if a directory cannot be listed, or an entry's attributes cannot be read. Unless this throws, the
+         * walk carries on without the rest of the directory, or without the entry.
+         *
+         * @throws IOException to end the walk with the error, which is the default
+         */
+        default void visitFailed(Path path, IOException e) throws IOException {
+            throw e;
+        }
+    }
+
+    /**
+     * A regular file found by the walk, with the attributes read while walking.
+     */
+    record FileEntry(Path path, BasicFileAttributes attributes) {
+    }
+
+    private record OpenDirectory(Path dir, DirectoryStream<Path> stream, Iterator<Path> entries) {
+    }
+}
@@ -0,0 +1,181 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes written files durable in batches, instead of forcing each file as soon as it has been written.
+ * <p>
+ * Files are queued after their channel is closed. A batch is forced once it holds {@code maxFiles} files, or
+ * {@code windowMillis} after its first file was queued, whichever comes first, and each file's {@link #commit} only
+ * completes once the force of its whole batch has finished. The files of a batch are forced in parallel on the given
+ * I/O scheduler, so a batch takes about as long as its slowest file, and by the time it is forced much of its data has
+ * usually already been written back.
+ */
+class GroupCommitter {
+    private final long windowMillis;
+    private final int maxFiles;
+    private final Scheduler ioScheduler;
+    private final Timer forceTimer;
+    private List<Pending> pending = new ArrayList<>();
+    private Disposable windowEnd;
+    private long batchNumber;
+
+    GroupCommitter(long windowMillis, int maxFiles, Scheduler ioScheduler) {
+        this(windowMillis, maxFiles, ioScheduler, null);
+    }
+
+    /**
+     * @param ioScheduler the scheduler to force files on
+     * @param forceTimer  records how long each batch takes to force, or {@code null}
+     */
+    GroupCommitter(long windowMillis, int maxFiles, Scheduler ioScheduler, Timer forceTimer) {
+        this.windowMillis = Math.max(1, windowMillis);
+        this.maxFiles = Math.max(1, maxFiles);
+        this.ioScheduler = ioScheduler;
+        this.forceTimer = forceTimer;
+    }
+
+    /**
+     * @return a {@code Mono} that completes once {@code file} has been forced to storage
+     */
+    Mono<Void> commit(Path file) {
+        return Mono.create(sink -> enqueue(new Pending(file, sink)));
+    }
+
+    /**
+     * Forces the files queued so far without waiting for the window to end, and stops the window's timer.
+     */
+    void close() {
+        force(takeBatch());
+    }
+
+    private void enqueue(Pending file) {
+        List<Pending> batch = null;
+        synchronized (this) {
+            pending.add(file);
+            if (pending.size() >= maxFiles) {
+                batch = takeBatch();
+            } else if (pending.size() == 1) {
+                long number = batchNumber;
+                // only takes the batch, so a shared timer thread is enough
+                windowEnd = Schedulers.parallel().schedule(() -> forceAtEndOfWindow(number), windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (batch != null) {
+            force(batch);
+        }
+    }
+
+    private void forceAtEndOfWindow(long batchNumber) {
+        List<Pending> batch;
+        synchronized (this) {
+            // the batch may already have been forced because it filled up
+            if (this.batchNumber != batchNumber) {
+                return;
+            }
+            // already run, so not to be disposed
+            windowEnd = null;
+            batch = takeBatch();
+        }
+        force(batch);
+    }
+
+    private synchronized List<Pending> takeBatch() {
+        List<Pending> batch = pending;
+        pending = new ArrayList<>();
+        batchNumber++;
+        if (windowEnd != null) {
+            windowEnd.dispose();
+            windowEnd = null;
+        }
+        return batch;
+    }
+
+    private void force(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        IOException[] errors = new IOException[batch.size()];
+        Flux.range(0, batch.size())
+            .flatMap(i -> Mono.fromRunnable(() -> errors[i] = force(batch.get(i).path())).subscribeOn(ioScheduler), batch.size())
+            .then()
+            .subscribe(null, e -> complete(batch, start, errors, e), () -> complete(batch, start, errors, null));
+    }
+
+    /**
+     * @return the error forcing the file, or {@code null}
+     */
+    private static IOException force(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+            return null;
+        } catch (IOException e) {
+            return e;
+        }
+    }
+
+    /**
+     * @param failure an error that stopped the batch being forced at all, such as the scheduler being disposed
+     */
+    private void complete(List<Pending> batch, long start, IOException[] errors, Throwable failure) {
+        // recorded before any commit completes, so the batch is counted by the time its callers carry on
+        if (forceTimer != null) {
+            forceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Pending file = batch.get(i);
+            if (failure != null) {
+                file.sink().error(failure);
+            } else if (errors[i] == null) {
+                file.sink().success();
+            } else {
+                file.sink().error(new UncheckedIOException("Error forcing file: " + file.path(), errors[i]));
+            }
+        }
+    }
+
+    private record Pending(Path path, MonoSink<Void> sink) {
+    }
+}
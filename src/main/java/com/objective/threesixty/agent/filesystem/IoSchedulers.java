@@ -0,0 +1,112 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the schedulers that the reader and writer run blocking file system calls on.
+ * <p>
+ * By default each is a bounded elastic scheduler with its own pool of platform threads. Setting the system property
+ * {@value #VIRTUAL_THREADS_PROPERTY} to {@code true} on Java 21 or later runs every task on a new virtual thread
+ * instead, which saves the pools' fixed thread counts but does not make file I/O unbounded. File reads and writes
+ * block the carrier thread under the virtual thread; the JDK compensates by adding carriers, but only up to
+ * {@code jdk.virtualThreadScheduler.maxPoolSize}, 256 by default, so that is about how many blocking calls can wait
+ * on a slow network file system at once. A virtual thread that blocks inside a {@code synchronized} block, such as the
+ * crawl journal's appends, also pins its carrier until the call returns. Callers still bound their own concurrency,
+ * such as the writer's maximum concurrent files. On older runtimes the property is ignored with a warning. The project
+ * still compiles for Java 17, so virtual threads are created through reflection.
+ */
+final class IoSchedulers {
+    static final String VIRTUAL_THREADS_PROPERTY = "filesystem.io.virtual-threads";
+    private static final Log logger = LogFactory.getLog(IoSchedulers.class);
+    private static final boolean VIRTUAL_THREADS = Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY) && checkVirtualThreads();
+
+    private IoSchedulers() {
+    }
+
+    /**
+     * @param threads the most platform threads to use, when not using virtual threads
+     */
+    static Scheduler newScheduler(int threads, String name) {
+        return newScheduler(threads, name, VIRTUAL_THREADS);
+    }
+
+    static Scheduler newScheduler(int threads, String name, boolean virtualThreads) {
+        if (virtualThreads) {
+            return Schedulers.fromExecutorService(newVirtualThreadExecutor(name), name);
+        }
+        return Schedulers.newBoundedElastic(Math.max(1, threads), Integer.MAX_VALUE, name, 60, true);
+    }
+
+    static boolean usingVirtualThreads() {
+        return VIRTUAL_THREADS;
+    }
+
+    static boolean virtualThreadsSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Equivalent to {@code Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory())}.
+     */
+    private static ExecutorService newVirtualThreadExecutor(String name) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, factory);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later", e);
+        }
+    }
+
+    private static boolean checkVirtualThreads() {
+        if (virtualThreadsSupported()) {
+            logger.info("Running file system I/O on virtual threads");
+            return true;
+        }
+        logger.warn("Ignoring " + VIRTUAL_THREADS_PROPERTY + ", as virtual threads need Java 21 or later, not "
+            + Runtime.version().feature());
+        return false;
+    }
+}
@@ -0,0 +1,96 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * IDs of the documents this agent's reader has returned, so that its writer can recognise content it could copy
+ * straight from the local file rather than receive through the SDK. The file's size and modified time when it was read
+ * are kept with it, so the writer can tell whether the file has changed since.
+ * <p>
+ * Nothing is remembered until the writer first writes a job with Copy Local Sources Directly, so that crawls pay
+ * nothing for the feature when it is not used. Documents read before then are streamed as usual.
+ * <p>
+ * A document ID is the path the reader found it at, built on the source's configured path, so it is relative if that
+ * path is. The writer looks documents up by the same ID, so the two always match. At most
+ * {@value #MAX_TRACKED_DOCUMENTS} are remembered, dropping the least recently used.
+ */
+@Component
+class LocalDocuments {
+    static final int MAX_TRACKED_DOCUMENTS = 100_000;
+
+    private final Map<String, Source> documents = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Source> eldest) {
+            return size() > MAX_TRACKED_DOCUMENTS;
+        }
+    };
+
+    private volatile boolean enabled;
+
+    /**
+     * Starts remembering the documents the reader returns, for as long as the agent runs.
+     */
+    void enable() {
+        enabled = true;
+    }
+
+    void put(String docId, Path file, BasicFileAttributes attributes) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            documents.put(docId, new Source(file, attributes.size(), attributes.lastModifiedTime()));
+        }
+    }
+
+    /**
+     * @return the file the reader returned the document from, or {@code null} if it did not
+     */
+    synchronized Source get(String docId) {
+        return documents.get(docId);
+    }
+
+    /**
+     * A file the reader returned, as it was when read.
+     */
+    record Source(Path file, long size, FileTime lastModified) {
+        /**
+         * Whether the file still has the size and modified time it was read with.
+         */
+        boolean isUnchanged(BasicFileAttributes attributes) {
+            return attributes.size() == size && attributes.lastModifiedTime().equals(lastModified);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detects the MIME type of a file from the magic bytes at the start of its content, as {@code detectedMimeType},
+ * independently of its name. Office Open XML documents are told apart by the names of the first entries in the zip.
+ * Nothing is returned for content that is not recognised.
+ */
+final class MagicMimeTypeExtractor implements MetadataExtractor {
+    static final int HEADER_BYTES = 4096;
+    static final String ZIP = "application/zip";
+
+    private static final List<Magic> MAGIC = List.of(
+        new Magic(0, "%PDF-", "application/pdf"),
+        new Magic(0, new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}, "image/png"),
+        new Magic(0, new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}, "image/jpeg"),
+        new Magic(0, "GIF87a", "image/gif"),
+        new Magic(0, "GIF89a", "image/gif"),
+        new Magic(0, new byte[]{'I', 'I', 42, 0}, "image/tiff"),
+        new Magic(0, new byte[]{'M', 'M', 0, 42}, "image/tiff"),
+        new Magic(8, "WEBP", "image/webp"),
+        new Magic(4, "ftyp", "video/mp4"),
+        new Magic(0, "ID3", "audio/mpeg"),
+        new Magic(0, new byte[]{(byte) 0x1F, (byte) 0x8B}, "application/gzip"),
+        new Magic(0, new byte[]{'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C}, "application/x-7z-compressed"),
+        new Magic(0, new byte[]{(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1}, "application/x-ole-storage"),
+        new Magic(0, "{\\rtf", "application/rtf"),
+        new Magic(0, "<?xml", "application/xml"),
+        new Magic(0, new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}, "text/plain"));
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+
+    @Override
+    public int headerBytes() {
+        return HEADER_BYTES;
+    }
+
+    @Override
+    public Map<String, MetadataType> extract(FileSample file) {
+        String mimeType = detect(file);
+        return mimeType == null ? Map.of()
+            : Map.of("detectedMimeType", MetadataType.newBuilder().setString(mimeType).build());
+    }
+
+    static String detect(FileSample file) {
+        if (file.startsWith(ZIP_MAGIC)) {
+            return zipMimeType(file.header());
+        }
+        ByteBuffer header = file.header();
+        for (Magic magic : MAGIC) {
+            if (magic.matches(header)) {
+                return magic.mimeType();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Office Open XML packages are zips whose first entries are normally {@code [Content_Types].xml} and the parts of
+     * the main document, so the part folder names in the header identify the type.
+     */
+    private static String zipMimeType(ByteBuffer header) {
+        byte[] bytes = new byte[header.remaining()];
+        header.get(bytes);
+        String names = new String(bytes, StandardCharsets.ISO_8859_1);
+        if (!names.contains("[Content_Types].xml")) {
+            return ZIP;
+        } else if (names.contains("word/")) {
+            return "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+        } else if (names.contains("xl/")) {
+            return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+        } else if (names.contains("ppt/")) {
+            return "application/vnd.openxmlformats-officedocument.presentationml.presentation";
+        }
+        return ZIP;
+    }
+
+    private record Magic(int offset, byte[] bytes, String mimeType) {
+        Magic(int offset, String ascii, String mimeType) {
+            this(offset, ascii.getBytes(StandardCharsets.US_ASCII), mimeType);
+        }
+
+        boolean matches(ByteBuffer header) {
+            if (header.limit() < offset + bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (header.get(offset + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import com.objective.threesixty.MetadataType;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Encodes document metadata in the formats written by {@link java.util.Properties#store(java.io.OutputStream, String)}
+ * and {@link java.util.Properties#storeToXML(java.io.OutputStream, String)}, straight into a reusable byte buffer.
+ * Keys are written in sorted order, and keys without a value are left out.
+ * <p>
+ * Values are escaped and encoded as they are appended, without building a {@code Properties} table, an XML document
+ * or a string per value. Encoders are not thread-safe; {@link #forCurrentThread()} returns one per thread.
+ */
+final class MetadataEncoder {
+    static final String COMMENT = "---No Comment---";
+
+    private static final Log logger = LogFactory.getLog(MetadataEncoder.class);
+    private static final byte[] UPPER_HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LOWER_HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] XML_HEADER = ("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+        + "<!DOCTYPE properties SYSTEM \"http://java.sun.com/dtd/properties.dtd\">\n"
+        + "<properties>\n"
+        + "<comment>" + COMMENT + "</comment>\n").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] XML_FOOTER = "</properties>\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] XML_ENTRY_START = "<entry key=\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] XML_ENTRY_VALUE = "\">".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] XML_ENTRY_END = "</entry>\n".getBytes(StandardCharsets.UTF_8);
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+    private static final ThreadLocal<MetadataEncoder> ENCODERS = ThreadLocal.withInitial(MetadataEncoder::new);
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int count;
+    private String[] keys = new String[64];
+    private final char[] timestamp = new char[30];
+
+    /**
+     * @return this thread's encoder, emptied
+     */
+    static MetadataEncoder forCurrentThread() {
+        MetadataEncoder encoder = ENCODERS.get();
+        encoder.reset();
+        return encoder;
+    }
+
+    void reset() {
+        if (buffer.length > MAX_RETAINED_CAPACITY) {
+            buffer = new byte[INITIAL_CAPACITY];
+        }
+        count = 0;
+    }
+
+    int size() {
+        return count;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, count);
+    }
+
+    /**
+     * Appends the metadata in {@code .properties} format, using unicode escapes so the result is plain ASCII.
+     *
+     * @param keyPrefix prepended to every key
+     */
+    MetadataEncoder appendProperties(Map<String, MetadataType> metadata, String keyPrefix) {
+        int size = sortKeys(metadata);
+        for (int i = 0; i < size; i++) {
+            String key = keys[i];
+            MetadataType value = metadata.get(key);
+            if (hasValue(key, value)) {
+                appendProperty(keyPrefix, true, true);
+                appendProperty(key, true, keyPrefix.isEmpty());
+                append((byte) '=');
+                appendValue(value, false);
+                append((byte) '\n');
+            }
+        }
+        return this;
+    }
+
+    MetadataEncoder appendPropertiesComment(String comment) {
+        append((byte) '#');
+        appendProperty(comment, false, true);
+        append((byte) '\n');
+        return this;
+    }
+
+    MetadataEncoder appendXml(Map<String, MetadataType> metadata) {
+        append(XML_HEADER);
+        int size = sortKeys(metadata);
+        for (int i = 0; i < size; i++) {
+            String key = keys[i];
+            MetadataType value = metadata.get(key);
+            if (hasValue(key, value)) {
+                append(XML_ENTRY_START);
+                appendXmlText(key);
+                append(XML_ENTRY_VALUE);
+                appendValue(value, true);
+                append(XML_ENTRY_END);
+            }
+        }
+        append(XML_FOOTER);
+        return this;
+    }
+
+    static String stringValue(String key, MetadataType value) {
+        if (value.hasArray()) {
+            return value.getArray().toString();
+        } else if (value.hasBinary()) {
+            return Hex.encodeHexString(value.getBinary().toByteArray());
+        } else if (value.hasBoolean()) {
+            return String.valueOf(value.getBoolean());
+        } else if (value.hasDouble()) {
+            return String.valueOf(value.getDouble());
+        } else if (value.hasDecimal()) {
+            return String.valueOf(value.getDecimal());
+        } else if (value.hasDateTime()) {
+            return timestampToUTCString(value.getDateTime());
+        } else if (value.hasInteger()) {
+            return String.valueOf(value.getInteger());
+        } else if (value.hasLargeString()) {
+            return value.getLargeString();
+        } else if (value.hasLong()) {
+            return String.valueOf(value.getLong());
+        } else if (value.hasString()) {
+            return value.getString();
+        }
+        logger.warn("Incompatible type. No value found for metadata key " + key);
+        return null;
+    }
+
+    static String timestampToUTCString(Timestamp timestamp) {
+        Instant instant = Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
+        return DateTimeFormatter.ISO_INSTANT.withZone(ZoneOffset.UTC).format(instant);
+    }
+
+    private static boolean hasValue(String key, MetadataType value) {
+        if (value.getTypeCase() == MetadataType.TypeCase.TYPE_NOT_SET) {
+            logger.warn("Incompatible type. No value found for metadata key " + key);
+            return false;
+        }
+        return true;
+    }
+
+    private int sortKeys(Map<String, MetadataType> metadata) {
+        int size = metadata.size();
+        if (keys.length < size) {
+            keys = new String[Math.max(size, keys.length * 2)];
+        }
+        int i = 0;
+        for (String key : metadata.keySet()) {
+            keys[i++] = key;
+        }
+        Arrays.sort(keys, 0, size);
+        return size;
+    }
+
+    /**
+     * Appends the value as {@link #stringValue} would convert it, escaped for the output format.
+     */
+    private void appendValue(MetadataType value, boolean xml) {
+        switch (value.getTypeCase()) {
+            case STRING -> appendText(value.getString(), xml);
+            case LARGESTRING -> appendText(value.getLargeString(), xml);
+            case BOOLEAN -> appendAscii(value.getBoolean() ? "true" : "false");
+            case INTEGER -> appendLong(value.getInteger());
+            case LONG -> appendLong(value.getLong());
+            case BINARY -> appendHex(value.getBinary());
+            case DATETIME -> appendTimestamp(value.getDateTime(), xml);
+            // rare enough, and fiddly enough to format exactly, to go through String.valueOf
+            case DOUBLE -> appendAscii(String.valueOf(value.getDouble()));
+            case DECIMAL -> appendAscii(String.valueOf(value.getDecimal()));
+            case ARRAY -> appendText(value.getArray().toString(), xml);
+            default -> throw new IllegalArgumentException("Unsupported metadata type: " + value.getTypeCase());
+        }
+    }
+
+    private void appendText(String s, boolean xml) {
+        if (xml) {
+            appendXmlText(s);
+        } else {
+            appendProperty(s, false, true);
+        }
+    }
+
+    /**
+     * Escapes as {@code Properties.store} does, so the output loads back to the same keys and values.
+     *
+     * @param isStart whether {@code s} starts the key or value, where a space always needs escaping
+     */
+    private void appendProperty(CharSequence s, boolean isKey, boolean isStart) {
+        int length = s.length();
+        ensureCapacity(length * 6);
+        byte[] buf = buffer;
+        int pos = count;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c > 61 && c < 127) {
+                if (c == '\\') {
+                    buf[pos++] = '\\';
+                }
+                buf[pos++] = (byte) c;
+                continue;
+            }
+            switch (c) {
+                case ' ' -> {
+                    if ((i == 0 && isStart) || isKey) {
+                        buf[pos++] = '\\';
+                    }
+                    buf[pos++] = ' ';
+                }
+                case '\t' -> pos = putEscape(buf, pos, 't');
+                case '\n' -> pos = putEscape(buf, pos, 'n');
+                case '\r' -> pos = putEscape(buf, pos, 'r');
+                case '\f' -> pos = putEscape(buf, pos, 'f');
+                case '=', ':', '#', '!' -> pos = putEscape(buf, pos, c);
+                default -> {
+                    if (c < 0x20 || c > 0x7e) {
+                        buf[pos++] = '\\';
+                        buf[pos++] = 'u';
+                        buf[pos++] = UPPER_HEX[(c >> 12) & 0xF];
+                        buf[pos++] = UPPER_HEX[(c >> 8) & 0xF];
+                        buf[pos++] = UPPER_HEX[(c >> 4) & 0xF];
+                        buf[pos++] = UPPER_HEX[c & 0xF];
+                    } else {
+                        buf[pos++] = (byte) c;
+                    }
+                }
+            }
+        }
+        count = pos;
+    }
+
+    private static int putEscape(byte[] buf, int pos, char c) {
+        buf[pos] = '\\';
+        buf[pos + 1] = (byte) c;
+        return pos + 2;
+    }
+
+    /**
+     * Escapes markup characters and encodes the text as UTF-8.
+     */
+    private void appendXmlText(CharSequence s) {
+        int length = s.length();
+        ensureCapacity(length * 6);
+        byte[] buf = buffer;
+        int pos = count;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                    buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buf[pos++] = '?';
+                } else if (c < 0x800) {
+                    buf[pos++] = (byte) (0xC0 | (c >> 6));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else {
+                    buf[pos++] = (byte) (0xE0 | (c >> 12));
+                    buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+                continue;
+            }
+            switch (c) {
+                case '&' -> pos = put(buf, pos, "&amp;");
+                case '<' -> pos = put(buf, pos, "&lt;");
+                case '>' -> pos = put(buf, pos, "&gt;");
+                case '"' -> pos = put(buf, pos, "&quot;");
+                case '\'' -> pos = put(buf, pos, "&apos;");
+                default -> {
+                    if (c < 0x20) {
+                        buf[pos++] = '&';
+                        buf[pos++] = '#';
+                        buf[pos++] = 'x';
+                        if (c >= 0x10) {
+                            buf[pos++] = LOWER_HEX[c >> 4];
+                        }
+                        buf[pos++] = LOWER_HEX[c & 0xF];
+                        buf[pos++] = ';';
+                    } else {
+                        buf[pos++] = (byte) c;
+                    }
+                }
+            }
+        }
+        count = pos;
+    }
+
+    private static int put(byte[] buf, int pos, String ascii) {
+        for (int i = 0; i < ascii.length(); i++) {
+            buf[pos++] = (byte) ascii.charAt(i);
+        }
+        return pos;
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            appendAscii(Long.toString(value));
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int pos = count + digits;
+        count = pos;
+        do {
+            buffer[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+    }
+
+    private void appendHex(ByteString bytes) {
+        int size = bytes.size();
+        ensureCapacity(size * 2);
+        ByteString.ByteIterator iterator = bytes.iterator();
+        while (iterator.hasNext()) {
+            byte b = iterator.nextByte();
+            buffer[count++] = LOWER_HEX[(b >> 4) & 0xF];
+            buffer[count++] = LOWER_HEX[b & 0xF];
+        }
+    }
+
+    /**
+     * Formats the timestamp as {@link DateTimeFormatter#ISO_INSTANT} does, without going through {@code Instant} and a
+     * formatter. Years outside 0000-9999 fall back to the formatter.
+     */
+    private void appendTimestamp(Timestamp value, boolean xml) {
+        long seconds = value.getSeconds();
+        int nanos = value.getNanos();
+        long days = Math.floorDiv(seconds, 86_400L);
+        int secondOfDay = (int) Math.floorMod(seconds, 86_400L);
+
+        // civil date from days since the epoch, proleptic Gregorian calendar
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year < 0 || year > 9999 || nanos < 0 || nanos > 999_999_999) {
+            appendText(timestampToUTCString(value), xml);
+            return;
+        }
+
+        char[] chars = timestamp;
+        int pos = putDigits(chars, 0, (int) year, 4);
+        chars[pos++] = '-';
+        pos = putDigits(chars, pos, month, 2);
+        chars[pos++] = '-';
+        pos = putDigits(chars, pos, day, 2);
+        chars[pos++] = 'T';
+        pos = putDigits(chars, pos, secondOfDay / 3600, 2);
+        chars[pos++] = ':';
+        pos = putDigits(chars, pos, (secondOfDay / 60) % 60, 2);
+        chars[pos++] = ':';
+        pos = putDigits(chars, pos, secondOfDay % 60, 2);
+        if (nanos != 0) {
+            // fractions are printed in groups of three digits, as ISO_INSTANT does
+            chars[pos++] = '.';
+            if (nanos % 1_000_000 == 0) {
+                pos = putDigits(chars, pos, nanos / 1_000_000, 3);
+            } else if (nanos % 1000 == 0) {
+                pos = putDigits(chars, pos, nanos / 1000, 6);
+            } else {
+                pos = putDigits(chars, pos, nanos, 9);
+            }
+        }
+        chars[pos++] = 'Z';
+        if (xml) {
+            appendXmlText(CharBuffer.wrap(chars, 0, pos));
+        } else {
+            appendProperty(CharBuffer.wrap(chars, 0, pos), false, true);
+        }
+    }
+
+    private static int putDigits(char[] chars, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    private void appendAscii(String s) {
+        int length = s.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            buffer[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void append(byte b) {
+        ensureCapacity(1);
+        buffer[count++] = b;
+    }
+
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (count + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + additional));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+
+/**
+ * Extracts one kind of extended metadata from a file, for {@link MetadataExtractors} to add to its document metadata.
+ * Extractors of the same file run in parallel, and the same extractor runs on many files at once, so they must be
+ * thread safe.
+ */
+interface MetadataExtractor {
+    /**
+     * @return how many bytes from the start of the file this extractor looks at in {@link FileSample#header()}, or 0
+     * if it does not read the content at all
+     */
+    default int headerBytes() {
+        return 0;
+    }
+
+    /**
+     * @return {@code true} if the metadata depends only on the file's content, so can be reused for as long as the
+     * file's size and modified time are unchanged; {@code false} if it comes from attributes such as the owner, which
+     * change without touching the modified time
+     */
+    default boolean readsContent() {
+        return headerBytes() > 0;
+    }
+
+    /**
+     * @return the metadata found, which is empty if the file has none of this kind
+     */
+    Map<String, MetadataType> extract(FileSample file) throws IOException;
+
+    /**
+     * A file being extracted, with the start of its content read once for all of its extractors.
+     *
+     * @param header up to the largest {@link #headerBytes()} of the extractors being run, or fewer if the file is
+     *               shorter; empty if none of them read content
+     */
+    record FileSample(Path path, BasicFileAttributes attributes, ByteBuffer header) {
+        /**
+         * @return a read-only view of the header, positioned at its start
+         */
+        @Override
+        public ByteBuffer header() {
+            return header.asReadOnlyBuffer();
+        }
+
+        boolean startsWith(byte[] magic) {
+            if (header.limit() < magic.length) {
+                return false;
+            }
+            for (int i = 0; i < magic.length; i++) {
+                if (header.get(i) != magic[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
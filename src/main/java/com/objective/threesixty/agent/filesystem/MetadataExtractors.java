@@ -0,0 +1,150 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Runs a set of {@link MetadataExtractor}s over a file, in parallel on their own bounded scheduler.
+ * <p>
+ * The start of the file is read once, up to the largest {@link MetadataExtractor#headerBytes()}, and shared by every
+ * extractor that reads content. Content metadata is returned separately so it can be cached for as long as the file is
+ * unchanged, in which case neither the header nor the content extractors need to run again. An extractor that fails is
+ * logged and left out, rather than failing the whole request.
+ */
+final class MetadataExtractors {
+    private static final Log logger = LogFactory.getLog(MetadataExtractors.class);
+    static final int DEFAULT_THREADS = 8;
+
+    private final List<MetadataExtractor> extractors;
+    private final int headerBytes;
+    private final Scheduler scheduler;
+
+    MetadataExtractors(List<MetadataExtractor> extractors, int threads) {
+        this.extractors = List.copyOf(extractors);
+        this.headerBytes = extractors.stream().mapToInt(MetadataExtractor::headerBytes).max().orElse(0);
+        this.scheduler = IoSchedulers.newScheduler(threads, "metadata-extractor");
+    }
+
+    /**
+     * @return the owner, permissions, ACL, extended attributes, detected MIME type, and Office and PDF document
+     * properties
+     */
+    static MetadataExtractors defaults() {
+        return new MetadataExtractors(List.of(
+            new FileAttributeExtractors.Posix(),
+            new FileAttributeExtractors.Acl(),
+            new FileAttributeExtractors.ExtendedAttributes(),
+            new MagicMimeTypeExtractor(),
+            new OfficePropertiesExtractor(),
+            new PdfPropertiesExtractor()), DEFAULT_THREADS);
+    }
+
+    /**
+     * @param contentMetadata the content metadata returned for the file when it had the same attributes, or
+     *                        {@code null} to read it again
+     */
+    Result extract(Path file, BasicFileAttributes attributes, Map<String, MetadataType> contentMetadata) throws IOException {
+        boolean readContent = contentMetadata == null && attributes.isRegularFile();
+        List<MetadataExtractor> toRun = extractors.stream()
+            .filter(extractor -> readContent || !extractor.readsContent())
+            .toList();
+        MetadataExtractor.FileSample sample = new MetadataExtractor.FileSample(file, attributes,
+            readContent ? readHeader(file, attributes) : ByteBuffer.allocate(0));
+
+        List<Extracted> results = Flux.fromIterable(toRun)
+            .flatMapSequential(extractor -> Mono.fromCallable(() -> new Extracted(extractor, Optional.of(extractor.extract(sample))))
+                .subscribeOn(scheduler)
+                .onErrorResume(e -> {
+                    logger.warn("Failed to extract metadata from " + file + " with " + extractor.getClass().getSimpleName(), e);
+                    return Mono.just(new Extracted(extractor, Optional.empty()));
+                }))
+            .collectList()
+            .block();
+
+        Map<String, MetadataType> metadata = new HashMap<>();
+        Map<String, MetadataType> content = readContent ? new HashMap<>() : contentMetadata;
+        boolean complete = true;
+        for (Extracted result : results) {
+            if (result.metadata().isEmpty()) {
+                // retried on the next request rather than cached as missing
+                complete &= !result.extractor().readsContent();
+            } else if (result.extractor().readsContent()) {
+                content.putAll(result.metadata().get());
+            } else {
+                metadata.putAll(result.metadata().get());
+            }
+        }
+        if (content != null) {
+            metadata.putAll(content);
+        }
+        return new Result(metadata, readContent && !complete ? null : content);
+    }
+
+    private ByteBuffer readHeader(Path file, BasicFileAttributes attributes) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate((int) Math.min(headerBytes, attributes.size()));
+        if (header.hasRemaining()) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                    // positional reads until full or at the end of the file
+                }
+            }
+        }
+        return header.flip();
+    }
+
+    void close() {
+        scheduler.dispose();
+    }
+
+    /**
+     * @param metadata        everything extracted, including {@code contentMetadata}
+     * @param contentMetadata the part of {@code metadata} taken from the file's content, to pass back in while the file
+     *                        is unchanged, or {@code null} if it could not all be read and should not be reused
+     */
+    record Result(Map<String, MetadataType> metadata, Map<String, MetadataType> contentMetadata) {
+    }
+
+    private record Extracted(MetadataExtractor extractor, Optional<Map<String, MetadataType>> metadata) {
+    }
+}
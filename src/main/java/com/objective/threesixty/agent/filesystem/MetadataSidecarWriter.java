@@ -0,0 +1,291 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes document metadata on its own scheduler, either as one sidecar file per document or as entries in a
+ * per-directory manifest.
+ * <p>
+ * A manifest is a {@code .properties} file named {@value #MANIFEST_FILE_NAME}, with each document's keys prefixed by
+ * its file name and a slash. Entries queued for the same manifest while it is being written are appended together,
+ * with a single open and write.
+ * <p>
+ * A binary manifest collects the metadata of every document under an output root in the segments of a
+ * {@link BinaryManifestWriter}, kept in the root's {@value #BINARY_MANIFEST_DIRECTORY} folder. Documents queued for
+ * the same manifest while it is being written are appended together, up to {@value #MAX_BINARY_MANIFEST_BATCH} at a
+ * time, with a single flush. The manifests stay open until {@link #close}.
+ */
+class MetadataSidecarWriter implements Closeable {
+    static final String MANIFEST_FILE_NAME = ".metadata.manifest.properties";
+    static final String BINARY_MANIFEST_DIRECTORY = ".metadata-manifest";
+    static final int DEFAULT_SEGMENT_MB = 64;
+    static final int MAX_BINARY_MANIFEST_BATCH = 1000;
+
+    private final Scheduler scheduler;
+    private final long maxSegmentBytes;
+    private final Map<Path, Manifest> manifests = new ConcurrentHashMap<>();
+    private final Map<Path, BinaryManifest> binaryManifests = new ConcurrentHashMap<>();
+
+    MetadataSidecarWriter(int threads) {
+        this(threads, DEFAULT_SEGMENT_MB * 1024L * 1024L);
+    }
+
+    MetadataSidecarWriter(int threads, long maxSegmentBytes) {
+        this.scheduler = IoSchedulers.newScheduler(threads, "metadata-writer");
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    /**
+     * @param atomic write to a temp file and rename it over the sidecar, so a failed write leaves the previous sidecar
+     */
+    Mono<Void> writeSidecar(Path sidecar, Map<String, MetadataType> metadata, boolean asXml, boolean atomic) {
+        return Mono.<Void>fromRunnable(() -> {
+            MetadataEncoder encoder = MetadataEncoder.forCurrentThread();
+            if (asXml) {
+                encoder.appendXml(metadata);
+            } else {
+                encoder.appendPropertiesComment(MetadataEncoder.COMMENT).appendProperties(metadata, "");
+            }
+
+            Path target = atomic
+                ? sidecar.resolveSibling("." + sidecar.getFileName() + "." + UUID.randomUUID() + FileSystemWriter.STAGING_SUFFIX)
+                : sidecar;
+            try {
+                try (OutputStream out = Files.newOutputStream(target)) {
+                    encoder.writeTo(out);
+                }
+                if (atomic) {
+                    Files.move(target, sidecar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                if (atomic) {
+                    deleteQuietly(target);
+                }
+                throw new UncheckedIOException("Failed to write metadata sidecar: " + sidecar, e);
+            }
+        }).subscribeOn(scheduler);
+    }
+
+    Mono<Void> appendToManifest(Path file, Map<String, MetadataType> metadata) {
+        return Mono.fromCallable(() -> {
+                String name = file.getFileName().toString();
+                return MetadataEncoder.forCurrentThread()
+                    .appendPropertiesComment(name)
+                    .appendProperties(metadata, name + "/")
+                    .toByteArray();
+            })
+            .subscribeOn(scheduler)
+            .flatMap(entry -> manifests.computeIfAbsent(file.resolveSibling(MANIFEST_FILE_NAME), Manifest::new).append(entry));
+    }
+
+    /**
+     * Appends the metadata of {@code file}, recorded by its path relative to {@code outputRoot}, completing once it
+     * has been flushed.
+     */
+    Mono<Void> appendToBinaryManifest(Path outputRoot, Path file, Map<String, MetadataType> metadata) {
+        return Mono.defer(() -> {
+            Path root = outputRoot.toAbsolutePath().normalize();
+            String path = root.relativize(file.toAbsolutePath().normalize()).toString().replace(File.separatorChar, '/');
+            return binaryManifest(root.resolve(BINARY_MANIFEST_DIRECTORY)).append(path, metadata);
+        }).subscribeOn(scheduler);
+    }
+
+    /**
+     * Closes the current segment of every binary manifest.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (BinaryManifest manifest : binaryManifests.values()) {
+            try {
+                manifest.writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private BinaryManifest binaryManifest(Path directory) {
+        return binaryManifests.computeIfAbsent(directory, d -> {
+            try {
+                return new BinaryManifest(d, BinaryManifestWriter.open(d, maxSegmentBytes));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open metadata manifest: " + d, e);
+            }
+        });
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // an orphaned temp file, but the sidecar itself is intact
+        }
+    }
+
+    private final class Manifest {
+        private final Path path;
+        private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Manifest(Path path) {
+            this.path = path;
+        }
+
+        Mono<Void> append(byte[] entry) {
+            return Mono.create(sink -> {
+                pending.add(new Pending(entry, sink));
+                scheduleDrain();
+            });
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                scheduler.schedule(this::drain);
+            }
+        }
+
+        private void drain() {
+            List<Pending> batch = new ArrayList<>();
+            ByteArrayOutputStream entries = new ByteArrayOutputStream();
+            for (Pending entry = pending.poll(); entry != null; entry = pending.poll()) {
+                batch.add(entry);
+                entries.writeBytes(entry.entry());
+            }
+
+            // a single write, so entries from another instance appending to the same file are not interleaved
+            try (OutputStream out = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                entries.writeTo(out);
+                batch.forEach(entry -> entry.sink().success());
+            } catch (IOException e) {
+                UncheckedIOException error = new UncheckedIOException("Failed to append to metadata manifest: " + path, e);
+                batch.forEach(entry -> entry.sink().error(error));
+            } finally {
+                draining.set(false);
+                if (!pending.isEmpty()) {
+                    scheduleDrain();
+                } else {
+                    manifests.remove(path, this);
+                }
+            }
+        }
+    }
+
+    private final class BinaryManifest {
+        private final Path directory;
+        private final BinaryManifestWriter writer;
+        private final Queue<PendingDocument> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        BinaryManifest(Path directory, BinaryManifestWriter writer) {
+            this.directory = directory;
+            this.writer = writer;
+        }
+
+        Mono<Void> append(String path, Map<String, MetadataType> metadata) {
+            return Mono.create(sink -> {
+                pending.add(new PendingDocument(path, metadata, sink));
+                scheduleDrain();
+            });
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                scheduler.schedule(this::drain);
+            }
+        }
+
+        private void drain() {
+            List<MonoSink<Void>> appended = new ArrayList<>();
+            try {
+                for (PendingDocument document = pending.poll(); document != null; document = pending.poll()) {
+                    try {
+                        writer.append(document.path(), document.metadata());
+                        appended.add(document.sink());
+                    } catch (IOException e) {
+                        document.sink().error(new UncheckedIOException("Failed to append to metadata manifest: " + directory, e));
+                    } catch (RuntimeException e) {
+                        document.sink().error(e);
+                    }
+                    if (appended.size() >= MAX_BINARY_MANIFEST_BATCH) {
+                        break;
+                    }
+                }
+
+                try {
+                    writer.flush();
+                    appended.forEach(MonoSink::success);
+                } catch (IOException e) {
+                    UncheckedIOException error = new UncheckedIOException("Failed to append to metadata manifest: " + directory, e);
+                    appended.forEach(sink -> sink.error(error));
+                }
+            } finally {
+                draining.set(false);
+                if (!pending.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+        }
+    }
+
+    private record Pending(byte[] entry, MonoSink<Void> sink) {
+    }
+
+    private record PendingDocument(String path, Map<String, MetadataType> metadata, MonoSink<Void> sink) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.Value;
+import com.objective.threesixty.remoteagent.sdk.utils.CustomParameters;
+
+/**
+ * Reads numeric job parameters, which arrive as int, long or string values depending on the field and the caller.
+ */
+final class NumericParameters {
+    private NumericParameters() {
+    }
+
+    static int intParameter(CustomParameters parameters, String key, int defaultValue) {
+        return (int) longParameter(parameters, key, defaultValue);
+    }
+
+    static long longParameter(CustomParameters parameters, String key, long defaultValue) {
+        Value value = parameters.get(key);
+        if (value == null) {
+            return defaultValue;
+        } else if (value.hasInt()) {
+            return value.getInt();
+        } else if (value.hasLong()) {
+            return value.getLong();
+        } else if (value.hasString() && !value.getString().isBlank()) {
+            return Long.parseLong(value.getString().trim());
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,147 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.google.protobuf.Timestamp;
+import com.objective.threesixty.MetadataType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts the core properties of Office Open XML documents, such as the title and author, as {@code office.*}.
+ * <p>
+ * Only the zip's central directory and its {@value #CORE_PROPERTIES} part are read, not the rest of the document.
+ */
+final class OfficePropertiesExtractor implements MetadataExtractor {
+    static final String CORE_PROPERTIES = "docProps/core.xml";
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+    private static final Map<String, String> PROPERTIES = Map.of(
+        "title", "office.title",
+        "subject", "office.subject",
+        "creator", "office.author",
+        "keywords", "office.keywords",
+        "description", "office.description",
+        "lastModifiedBy", "office.lastModifiedBy",
+        "category", "office.category",
+        "revision", "office.revision");
+    private static final Map<String, String> DATES = Map.of(
+        "created", "office.created",
+        "modified", "office.modified");
+
+    private final DocumentBuilderFactory factory;
+
+    OfficePropertiesExtractor() {
+        factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        try {
+            // the part comes from an untrusted file, so no DTDs or external entities
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+    }
+
+    @Override
+    public int headerBytes() {
+        return ZIP_MAGIC.length;
+    }
+
+    @Override
+    public Map<String, MetadataType> extract(FileSample file) throws IOException {
+        if (!file.startsWith(ZIP_MAGIC)) {
+            return Map.of();
+        }
+        try (ZipFile zip = new ZipFile(file.path().toFile())) {
+            ZipEntry entry = zip.getEntry(CORE_PROPERTIES);
+            if (entry == null) {
+                return Map.of();
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                return properties(parse(in));
+            }
+        }
+    }
+
+    private Document parse(InputStream in) throws IOException {
+        try {
+            DocumentBuilder builder;
+            synchronized (factory) {
+                builder = factory.newDocumentBuilder();
+            }
+            // fails on fatal errors without also printing them
+            builder.setErrorHandler(new DefaultHandler());
+            return builder.parse(in);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Unreadable " + CORE_PROPERTIES, e);
+        }
+    }
+
+    private static Map<String, MetadataType> properties(Document document) {
+        Map<String, MetadataType> metadata = new HashMap<>();
+        for (Node node = document.getDocumentElement().getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (!(node instanceof Element element)) {
+                continue;
+            }
+            String name = element.getLocalName();
+            String value = element.getTextContent().trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            if (PROPERTIES.containsKey(name)) {
+                metadata.put(PROPERTIES.get(name), MetadataType.newBuilder().setString(value).build());
+            } else if (DATES.containsKey(name)) {
+                try {
+                    Instant instant = Instant.parse(value);
+                    metadata.put(DATES.get(name), MetadataType.newBuilder().setDateTime(Timestamp.newBuilder()
+                        .setSeconds(instant.getEpochSecond()).setNanos(instant.getNano())).build());
+                } catch (DateTimeParseException e) {
+                    metadata.put(DATES.get(name), MetadataType.newBuilder().setString(value).build());
+                }
+            }
+        }
+        return metadata;
+    }
+}
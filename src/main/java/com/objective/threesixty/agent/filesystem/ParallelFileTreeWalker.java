@@ -0,0 +1,316 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import io.micrometer.core.instrument.Timer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walks a directory tree on a dedicated work-stealing pool, listing each directory as its own fork-join task, so a
+ * slow directory only holds up the worker listing it. Files are handed to the consumer through a bounded queue;
+ * workers block when the queue is full, so memory stays bounded however far the walk gets ahead of the consumer.
+ * <p>
+ * Files are returned in no particular order. {@link FileTreeWalker.Listener#postVisitDirectory} is still only
+ * invoked once everything below the directory has been returned, and the consumer has asked for the next file after
+ * the last of them, so a directory is never reported complete while one of its files is still queued, or if the
+ * consumer failed on, or stopped after, one of its files.
+ * <p>
+ * The stream returned by {@link #walk} must be closed, which shuts the pool down however much of it was consumed.
+ * A stream that is dropped without being closed only has its pool shut down once the stream is garbage collected;
+ * until then its workers stay blocked on the full queue, holding their directories open.
+ */
+final class ParallelFileTreeWalker implements Iterator<FileTreeWalker.FileEntry>, Closeable {
+    static final int QUEUE_CAPACITY = 1024;
+    private static final QueuedFile END = new QueuedFile(null, null);
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final BlockingQueue<QueuedFile> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final FileTreeWalker.Listener listener;
+    private final Timer statTimer;
+    private final ForkJoinPool pool;
+    private volatile boolean closed;
+    private QueuedFile next;
+    private QueuedFile returned;
+    private boolean finished;
+
+    private ParallelFileTreeWalker(Path root, int parallelism, FileTreeWalker.Listener listener, Timer statTimer) {
+        this.listener = listener;
+        this.statTimer = statTimer;
+        this.pool = new ForkJoinPool(parallelism, ParallelFileTreeWalker::newWorker, null, false);
+        pool.execute(() -> {
+            try {
+                new DirectoryTask(root, FileTreeWalker.readAttributes(root, statTimer), null).invoke();
+            } catch (IOException e) {
+                failure.compareAndSet(null, new UncheckedIOException(e));
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                emit(END);
+            }
+        });
+    }
+
+    static Stream<FileTreeWalker.FileEntry> walk(Path root, int parallelism, FileTreeWalker.Listener listener) {
+        return walk(root, parallelism, listener, null);
+    }
+
+    /**
+     * @param statTimer records the latency of every attribute read made by the walk, or {@code null}
+     */
+    static Stream<FileTreeWalker.FileEntry> walk(Path root, int parallelism, FileTreeWalker.Listener listener, Timer statTimer) {
+        ParallelFileTreeWalker walker = new ParallelFileTreeWalker(root, parallelism, listener, statTimer);
+        // the workers reach the walker but not the consumer's handle, so the handle can be collected while they block
+        Consumer consumer = new Consumer(walker);
+        Cleaner.Cleanable cleanable = CLEANER.register(consumer, walker::close);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(consumer, Spliterator.DISTINCT | Spliterator.NONNULL), false)
+            .onClose(cleanable::clean);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (returned != null) {
+            // the consumer is done with the file it was last given
+            QueuedFile done = returned;
+            returned = null;
+            try {
+                done.directory().release();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (next == null && !finished) {
+            next = take();
+        }
+        return next != null;
+    }
+
+    @Override
+    public FileTreeWalker.FileEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        returned = next;
+        next = null;
+        return returned.file();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        pool.shutdownNow();
+        queue.clear();
+    }
+
+    private QueuedFile take() {
+        QueuedFile file;
+        try {
+            file = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while walking directory tree", e);
+        }
+
+        if (file == END) {
+            finished = true;
+            pool.shutdown();
+            RuntimeException e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+            return null;
+        }
+        return file;
+    }
+
+    private void emit(QueuedFile file) {
+        try {
+            while (!closed && !queue.offer(file, 100, TimeUnit.MILLISECONDS)) {
+                // the consumer is behind; keep waiting unless the walk is closed
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("file-tree-walker-" + thread.getPoolIndex());
+        return thread;
+    }
+
+    private final class DirectoryTask extends RecursiveAction {
+        private final Path dir;
+        private final BasicFileAttributes attributes;
+        private final Completion parent;
+
+        DirectoryTask(Path dir, BasicFileAttributes attributes, Completion parent) {
+            this.dir = dir;
+            this.attributes = attributes;
+            this.parent = parent;
+        }
+
+        @Override
+        protected void compute() {
+            if (closed || failure.get() != null) {
+                return;
+            }
+
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            try {
+                if (!listener.preVisitDirectory(dir, attributes)) {
+                    if (parent != null) {
+                        parent.release();
+                    }
+                    return;
+                }
+                Completion completion = new Completion(dir, parent);
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                    for (Path entry : entries) {
+                        if (closed) {
+                            return;
+                        }
+                        BasicFileAttributes entryAttributes;
+                        try {
+                            entryAttributes = FileTreeWalker.readAttributes(entry, statTimer, LinkOption.NOFOLLOW_LINKS);
+                        } catch (IOException e) {
+                            listener.visitFailed(entry, e);
+                            continue;
+                        }
+                        if (entryAttributes.isDirectory()) {
+                            DirectoryTask task = new DirectoryTask(entry, entryAttributes, completion);
+                            completion.pending.incrementAndGet();
+                            task.fork();
+                            subdirectories.add(task);
+                        } else {
+                            FileTreeWalker.FileEntry file = FileTreeWalker.regularFile(entry, entryAttributes, statTimer);
+                            if (file != null && listener.visitFile(file.path(), file.attributes())) {
+                                completion.pending.incrementAndGet();
+                                emit(new QueuedFile(file, completion));
+                            }
+                        }
+                    }
+                } catch (DirectoryIteratorException e) {
+                    listingFailed(completion, e.getCause());
+                } catch (IOException e) {
+                    listingFailed(completion, e);
+                }
+                // the listing itself is done; the directory completes once its files and subdirectories have
+                completion.release();
+            } catch (IOException e) {
+                failure.compareAndSet(null, new UncheckedIOException(e));
+                return;
+            }
+
+            // only so that the walk ends once every directory has been listed
+            for (DirectoryTask task : subdirectories) {
+                task.join();
+            }
+        }
+
+        /**
+         * Carries on without the rest of the directory if the listener allows it, but never reports it complete.
+         */
+        private void listingFailed(Completion completion, IOException e) throws IOException {
+            listener.visitFailed(dir, e);
+            completion.failed = true;
+        }
+    }
+
+    /**
+     * Counts what is outstanding below a directory: its own listing, its files that the consumer has not finished
+     * with, and its subdirectories that are not complete. The thread that releases the last of them completes the
+     * directory, unless it could not be fully listed, then releases it from its parent. Nothing is completed once the
+     * walk is closed or has failed, so neither the directory nor any directory above it is reported complete.
+     */
+    private final class Completion {
+        private final Path dir;
+        private final Completion parent;
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private volatile boolean failed;
+
+        Completion(Path dir, Completion parent) {
+            this.dir = dir;
+            this.parent = parent;
+        }
+
+        void release() throws IOException {
+            if (pending.decrementAndGet() > 0 || closed || failure.get() != null) {
+                return;
+            }
+            if (!failed) {
+                listener.postVisitDirectory(dir);
+            }
+            if (parent != null) {
+                parent.release();
+            }
+        }
+    }
+
+    private record Consumer(ParallelFileTreeWalker walker) implements Iterator<FileTreeWalker.FileEntry> {
+        @Override
+        public boolean hasNext() {
+            return walker.hasNext();
+        }
+
+        @Override
+        public FileTreeWalker.FileEntry next() {
+            return walker.next();
+        }
+    }
+
+    private record QueuedFile(FileTreeWalker.FileEntry file, Completion directory) {
+    }
+}
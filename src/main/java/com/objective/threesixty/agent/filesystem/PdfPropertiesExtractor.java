@@ -0,0 +1,220 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Extracts the PDF version, as {@code pdf.version}, and the document information dictionary's text entries, such as
+ * {@code pdf.title} and {@code pdf.author}.
+ * <p>
+ * The version comes from the shared header. The information dictionary is looked for in the header and in the last
+ * {@value #TAIL_BYTES} bytes, where it normally sits next to the trailer that points at it, so a PDF is never read in
+ * full. A dictionary elsewhere, or inside a compressed object stream, is not found.
+ */
+final class PdfPropertiesExtractor implements MetadataExtractor {
+    static final int HEADER_BYTES = 4096;
+    static final int TAIL_BYTES = 64 * 1024;
+    private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final Map<String, String> ENTRIES = Map.of(
+        "/Title", "pdf.title",
+        "/Author", "pdf.author",
+        "/Subject", "pdf.subject",
+        "/Keywords", "pdf.keywords",
+        "/Creator", "pdf.creator",
+        "/Producer", "pdf.producer");
+
+    @Override
+    public int headerBytes() {
+        return HEADER_BYTES;
+    }
+
+    @Override
+    public Map<String, MetadataType> extract(FileSample file) throws IOException {
+        if (!file.startsWith(PDF_MAGIC)) {
+            return Map.of();
+        }
+        Map<String, MetadataType> metadata = new HashMap<>();
+        String header = latin1(file.header());
+        int end = PDF_MAGIC.length;
+        while (end < header.length() && (Character.isDigit(header.charAt(end)) || header.charAt(end) == '.')) {
+            end++;
+        }
+        if (end > PDF_MAGIC.length) {
+            metadata.put("pdf.version", string(header.substring(PDF_MAGIC.length, end)));
+        }
+
+        // later revisions are appended, so the tail's entries win over the header's
+        findEntries(header, metadata);
+        if (file.attributes().size() > file.header().limit()) {
+            findEntries(latin1(readTail(file)), metadata);
+        }
+        return metadata;
+    }
+
+    private static ByteBuffer readTail(FileSample file) throws IOException {
+        long size = file.attributes().size();
+        long start = Math.max(file.header().limit(), size - TAIL_BYTES);
+        ByteBuffer tail = ByteBuffer.allocate((int) (size - start));
+        try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+            while (tail.hasRemaining() && channel.read(tail, start + tail.position()) >= 0) {
+                // positional reads until full or at the end of the file
+            }
+        }
+        return tail.flip();
+    }
+
+    private static void findEntries(String text, Map<String, MetadataType> metadata) {
+        for (Map.Entry<String, String> entry : ENTRIES.entrySet()) {
+            int at = text.lastIndexOf(entry.getKey());
+            while (at >= 0) {
+                String value = readString(text, at + entry.getKey().length());
+                if (value != null) {
+                    if (!value.isBlank()) {
+                        metadata.put(entry.getValue(), string(value.trim()));
+                    }
+                    break;
+                }
+                at = text.lastIndexOf(entry.getKey(), at - 1);
+            }
+        }
+    }
+
+    /**
+     * Reads a literal {@code (...)} or hexadecimal {@code <...>} string starting after optional whitespace.
+     *
+     * @return the decoded string, or {@code null} if there is no string there
+     */
+    static String readString(String text, int from) {
+        int i = from;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        if (i >= text.length()) {
+            return null;
+        } else if (text.charAt(i) == '(') {
+            return literalString(text, i + 1);
+        } else if (text.charAt(i) == '<' && i + 1 < text.length() && text.charAt(i + 1) != '<') {
+            return hexString(text, i + 1);
+        }
+        return null;
+    }
+
+    private static String literalString(String text, int from) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int depth = 0;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char next = text.charAt(++i);
+                switch (next) {
+                    case 'n' -> bytes.write('\n');
+                    case 'r' -> bytes.write('\r');
+                    case 't' -> bytes.write('\t');
+                    case 'b' -> bytes.write('\b');
+                    case 'f' -> bytes.write('\f');
+                    case '\r', '\n' -> {
+                        // a line continuation
+                    }
+                    default -> {
+                        if (next >= '0' && next <= '7') {
+                            int octal = next - '0';
+                            for (int digits = 1; digits < 3 && i + 1 < text.length() && text.charAt(i + 1) >= '0' && text.charAt(i + 1) <= '7'; digits++) {
+                                octal = octal * 8 + text.charAt(++i) - '0';
+                            }
+                            bytes.write(octal);
+                        } else {
+                            bytes.write(next);
+                        }
+                    }
+                }
+            } else if (c == '(') {
+                depth++;
+                bytes.write(c);
+            } else if (c == ')') {
+                if (depth-- == 0) {
+                    return decode(bytes.toByteArray());
+                }
+                bytes.write(c);
+            } else {
+                bytes.write(c);
+            }
+        }
+        return null;
+    }
+
+    private static String hexString(String text, int from) {
+        int end = text.indexOf('>', from);
+        if (end < 0) {
+            return null;
+        }
+        String digits = text.substring(from, end).replaceAll("\\s", "");
+        if (digits.length() % 2 == 1) {
+            digits += "0";
+        }
+        byte[] bytes = new byte[digits.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(digits.charAt(2 * i), 16);
+            int low = Character.digit(digits.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return decode(bytes);
+    }
+
+    /**
+     * Text strings are UTF-16 when they start with a byte order mark, and PDFDocEncoding, close enough to Latin-1 for
+     * metadata, otherwise.
+     */
+    private static String decode(byte[] bytes) {
+        if (bytes.length >= 2 && (bytes[0] & 0xFF) == 0xFE && (bytes[1] & 0xFF) == 0xFF) {
+            return new String(bytes, 2, bytes.length - 2, StandardCharsets.UTF_16BE);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String latin1(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static MetadataType string(String value) {
+        return MetadataType.newBuilder().setString(value).build();
+    }
+}
@@ -0,0 +1,413 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * An in-memory inverted index of documents identified by path, ranked with BM25.
+ * <p>
+ * Added documents are buffered until {@value #MAX_BUFFERED_DOCUMENTS} have been collected, or a search needs them,
+ * and are then built into an immutable {@link SearchSegment}. Replacing or removing a document only marks its old
+ * version deleted. Once there are more than {@value #MAX_SEGMENTS} segments, the smallest {@value #MERGE_FACTOR} are
+ * merged into one on a background thread, and a segment with more deleted documents than live ones is rewritten on its
+ * own. Merges are built outside the lock, so searches and updates carry on against the old segments until the merged
+ * one is swapped in.
+ */
+final class SearchIndex implements Closeable {
+    static final int MAX_BUFFERED_DOCUMENTS = 10_000;
+    static final int MAX_SEGMENTS = 8;
+    static final int MERGE_FACTOR = 4;
+    private static final Log logger = LogFactory.getLog(SearchIndex.class);
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int maxBufferedDocuments;
+    private final List<SearchSegment> segments = new ArrayList<>();
+    private final Map<String, DocRef> documents = new HashMap<>();
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "search-index-merge");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private SearchSegment.Builder buffer = new SearchSegment.Builder();
+    private volatile int buffered;
+    private boolean merging;
+
+    SearchIndex() {
+        this(MAX_BUFFERED_DOCUMENTS);
+    }
+
+    SearchIndex(int maxBufferedDocuments) {
+        this.maxBufferedDocuments = maxBufferedDocuments;
+    }
+
+    /**
+     * Adds a document, replacing any earlier version with the same path.
+     *
+     * @param termFreqs how many times each term occurs in the document
+     */
+    void add(String path, long size, long modified, Map<String, Integer> termFreqs) {
+        lock.writeLock().lock();
+        try {
+            delete(documents.get(path));
+            documents.put(path, new DocRef(null, buffer.add(path, size, modified, termFreqs), size, modified));
+            buffered = buffer.docCount();
+            if (buffer.docCount() >= maxBufferedDocuments) {
+                flushBuffer();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return {@code true} if the document was in the index
+     */
+    boolean remove(String path) {
+        lock.writeLock().lock();
+        try {
+            DocRef ref = documents.remove(path);
+            delete(ref);
+            return ref != null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return {@code true} if the document is indexed with this size and modified time
+     */
+    boolean isCurrent(String path, long size, long modified) {
+        lock.readLock().lock();
+        try {
+            DocRef ref = documents.get(path);
+            return ref != null && ref.size() == size && ref.modified() == modified;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Set<String> paths() {
+        lock.readLock().lock();
+        try {
+            return new LinkedHashSet<>(documents.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the buffered documents into a segment, so they are searchable without waiting for the next search.
+     */
+    void flush() {
+        lock.writeLock().lock();
+        try {
+            flushBuffer();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the best matches for any of the query's terms, highest score first, then by path.
+     *
+     * @param filter only paths it accepts are returned
+     */
+    List<Hit> search(String query, int limit, Predicate<String> filter) {
+        Set<String> terms = new LinkedHashSet<>();
+        SearchTokenizer.tokenize(query, terms::add);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        if (buffered > 0) {
+            flush();
+        }
+        lock.readLock().lock();
+        try {
+            long docCount = 0;
+            long totalLength = 0;
+            for (SearchSegment segment : segments) {
+                docCount += segment.liveDocCount();
+                totalLength += segment.liveLength();
+            }
+            if (docCount == 0) {
+                return List.of();
+            }
+            float averageLength = Math.max(1f, (float) totalLength / docCount);
+
+            // deleted documents still count towards document frequencies until merged away, as in most engines
+            String[] queryTerms = terms.toArray(String[]::new);
+            float[] idf = new float[queryTerms.length];
+            for (int t = 0; t < queryTerms.length; t++) {
+                long docFreq = 0;
+                for (SearchSegment segment : segments) {
+                    docFreq += segment.docFreq(queryTerms[t]);
+                }
+                idf[t] = (float) Math.log(1 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+            }
+
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, Hit.BEST_FIRST.reversed());
+            for (SearchSegment segment : segments) {
+                collect(segment, queryTerms, idf, averageLength, limit, filter, top);
+            }
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(Hit.BEST_FIRST);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        merger.shutdownNow();
+        try {
+            merger.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Scores a segment document at a time, stepping all of the query terms' postings together.
+     */
+    private static void collect(SearchSegment segment, String[] terms, float[] idf, float averageLength, int limit,
+                                Predicate<String> filter, PriorityQueue<Hit> top) {
+        SearchSegment.Postings[] cursors = new SearchSegment.Postings[terms.length];
+        for (int t = 0; t < terms.length; t++) {
+            SearchSegment.Postings postings = segment.postings(terms[t]);
+            if (postings != null && postings.next()) {
+                cursors[t] = postings;
+            }
+        }
+
+        while (true) {
+            int doc = Integer.MAX_VALUE;
+            for (SearchSegment.Postings cursor : cursors) {
+                if (cursor != null) {
+                    doc = Math.min(doc, cursor.doc());
+                }
+            }
+            if (doc == Integer.MAX_VALUE) {
+                return;
+            }
+
+            float norm = K1 * (1 - B + B * segment.length(doc) / averageLength);
+            float score = 0;
+            for (int t = 0; t < cursors.length; t++) {
+                SearchSegment.Postings cursor = cursors[t];
+                if (cursor != null && cursor.doc() == doc) {
+                    int freq = cursor.freq();
+                    score += idf[t] * freq * (K1 + 1) / (freq + norm);
+                    cursor.next();
+                }
+            }
+            if (segment.isDeleted(doc)) {
+                continue;
+            }
+
+            Hit worst = top.peek();
+            if (top.size() < limit || worst.score() <= score) {
+                String path = segment.path(doc);
+                if (!filter.test(path)) {
+                    continue;
+                }
+                Hit hit = new Hit(path, score, segment.size(doc), segment.modified(doc));
+                if (top.size() < limit) {
+                    top.add(hit);
+                } else if (Hit.BEST_FIRST.compare(hit, worst) < 0) {
+                    top.poll();
+                    top.add(hit);
+                }
+            }
+        }
+    }
+
+    private void delete(DocRef ref) {
+        if (ref == null) {
+            return;
+        }
+        if (ref.segment() == null) {
+            buffer.delete(ref.doc());
+        } else {
+            ref.segment().delete(ref.doc());
+            if (shouldCompact(ref.segment())) {
+                scheduleMerge();
+            }
+        }
+    }
+
+    private void flushBuffer() {
+        if (buffer.docCount() == 0) {
+            return;
+        }
+        SearchSegment segment = buffer.build();
+        for (int doc = 0; doc < segment.docCount(); doc++) {
+            if (!segment.isDeleted(doc)) {
+                String path = segment.path(doc);
+                documents.put(path, new DocRef(segment, doc, segment.size(doc), segment.modified(doc)));
+            }
+        }
+        buffer = new SearchSegment.Builder();
+        buffered = 0;
+        if (segment.liveDocCount() > 0) {
+            segments.add(segment);
+        }
+        scheduleMerge();
+    }
+
+    private static boolean shouldCompact(SearchSegment segment) {
+        return segment.docCount() - segment.liveDocCount() > segment.liveDocCount();
+    }
+
+    /**
+     * Picks the segments to merge next, or none. Must be called holding the write lock.
+     */
+    private List<SearchSegment> mergeCandidates() {
+        if (segments.size() > MAX_SEGMENTS) {
+            List<SearchSegment> smallest = new ArrayList<>(segments);
+            smallest.sort(Comparator.comparingInt(SearchSegment::liveDocCount));
+            return new ArrayList<>(smallest.subList(0, MERGE_FACTOR));
+        }
+        for (SearchSegment segment : segments) {
+            if (shouldCompact(segment)) {
+                return List.of(segment);
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Must be called holding the write lock.
+     */
+    private void scheduleMerge() {
+        if (merging || merger.isShutdown()) {
+            return;
+        }
+        List<SearchSegment> sources = mergeCandidates();
+        if (sources.isEmpty()) {
+            return;
+        }
+        List<BitSet> deleted = new ArrayList<>(sources.size());
+        for (SearchSegment source : sources) {
+            deleted.add(source.deletedDocs());
+        }
+        merging = true;
+        merger.execute(() -> merge(sources, deleted));
+    }
+
+    private void merge(List<SearchSegment> sources, List<BitSet> deleted) {
+        SearchSegment.Merged merged;
+        try {
+            merged = SearchSegment.merge(sources, deleted);
+        } catch (RuntimeException e) {
+            logger.error("Failed to merge search index segments", e);
+            lock.writeLock().lock();
+            merging = false;
+            lock.writeLock().unlock();
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            SearchSegment segment = merged.segment();
+            for (int s = 0; s < sources.size(); s++) {
+                SearchSegment source = sources.get(s);
+                int[] docMap = merged.docMaps()[s];
+                // documents deleted while the merge was running
+                BitSet deletedSince = source.deletedDocs();
+                deletedSince.andNot(deleted.get(s));
+                for (int doc = deletedSince.nextSetBit(0); doc >= 0; doc = deletedSince.nextSetBit(doc + 1)) {
+                    segment.delete(docMap[doc]);
+                }
+                for (int doc = 0; doc < docMap.length; doc++) {
+                    if (docMap[doc] >= 0 && !source.isDeleted(doc)) {
+                        String path = source.path(doc);
+                        documents.put(path, new DocRef(segment, docMap[doc], source.size(doc), source.modified(doc)));
+                    }
+                }
+            }
+            segments.removeAll(sources);
+            if (segment.liveDocCount() > 0) {
+                segments.add(segment);
+            }
+            merging = false;
+            scheduleMerge();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Where the live version of a document is, with {@code segment} {@code null} while it is still buffered.
+     */
+    private record DocRef(SearchSegment segment, int doc, long size, long modified) {
+    }
+
+    record Hit(String path, float score, long size, long modified) {
+        static final Comparator<Hit> BEST_FIRST = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparing(Hit::path);
+    }
+}
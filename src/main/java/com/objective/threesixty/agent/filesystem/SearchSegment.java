@@ -0,0 +1,396 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * An immutable run of indexed documents and the postings of their terms, as built by a {@link SearchIndex}.
+ * <p>
+ * Terms are kept sorted, each with a postings list of ascending document numbers and term frequencies, delta and
+ * variable-length encoded into a single byte array. Only the set of deleted documents changes after a segment is
+ * built, and only under its index's write lock.
+ */
+final class SearchSegment {
+    private final String[] terms;
+    private final int[] docFreqs;
+    private final int[] postingsOffsets;
+    private final byte[] postings;
+    private final String[] paths;
+    private final int[] lengths;
+    private final long[] sizes;
+    private final long[] modified;
+    private final BitSet deleted;
+    private long liveLength;
+
+    private SearchSegment(String[] terms, int[] docFreqs, int[] postingsOffsets, byte[] postings, String[] paths,
+                          int[] lengths, long[] sizes, long[] modified, BitSet deleted) {
+        this.terms = terms;
+        this.docFreqs = docFreqs;
+        this.postingsOffsets = postingsOffsets;
+        this.postings = postings;
+        this.paths = paths;
+        this.lengths = lengths;
+        this.sizes = sizes;
+        this.modified = modified;
+        this.deleted = deleted;
+        for (int doc = 0; doc < paths.length; doc++) {
+            if (!deleted.get(doc)) {
+                liveLength += lengths[doc];
+            }
+        }
+    }
+
+    int docCount() {
+        return paths.length;
+    }
+
+    int liveDocCount() {
+        return paths.length - deleted.cardinality();
+    }
+
+    /**
+     * @return the total number of terms in the documents that have not been deleted
+     */
+    long liveLength() {
+        return liveLength;
+    }
+
+    boolean isDeleted(int doc) {
+        return deleted.get(doc);
+    }
+
+    void delete(int doc) {
+        if (!deleted.get(doc)) {
+            deleted.set(doc);
+            liveLength -= lengths[doc];
+        }
+    }
+
+    BitSet deletedDocs() {
+        return (BitSet) deleted.clone();
+    }
+
+    String path(int doc) {
+        return paths[doc];
+    }
+
+    int length(int doc) {
+        return lengths[doc];
+    }
+
+    long size(int doc) {
+        return sizes[doc];
+    }
+
+    long modified(int doc) {
+        return modified[doc];
+    }
+
+    /**
+     * @return the number of documents containing the term, including deleted documents
+     */
+    int docFreq(String term) {
+        int i = Arrays.binarySearch(terms, term);
+        return i >= 0 ? docFreqs[i] : 0;
+    }
+
+    /**
+     * @return a cursor over the term's postings, positioned before the first, or {@code null} if no document has it
+     */
+    Postings postings(String term) {
+        int i = Arrays.binarySearch(terms, term);
+        return i >= 0 ? new Postings(postings, postingsOffsets[i], postingsOffsets[i + 1]) : null;
+    }
+
+    /**
+     * Builds one segment from the live documents of several, in order, leaving out documents deleted in
+     * {@code deleted}.
+     *
+     * @param deleted the documents of each segment to leave out, as of when the merge started
+     * @return the merged segment, and where each source document ended up in it
+     */
+    static Merged merge(List<SearchSegment> segments, List<BitSet> deleted) {
+        int[][] docMaps = new int[segments.size()][];
+        List<String> paths = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        List<Long> modified = new ArrayList<>();
+        for (int s = 0; s < segments.size(); s++) {
+            SearchSegment segment = segments.get(s);
+            docMaps[s] = new int[segment.docCount()];
+            for (int doc = 0; doc < segment.docCount(); doc++) {
+                if (deleted.get(s).get(doc)) {
+                    docMaps[s][doc] = -1;
+                } else {
+                    docMaps[s][doc] = paths.size();
+                    paths.add(segment.paths[doc]);
+                    lengths.add(segment.lengths[doc]);
+                    sizes.add(segment.sizes[doc]);
+                    modified.add(segment.modified[doc]);
+                }
+            }
+        }
+
+        // merge the sorted term dictionaries, visiting each distinct term once with the segments that have it
+        PriorityQueue<int[]> cursors = new PriorityQueue<>((a, b) -> {
+            int c = segments.get(a[0]).terms[a[1]].compareTo(segments.get(b[0]).terms[b[1]]);
+            return c != 0 ? c : Integer.compare(a[0], b[0]);
+        });
+        for (int s = 0; s < segments.size(); s++) {
+            if (segments.get(s).terms.length > 0) {
+                cursors.add(new int[]{s, 0});
+            }
+        }
+        List<String> terms = new ArrayList<>();
+        List<Integer> docFreqs = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        PostingsWriter out = new PostingsWriter();
+        List<int[]> sameTerm = new ArrayList<>();
+        while (!cursors.isEmpty()) {
+            sameTerm.clear();
+            int[] first = cursors.poll();
+            String term = segments.get(first[0]).terms[first[1]];
+            sameTerm.add(first);
+            while (!cursors.isEmpty() && segments.get(cursors.peek()[0]).terms[cursors.peek()[1]].equals(term)) {
+                sameTerm.add(cursors.poll());
+            }
+
+            int start = out.size();
+            out.startTerm();
+            int docFreq = 0;
+            for (int[] cursor : sameTerm) {
+                Postings postings = segments.get(cursor[0]).postings(term);
+                while (postings.next()) {
+                    int doc = docMaps[cursor[0]][postings.doc()];
+                    if (doc >= 0) {
+                        out.add(doc, postings.freq());
+                        docFreq++;
+                    }
+                }
+                if (++cursor[1] < segments.get(cursor[0]).terms.length) {
+                    cursors.add(cursor);
+                }
+            }
+            if (docFreq > 0) {
+                terms.add(term);
+                docFreqs.add(docFreq);
+                offsets.add(start);
+            } else {
+                out.truncate(start);
+            }
+        }
+        offsets.add(out.size());
+
+        SearchSegment merged = new SearchSegment(terms.toArray(String[]::new),
+            docFreqs.stream().mapToInt(Integer::intValue).toArray(),
+            offsets.stream().mapToInt(Integer::intValue).toArray(),
+            out.toByteArray(),
+            paths.toArray(String[]::new),
+            lengths.stream().mapToInt(Integer::intValue).toArray(),
+            sizes.stream().mapToLong(Long::longValue).toArray(),
+            modified.stream().mapToLong(Long::longValue).toArray(),
+            new BitSet());
+        return new Merged(merged, docMaps);
+    }
+
+    record Merged(SearchSegment segment, int[][] docMaps) {
+    }
+
+    /**
+     * A cursor over one term's postings, in ascending document order.
+     */
+    static final class Postings {
+        private final byte[] data;
+        private final int end;
+        private int position;
+        private int doc = -1;
+        private int freq;
+
+        private Postings(byte[] data, int start, int end) {
+            this.data = data;
+            this.position = start;
+            this.end = end;
+        }
+
+        boolean next() {
+            if (position >= end) {
+                doc = Integer.MAX_VALUE;
+                return false;
+            }
+            doc = (doc < 0 ? 0 : doc) + readVarInt();
+            freq = readVarInt();
+            return true;
+        }
+
+        /**
+         * @return the current document, or {@link Integer#MAX_VALUE} once the postings are exhausted
+         */
+        int doc() {
+            return doc;
+        }
+
+        int freq() {
+            return freq;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects documents and their term frequencies until they are built into a segment.
+     */
+    static final class Builder {
+        private final Map<String, int[]> postings = new HashMap<>();
+        private final Map<String, Integer> postingsSizes = new HashMap<>();
+        private final List<String> paths = new ArrayList<>();
+        private final List<Integer> lengths = new ArrayList<>();
+        private final List<Long> sizes = new ArrayList<>();
+        private final List<Long> modified = new ArrayList<>();
+        private final BitSet deleted = new BitSet();
+
+        /**
+         * @param termFreqs how many times each term occurs in the document
+         * @return the document's number in the segment being built
+         */
+        int add(String path, long size, long modified, Map<String, Integer> termFreqs) {
+            int doc = paths.size();
+            int length = 0;
+            for (Map.Entry<String, Integer> entry : termFreqs.entrySet()) {
+                String term = entry.getKey();
+                int[] list = postings.get(term);
+                int used = postingsSizes.getOrDefault(term, 0);
+                if (list == null) {
+                    list = new int[4];
+                } else if (used == list.length) {
+                    list = Arrays.copyOf(list, list.length * 2);
+                }
+                list[used] = doc;
+                list[used + 1] = entry.getValue();
+                postings.put(term, list);
+                postingsSizes.put(term, used + 2);
+                length += entry.getValue();
+            }
+            paths.add(path);
+            lengths.add(length);
+            sizes.add(size);
+            this.modified.add(modified);
+            return doc;
+        }
+
+        void delete(int doc) {
+            deleted.set(doc);
+        }
+
+        int docCount() {
+            return paths.size();
+        }
+
+        String path(int doc) {
+            return paths.get(doc);
+        }
+
+        SearchSegment build() {
+            String[] terms = postings.keySet().toArray(String[]::new);
+            Arrays.sort(terms);
+            int[] docFreqs = new int[terms.length];
+            int[] offsets = new int[terms.length + 1];
+            PostingsWriter out = new PostingsWriter();
+            for (int i = 0; i < terms.length; i++) {
+                int[] list = postings.get(terms[i]);
+                int used = postingsSizes.get(terms[i]);
+                offsets[i] = out.size();
+                out.startTerm();
+                for (int j = 0; j < used; j += 2) {
+                    out.add(list[j], list[j + 1]);
+                }
+                docFreqs[i] = used / 2;
+            }
+            offsets[terms.length] = out.size();
+            return new SearchSegment(terms, docFreqs, offsets, out.toByteArray(),
+                paths.toArray(String[]::new),
+                lengths.stream().mapToInt(Integer::intValue).toArray(),
+                sizes.stream().mapToLong(Long::longValue).toArray(),
+                modified.stream().mapToLong(Long::longValue).toArray(),
+                (BitSet) deleted.clone());
+        }
+    }
+
+    private static final class PostingsWriter {
+        private byte[] data = new byte[1024];
+        private int size;
+        private int lastDoc;
+
+        void startTerm() {
+            lastDoc = -1;
+        }
+
+        void add(int doc, int freq) {
+            writeVarInt(lastDoc < 0 ? doc : doc - lastDoc);
+            writeVarInt(freq);
+            lastDoc = doc;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void truncate(int size) {
+            this.size = size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, size);
+        }
+
+        private void writeVarInt(int value) {
+            if (size + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * Splits text into lower-case search terms: runs of letters and digits, with everything else a separator. Terms
+ * longer than {@value #MAX_TERM_LENGTH} characters are dropped, as they are almost always encoded data rather than
+ * words.
+ */
+final class SearchTokenizer {
+    static final int MAX_TERM_LENGTH = 64;
+
+    private final char[] buffer = new char[8192];
+    private final StringBuilder term = new StringBuilder(MAX_TERM_LENGTH);
+    private boolean overlong;
+
+    static void tokenize(CharSequence text, Consumer<String> terms) {
+        SearchTokenizer tokenizer = new SearchTokenizer();
+        for (int i = 0; i < text.length(); i++) {
+            tokenizer.accept(text.charAt(i), terms);
+        }
+        tokenizer.endTerm(terms);
+    }
+
+    /**
+     * Tokenizes the reader's text as it is read, without holding all of it.
+     */
+    void tokenize(Reader reader, Consumer<String> terms) throws IOException {
+        for (int n = reader.read(buffer); n >= 0; n = reader.read(buffer)) {
+            for (int i = 0; i < n; i++) {
+                accept(buffer[i], terms);
+            }
+        }
+        endTerm(terms);
+    }
+
+    private void accept(char c, Consumer<String> terms) {
+        if (Character.isLetterOrDigit(c)) {
+            if (term.length() < MAX_TERM_LENGTH) {
+                term.append(Character.toLowerCase(c));
+            } else {
+                overlong = true;
+            }
+        } else {
+            endTerm(terms);
+        }
+    }
+
+    private void endTerm(Consumer<String> terms) {
+        if (term.length() > 0 && !overlong) {
+            terms.accept(term.toString());
+        }
+        term.setLength(0);
+        overlong = false;
+    }
+}
@@ -0,0 +1,216 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watches folders under a root with a {@link WatchService}, passing file and folder changes to a {@link Listener} on
+ * its own daemon thread.
+ * <p>
+ * No folder is watched until it is passed to {@link #register}, which a crawl does for each folder as it walks them, so
+ * the tree is not walked a second time just to start the watch. Folders created or moved into a watched folder are
+ * watched as they appear. Events can be lost if they arrive
+ * faster than they are handled, or if a new folder cannot be watched, for example once the operating system's watch
+ * limit is reached; the listener is then told of an overflow and should fall back to rescanning the root.
+ * <p>
+ * Roots on network file systems are refused: NFS and SMB clients only report changes made through the same client, so
+ * files changed by other machines would be missed. Callers fall back to scanning instead.
+ */
+final class SourceWatcher implements Closeable {
+    private static final Log logger = LogFactory.getLog(SourceWatcher.class);
+    private static final Set<String> NETWORK_FILE_STORE_TYPES = Set.of("nfs", "nfs4", "cifs", "smb", "smb2", "smb3",
+        "smbfs", "afs", "ncpfs", "9p", "davfs", "fuse.sshfs");
+
+    private final Path root;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    private final Thread thread;
+
+    private SourceWatcher(Path root, Listener listener) throws IOException {
+        this.root = root;
+        this.listener = listener;
+        this.watchService = root.getFileSystem().newWatchService();
+        this.thread = new Thread(this::run, "source-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the watch, without watching any folders yet.
+     *
+     * @throws IOException if {@code root} is on a network file system, or no watch service is available
+     */
+    static SourceWatcher start(Path root, Listener listener) throws IOException {
+        Path absoluteRoot = root.toAbsolutePath().normalize();
+        if (isOnNetworkFileSystem(absoluteRoot)) {
+            throw new IOException(absoluteRoot + " is on a network file system, which does not report changes made by other machines");
+        }
+        SourceWatcher watcher = new SourceWatcher(absoluteRoot, listener);
+        watcher.thread.start();
+        return watcher;
+    }
+
+    /**
+     * Watches the folder itself, but not the folders already inside it. Safe to call from several threads at once,
+     * and again for a folder that is already watched.
+     *
+     * @throws IOException if the folder cannot be watched, for example once the operating system's limit is reached
+     */
+    void register(Path dir) throws IOException {
+        Path absolute = dir.toAbsolutePath().normalize();
+        directories.put(absolute.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), absolute);
+    }
+
+    Path root() {
+        return root;
+    }
+
+    /**
+     * Whether {@code path} is on a UNC share, or on a file store of a known network type. Windows drive letters mapped
+     * to a share report the remote volume's type, such as NTFS, so cannot be told apart from local drives.
+     */
+    static boolean isOnNetworkFileSystem(Path path) throws IOException {
+        Path fsRoot = path.getRoot();
+        if (fsRoot != null && fsRoot.toString().startsWith("\\\\")) {
+            return true;
+        }
+        return isNetworkFileStoreType(Files.getFileStore(path).type());
+    }
+
+    static boolean isNetworkFileStoreType(String type) {
+        return type != null && NETWORK_FILE_STORE_TYPES.contains(type.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = directories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (dir == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        listener.overflow();
+                    } else {
+                        handle(event.kind(), dir.resolve((Path) event.context()));
+                    }
+                }
+                if (!key.reset()) {
+                    // the folder is gone, which its parent reports as a delete
+                    directories.remove(key);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Stopped watching " + root, e);
+        }
+    }
+
+    private void handle(WatchEvent.Kind<?> kind, Path path) {
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            listener.deleted(path);
+            return;
+        }
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            try {
+                registerAll(path);
+            } catch (IOException e) {
+                logger.warn("Failed to watch " + path + ": " + e);
+                listener.overflow();
+                return;
+            }
+        }
+        listener.changed(path);
+    }
+
+    private void registerAll(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                // a folder removed while it was being registered is reported by its parent's watch
+                if (Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+                    throw e;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Told about changes on the watcher's thread, so should hand any slow work on.
+     */
+    interface Listener {
+        /**
+         * A file or folder was created, modified or moved in. Anything already inside a new folder is not reported
+         * separately.
+         */
+        void changed(Path path);
+
+        /**
+         * A file or folder was deleted or moved out. Anything that was inside a folder is not reported separately.
+         */
+        void deleted(Path path);
+
+        /**
+         * Some changes were lost, so the whole root should be rescanned.
+         */
+        void overflow();
+    }
+}
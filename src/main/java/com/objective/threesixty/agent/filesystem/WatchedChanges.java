@@ -0,0 +1,246 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects the folders a {@link SourceWatcher} has seen change under a crawled root, so that the next incremental
+ * crawl only needs to list those folders and the folders above them.
+ * <p>
+ * Changes are only trusted once a crawl has walked the whole root while the watch was running, and until an overflow
+ * loses some; crawls in between are left to the journal. Files edited in place are seen by the watch, so their folders
+ * are listed even where the journal would skip them. Folders collected for a crawl that does not finish are kept for the
+ * next one.
+ * <p>
+ * Crawls whose changes cannot be trusted register each folder they walk with the {@link SourceWatcher}, so the first
+ * crawl both starts the watch and becomes its baseline. If a folder cannot be watched, the watch is stopped for good
+ * and later crawls are left to the journal.
+ */
+final class WatchedChanges implements SourceWatcher.Listener {
+    private static final Log logger = LogFactory.getLog(WatchedChanges.class);
+
+    private final Path root;
+    private SourceWatcher watcher;
+    private Set<Path> changedFolders = new HashSet<>();
+    private Set<Path> changedTrees = new HashSet<>();
+    private boolean baseline;
+    private long overflows;
+
+    WatchedChanges(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Sets the watcher that crawls register their folders with, and that is closed if one cannot be watched.
+     */
+    synchronized void setWatcher(SourceWatcher watcher) {
+        this.watcher = watcher;
+    }
+
+    @Override
+    public synchronized void changed(Path path) {
+        changedFolders.add(path.getParent());
+        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            // nothing inside a folder moved in was reported, so all of it needs listing
+            changedTrees.add(path);
+        }
+    }
+
+    @Override
+    public synchronized void deleted(Path path) {
+        changedFolders.add(path.getParent());
+    }
+
+    @Override
+    public synchronized void overflow() {
+        overflows++;
+        baseline = false;
+    }
+
+    /**
+     * Starts a crawl, taking the changes collected so far.
+     *
+     * @param delegate is told about every folder and file the crawl visits, as if nothing were skipped
+     * @return a listener that only enters changed folders, or enters everything if the changes cannot be trusted,
+     * to be closed once the crawl ends
+     */
+    synchronized Crawl beginCrawl(FileTreeWalker.Listener delegate) {
+        Crawl crawl = new Crawl(delegate, baseline ? changedFolders : null, changedTrees, overflows,
+            baseline ? null : watcher);
+        changedFolders = new HashSet<>();
+        changedTrees = new HashSet<>();
+        return crawl;
+    }
+
+    private synchronized void watchFailed(SourceWatcher failed, Path dir, IOException e) {
+        if (watcher != failed) {
+            return;
+        }
+        logger.warn("Could not watch " + dir + " for changes. Crawling " + root + " using the journal alone.", e);
+        watcher = null;
+        overflows++;
+        baseline = false;
+        try {
+            failed.close();
+        } catch (IOException closeFailure) {
+            logger.warn("Failed to stop watching " + root, closeFailure);
+        }
+    }
+
+    private synchronized void crawlFinished(Crawl crawl) {
+        if (crawl.overflows == overflows) {
+            baseline = true;
+        }
+    }
+
+    private synchronized void crawlAbandoned(Crawl crawl) {
+        if (crawl.folders != null) {
+            changedFolders.addAll(crawl.folders);
+        }
+        changedTrees.addAll(crawl.trees);
+    }
+
+    final class Crawl implements FileTreeWalker.Listener {
+        private final FileTreeWalker.Listener delegate;
+        private final Set<Path> folders;
+        private final Set<Path> trees;
+        private final Set<Path> entered = new HashSet<>();
+        private final long overflows;
+        private volatile SourceWatcher registering;
+        private volatile boolean finished;
+
+        Crawl(FileTreeWalker.Listener delegate, Set<Path> folders, Set<Path> trees, long overflows, SourceWatcher registering) {
+            this.delegate = delegate;
+            this.folders = folders;
+            this.trees = trees;
+            this.overflows = overflows;
+            this.registering = registering;
+            if (folders != null) {
+                entered.add(root);
+                for (Path folder : folders) {
+                    addWithParents(folder);
+                }
+                for (Path tree : trees) {
+                    addWithParents(tree);
+                }
+            }
+        }
+
+        @Override
+        public boolean preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+            register(dir);
+            // the delegate is always told about the folder, so a crawl journal still counts it as a subfolder
+            boolean delegateEnters = delegate.preVisitDirectory(dir, attributes);
+            if (folders == null) {
+                return delegateEnters;
+            }
+            // a folder seen to change is listed even if the journal would skip it, as files edited in place are caught
+            if (entered.contains(dir.toAbsolutePath().normalize()) || isInChangedTree(dir)) {
+                return true;
+            }
+            if (delegateEnters) {
+                delegate.directoryDeclined(dir);
+            }
+            return false;
+        }
+
+        @Override
+        public boolean visitFile(Path file, BasicFileAttributes attributes) {
+            return delegate.visitFile(file, attributes);
+        }
+
+        @Override
+        public void fileExcluded(Path file) {
+            delegate.fileExcluded(file);
+        }
+
+        @Override
+        public void directoryDeclined(Path dir) {
+            delegate.directoryDeclined(dir);
+        }
+
+        @Override
+        public void postVisitDirectory(Path dir) throws IOException {
+            delegate.postVisitDirectory(dir);
+            if (dir.toAbsolutePath().normalize().equals(root)) {
+                finished = true;
+                crawlFinished(this);
+            }
+        }
+
+        /**
+         * Keeps the changes for the next crawl unless this one walked the whole root.
+         */
+        void close() {
+            if (!finished) {
+                crawlAbandoned(this);
+            }
+        }
+
+        /**
+         * Watches the folder before it is listed, so no change made after the listing is missed.
+         */
+        private void register(Path dir) {
+            SourceWatcher watcher = registering;
+            if (watcher == null) {
+                return;
+            }
+            try {
+                watcher.register(dir);
+            } catch (IOException e) {
+                registering = null;
+                watchFailed(watcher, dir, e);
+            }
+        }
+
+        private void addWithParents(Path folder) {
+            Path dir = folder;
+            while (dir != null && dir.startsWith(root) && entered.add(dir)) {
+                dir = dir.getParent();
+            }
+        }
+
+        private boolean isInChangedTree(Path dir) {
+            for (Path parent = dir.toAbsolutePath().normalize(); parent != null && parent.startsWith(root); parent = parent.getParent()) {
+                if (trees.contains(parent)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many documents are written at once, and runs their blocking file operations on a dedicated scheduler.
+ * <p>
+ * Writes beyond the limit wait in a queue, without subscribing to their content, so the content is not pulled from the
+ * caller until the write can start. A write can give up its slot before it ends with {@link #releaseSlot()}, once all
+ * that is left is to wait, such as for a group commit. The number of writes in flight, the queue depth and the bytes
+ * written per second are published as gauges.
+ */
+class WritePipeline {
+    static final int RATE_WINDOW_SECONDS = 5;
+
+    private final int maxConcurrentWrites;
+    private final Scheduler scheduler;
+    private final Queue<Waiter> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    private final long[] bucketSeconds = new long[RATE_WINDOW_SECONDS];
+    private final long[] bucketBytes = new long[RATE_WINDOW_SECONDS];
+
+    WritePipeline(int maxConcurrentWrites, int ioThreads, MeterRegistry registry) {
+        this.maxConcurrentWrites = Math.max(1, maxConcurrentWrites);
+        this.scheduler = IoSchedulers.newScheduler(ioThreads, "file-system-writer");
+
+        Gauge.builder("filesystem.writer.in.flight", this, WritePipeline::inFlight)
+            .description("Documents being written")
+            .register(registry);
+        Gauge.builder("filesystem.writer.queue.depth", this, WritePipeline::queueDepth)
+            .description("Documents waiting for a write slot")
+            .register(registry);
+        Gauge.builder("filesystem.writer.bytes.per.second", this, WritePipeline::bytesPerSecond)
+            .description("Document content written per second, averaged over the last " + RATE_WINDOW_SECONDS + " seconds")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    Scheduler scheduler() {
+        return scheduler;
+    }
+
+    int maxConcurrentWrites() {
+        return maxConcurrentWrites;
+    }
+
+    /**
+     * Subscribes to {@code write} on the pipeline's scheduler once fewer than the maximum number of writes are in flight.
+     */
+    <T> Mono<T> submit(Mono<T> write) {
+        return Mono.defer(() -> {
+            Waiter waiter = new Waiter();
+            return Mono.<Void>create(sink -> acquire(waiter, sink))
+                .then(write.subscribeOn(scheduler))
+                .doFinally(signal -> release(waiter))
+                .contextWrite(context -> context.put(Waiter.class, waiter));
+        });
+    }
+
+    /**
+     * Hands the slot of the write this is part of to the next waiting write, without waiting for the write to end.
+     * Does nothing outside a write submitted to this pipeline.
+     */
+    Mono<Void> releaseSlot() {
+        return Mono.deferContextual(context -> {
+            context.<Waiter>getOrEmpty(Waiter.class).ifPresent(this::release);
+            return Mono.empty();
+        });
+    }
+
+    synchronized void recordBytes(long bytes) {
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        int bucket = (int) (second % RATE_WINDOW_SECONDS);
+        if (bucketSeconds[bucket] != second) {
+            bucketSeconds[bucket] = second;
+            bucketBytes[bucket] = 0;
+        }
+        bucketBytes[bucket] += bytes;
+    }
+
+    synchronized double bytesPerSecond() {
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        long bytes = 0;
+        for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+            if (second - bucketSeconds[i] < RATE_WINDOW_SECONDS) {
+                bytes += bucketBytes[i];
+            }
+        }
+        return (double) bytes / RATE_WINDOW_SECONDS;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    synchronized int queueDepth() {
+        return waiting.size();
+    }
+
+    private void acquire(Waiter waiter, MonoSink<Void> sink) {
+        synchronized (this) {
+            if (inFlight >= maxConcurrentWrites) {
+                waiter.sink = sink;
+                waiting.add(waiter);
+                return;
+            }
+            inFlight++;
+            waiter.granted = true;
+        }
+        sink.success();
+    }
+
+    private void release(Waiter waiter) {
+        Waiter next;
+        synchronized (this) {
+            if (waiter.released) {
+                return;
+            }
+            waiter.released = true;
+            if (!waiter.granted) {
+                // cancelled while queued
+                waiting.remove(waiter);
+                return;
+            }
+            next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+            next.granted = true;
+        }
+        // the slot passes straight to the next write
+        next.sink.success();
+    }
+
+    /**
+     * A write's claim on a slot. Guarded by the pipeline's lock.
+     */
+    private static final class Waiter {
+        private MonoSink<Void> sink;
+        private boolean granted;
+        private boolean released;
+    }
+}
@@ -0,0 +1,58 @@
+package com.objective.threesixty.agent;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricsEndpointExposureTest {
+    private final MetricsEndpointExposure exposure = new MetricsEndpointExposure();
+
+    @Test
+    void testPostProcessEnvironment_addsEndpointsToExposedList() {
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty(MetricsEndpointExposure.EXPOSE_PROPERTY, "true")
+            .withProperty(MetricsEndpointExposure.INCLUDE_PROPERTY + "[0]", "refresh");
+
+        exposure.postProcessEnvironment(environment, new SpringApplication());
+
+        assertEquals("refresh,health,metrics,prometheus", environment.getProperty(MetricsEndpointExposure.INCLUDE_PROPERTY));
+    }
+
+    @Test
+    void testPostProcessEnvironment_offByDefault() {
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty(MetricsEndpointExposure.INCLUDE_PROPERTY, "refresh");
+
+        exposure.postProcessEnvironment(environment, new SpringApplication());
+
+        assertEquals("refresh", environment.getProperty(MetricsEndpointExposure.INCLUDE_PROPERTY));
+    }
+}
@@ -0,0 +1,122 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class AttributeCacheTest {
+    private static final Map<String, MetadataType> METADATA = Map.of("fileSize", MetadataType.newBuilder().setLong(3).build());
+    private static final Map<String, MetadataType> CONTENT_METADATA = Map.of("detectedMimeType",
+        MetadataType.newBuilder().setString("text/plain").build());
+
+    @TempDir
+    Path tempDir;
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testGetFresh_onlyWithinMaxAge() throws IOException {
+        AttributeCache cache = new AttributeCache(10, 1000, clock::get);
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+
+        assertNull(cache.getFresh(file));
+        cache.put(file, attributes(file));
+        clock.addAndGet(1_000_000_000L);
+        assertNotNull(cache.getFresh(file));
+        clock.incrementAndGet();
+        assertNull(cache.getFresh(file));
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void testPut_keepsContentMetadataOnlyWhileFileIsUnchanged() throws IOException {
+        AttributeCache cache = new AttributeCache(10, 1000, clock::get);
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+
+        AttributeCache.Entry entry = cache.put(file, attributes(file));
+        assertNull(entry.metadata());
+        cache.putMetadata(file, entry, METADATA, CONTENT_METADATA);
+        assertSame(METADATA, cache.getFresh(file).metadata());
+
+        AttributeCache.Entry reread = cache.put(file, attributes(file));
+        assertNull(reread.metadata());
+        assertSame(CONTENT_METADATA, reread.contentMetadata());
+
+        Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2020-01-01T00:00:00Z")));
+        assertNull(cache.put(file, attributes(file)).contentMetadata());
+    }
+
+    @Test
+    void testPutMetadata_ignoresEntryReplacedSinceRead() throws IOException {
+        AttributeCache cache = new AttributeCache(10, 1000, clock::get);
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+
+        AttributeCache.Entry stale = cache.put(file, attributes(file));
+        Files.writeString(file, "abcdef");
+        cache.put(file, attributes(file));
+        cache.putMetadata(file, stale, METADATA, CONTENT_METADATA);
+
+        assertNull(cache.getFresh(file).metadata());
+    }
+
+    @Test
+    void testPut_evictsLeastRecentlyUsed() throws IOException {
+        AttributeCache cache = new AttributeCache(2, 1000, clock::get);
+        Path a = Files.writeString(tempDir.resolve("a.txt"), "a");
+        Path b = Files.writeString(tempDir.resolve("b.txt"), "b");
+        Path c = Files.writeString(tempDir.resolve("c.txt"), "c");
+
+        cache.put(a, attributes(a));
+        cache.put(b, attributes(b));
+        cache.getFresh(a);
+        cache.put(c, attributes(c));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.getFresh(a));
+        assertNull(cache.getFresh(b));
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+}
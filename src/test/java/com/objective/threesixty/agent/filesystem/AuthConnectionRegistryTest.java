@@ -0,0 +1,95 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.remoteagent.sdk.agent.AuthConnection;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AuthConnectionRegistryTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger checks = new AtomicInteger();
+
+    @Test
+    void testCheck_reusesResultUntilPropertiesChange() {
+        AuthConnectionRegistry registry = new AuthConnectionRegistry(10, 1000, clock::get);
+        AuthConnection connection = new AuthConnection("a", Map.of("user", "jo"));
+
+        assertEquals("", registry.check(connection, this::countedCheck));
+        assertEquals("", registry.check(new AuthConnection("a", Map.of("user", "jo")), this::countedCheck));
+        assertEquals(1, checks.get());
+
+        registry.check(new AuthConnection("a", Map.of("user", "sam")), this::countedCheck);
+        assertEquals(2, checks.get());
+        assertEquals(Set.of(new AuthConnection("a", Map.of("user", "sam"))), registry.connections());
+    }
+
+    @Test
+    void testCheck_expiresUnusedConnections() {
+        AuthConnectionRegistry registry = new AuthConnectionRegistry(10, 1000, clock::get);
+        AuthConnection a = new AuthConnection("a", Map.of());
+        AuthConnection b = new AuthConnection("b", Map.of());
+
+        registry.check(a, this::countedCheck);
+        clock.addAndGet(600_000_000L);
+        registry.register(b);
+        clock.addAndGet(600_000_000L);
+
+        assertEquals(Set.of(b), registry.connections());
+        assertEquals(1, registry.expired());
+        registry.check(a, this::countedCheck);
+        assertEquals(2, checks.get());
+    }
+
+    @Test
+    void testRegister_evictsLeastRecentlyUsed() {
+        AuthConnectionRegistry registry = new AuthConnectionRegistry(2, 1000, clock::get);
+        AuthConnection a = new AuthConnection("a", Map.of());
+        AuthConnection b = new AuthConnection("b", Map.of());
+        AuthConnection c = new AuthConnection("c", Map.of());
+
+        registry.register(a);
+        registry.register(b);
+        registry.register(a);
+        registry.register(c);
+
+        assertEquals(Set.of(a, c), registry.connections());
+        assertEquals(1, registry.evicted());
+        assertEquals(0, registry.expired());
+    }
+
+    private String countedCheck(AuthConnection connection) {
+        checks.incrementAndGet();
+        return "";
+    }
+}
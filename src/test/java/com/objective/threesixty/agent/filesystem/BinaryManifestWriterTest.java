@@ -0,0 +1,148 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import com.objective.threesixty.MetadataType;
+import com.objective.threesixty.StringArray;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryManifestWriterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testAppend_readsBackEveryType() throws IOException {
+        Map<String, MetadataType> metadata = new HashMap<>();
+        metadata.put("string", MetadataType.newBuilder().setString("value é").build());
+        metadata.put("largeString", MetadataType.newBuilder().setLargeString("large").build());
+        metadata.put("boolean", MetadataType.newBuilder().setBoolean(true).build());
+        metadata.put("binary", MetadataType.newBuilder().setBinary(ByteString.fromHex("ac89")).build());
+        metadata.put("dateTime", MetadataType.newBuilder().setDateTime(Timestamp.newBuilder().setSeconds(-5).setNanos(7)).build());
+        metadata.put("decimal", MetadataType.newBuilder().setDecimal(789.01f).build());
+        metadata.put("long", MetadataType.newBuilder().setLong(Long.MIN_VALUE).build());
+        metadata.put("integer", MetadataType.newBuilder().setInteger(-42).build());
+        metadata.put("double", MetadataType.newBuilder().setDouble(123.456).build());
+        metadata.put("array", MetadataType.newBuilder().setArray(StringArray.newBuilder().addValues("a").addValues("b")).build());
+        Map<String, MetadataType> withEmpty = new HashMap<>(metadata);
+        withEmpty.put("empty", MetadataType.newBuilder().build());
+
+        try (BinaryManifestWriter writer = BinaryManifestWriter.open(tempDir, Long.MAX_VALUE)) {
+            writer.append("a/doc1.txt", withEmpty);
+            writer.append("a/doc2.txt", metadata);
+        }
+
+        List<Map.Entry<String, Map<String, MetadataType>>> documents = read(tempDir.resolve(BinaryManifestWriter.segmentName(1)));
+        assertEquals(2, documents.size());
+        assertEquals("a/doc1.txt", documents.get(0).getKey());
+        assertEquals(metadata, documents.get(0).getValue());
+        assertEquals(metadata, documents.get(1).getValue());
+    }
+
+    @Test
+    void testAppend_keysStoredOncePerSegment() throws IOException {
+        Map<String, MetadataType> metadata = Map.of("aVeryLongRepeatedMetadataKeyName", MetadataType.newBuilder().setInteger(1).build());
+
+        try (BinaryManifestWriter writer = BinaryManifestWriter.open(tempDir, Long.MAX_VALUE)) {
+            for (int i = 0; i < 100; i++) {
+                writer.append("doc" + i, metadata);
+            }
+        }
+
+        String content = Files.readString(tempDir.resolve(BinaryManifestWriter.segmentName(1)), StandardCharsets.ISO_8859_1);
+        assertEquals(content.indexOf("aVeryLongRepeatedMetadataKeyName"), content.lastIndexOf("aVeryLongRepeatedMetadataKeyName"));
+    }
+
+    @Test
+    void testAppend_rollsSegments() throws IOException {
+        Map<String, MetadataType> metadata = Map.of("key", MetadataType.newBuilder().setString("x".repeat(100)).build());
+
+        try (BinaryManifestWriter writer = BinaryManifestWriter.open(tempDir, 500)) {
+            for (int i = 0; i < 20; i++) {
+                writer.append("doc" + i, metadata);
+            }
+        }
+        try (BinaryManifestWriter writer = BinaryManifestWriter.open(tempDir, 500)) {
+            writer.append("afterRestart", metadata);
+        }
+
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(tempDir)) {
+            segments = files.sorted().toList();
+        }
+        assertTrue(segments.size() > 2);
+        List<String> paths = new ArrayList<>();
+        for (Path segment : segments) {
+            read(segment).forEach(document -> {
+                assertEquals(metadata, document.getValue(), "every segment carries its own keys");
+                paths.add(document.getKey());
+            });
+        }
+        assertEquals(21, paths.size());
+        assertEquals("afterRestart", paths.get(20));
+    }
+
+    @Test
+    void testRead_ignoresTruncatedRecord() throws IOException {
+        Map<String, MetadataType> metadata = Map.of("key", MetadataType.newBuilder().setString("value").build());
+        try (BinaryManifestWriter writer = BinaryManifestWriter.open(tempDir, Long.MAX_VALUE)) {
+            writer.append("doc1", metadata);
+            writer.append("doc2", metadata);
+        }
+        Path segment = tempDir.resolve(BinaryManifestWriter.segmentName(1));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        List<Map.Entry<String, Map<String, MetadataType>>> documents = read(segment);
+        assertEquals(1, documents.size());
+        assertEquals("doc1", documents.get(0).getKey());
+    }
+
+    private static List<Map.Entry<String, Map<String, MetadataType>>> read(Path segment) throws IOException {
+        List<Map.Entry<String, Map<String, MetadataType>>> documents = new ArrayList<>();
+        BinaryManifestReader.read(segment, (path, metadata) -> documents.add(Map.entry(path, metadata)));
+        return documents;
+    }
+}
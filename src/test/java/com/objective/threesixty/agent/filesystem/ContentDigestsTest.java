@@ -0,0 +1,93 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ContentDigestsTest {
+    @TempDir
+    Path tempDir;
+
+    private final ContentDigests contentDigests = new ContentDigests();
+
+    @Test
+    void testDigesting_recordsAtEndOfStream() throws IOException {
+        byte[] content = "some content to digest".getBytes();
+        Path file = Files.write(tempDir.resolve("file.txt"), content);
+
+        try (InputStream in = contentDigests.digesting(file, attributes(file), Files.newInputStream(file))) {
+            assertEquals(content[0], in.read());
+            assertNull(contentDigests.get(file, attributes(file)));
+            in.readAllBytes();
+        }
+
+        ContentDigests.Digests digests = contentDigests.get(file, attributes(file));
+        assertEquals(DigestUtils.sha256Hex(content), digests.sha256());
+        assertEquals(DigestUtils.md5Hex(content), digests.md5());
+    }
+
+    @Test
+    void testDigesting_partialReadNotRecorded() throws IOException {
+        Path file = Files.write(tempDir.resolve("file.txt"), "some content to digest".getBytes());
+
+        try (InputStream in = contentDigests.digesting(file, attributes(file), Files.newInputStream(file))) {
+            in.skip(5);
+            in.readAllBytes();
+        }
+
+        assertNull(contentDigests.get(file, attributes(file)));
+    }
+
+    @Test
+    void testGet_fileChanged() throws IOException {
+        Path file = Files.write(tempDir.resolve("file.txt"), "content".getBytes());
+        ContentDigests.Digester digester = new ContentDigests.Digester();
+        digester.update(ByteBuffer.wrap("content".getBytes()));
+        contentDigests.put(file, attributes(file), digester.finish());
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(attributes(file).lastModifiedTime().toMillis() + 1000));
+
+        assertNull(contentDigests.get(file, attributes(file)));
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+}
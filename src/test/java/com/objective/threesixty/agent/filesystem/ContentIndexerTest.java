@@ -0,0 +1,150 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentIndexerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testScan_indexesTextAndNamesOnly() throws IOException {
+        Path notes = Files.writeString(tempDir.resolve("notes.txt"), "The budget meeting moved to Friday");
+        Files.createDirectory(tempDir.resolve("sub"));
+        Path binary = Files.writeString(tempDir.resolve("sub/budget-scan.bin"), "meeting meeting");
+        Files.writeString(tempDir.resolve("large.txt"), "meeting " + "x".repeat(100));
+
+        try (ContentIndexer indexer = new ContentIndexer(tempDir, 50)) {
+            indexer.scan();
+            assertTrue(indexer.isComplete());
+
+            assertEquals(List.of(notes.toString()), paths(indexer, "friday"));
+            assertEquals(List.of(notes.toString()), paths(indexer, "meeting"));
+            assertEquals(List.of(binary.toString()), paths(indexer, "scan"));
+            assertEquals(List.of(tempDir.resolve("large.txt").toString()), paths(indexer, "large"));
+        }
+    }
+
+    @Test
+    void testScan_reindexesChangedAndRemovesDeleted() throws IOException {
+        Path a = Files.writeString(tempDir.resolve("a.txt"), "apple");
+        Path b = Files.writeString(tempDir.resolve("b.txt"), "banana");
+
+        try (ContentIndexer indexer = new ContentIndexer(tempDir, 1024)) {
+            indexer.scan();
+            assertFalse(indexer.index(a, attributes(a)));
+
+            Files.writeString(a, "cherry pie");
+            Files.delete(b);
+            indexer.scan();
+
+            assertEquals(List.of(), paths(indexer, "apple"));
+            assertEquals(List.of(a.toString()), paths(indexer, "cherry"));
+            assertEquals(List.of(), paths(indexer, "banana"));
+            assertEquals(1, indexer.index().size());
+        }
+    }
+
+    @Test
+    void testStart_followsChangesUnderRoot() throws Exception {
+        Path a = Files.writeString(tempDir.resolve("a.txt"), "apple");
+
+        try (ContentIndexer indexer = new ContentIndexer(tempDir, 1024)) {
+            indexer.start().get(10, TimeUnit.SECONDS);
+            assertEquals(List.of(a.toString()), paths(indexer, "apple"));
+
+            Path folder = Files.createDirectory(tempDir.resolve("folder"));
+            Path b = Files.writeString(folder.resolve("b.txt"), "banana");
+            Files.writeString(a, "cherry");
+            awaitPaths(indexer, "banana", List.of(b.toString()));
+            awaitPaths(indexer, "cherry", List.of(a.toString()));
+
+            deleteRecursively(folder);
+            awaitPaths(indexer, "banana", List.of());
+        }
+    }
+
+    @Test
+    void testOverflow_rescansRoot() throws Exception {
+        try (ContentIndexer indexer = new ContentIndexer(tempDir, 1024)) {
+            indexer.scan();
+            Path a = Files.writeString(tempDir.resolve("a.txt"), "apple");
+
+            indexer.overflow();
+            indexer.overflow();
+            awaitPaths(indexer, "apple", List.of(a.toString()));
+        }
+    }
+
+    @Test
+    void testIsText() {
+        assertTrue(ContentIndexer.isText("readme.md"));
+        assertTrue(ContentIndexer.isText("data.json"));
+        assertTrue(ContentIndexer.isText("page.html"));
+        assertFalse(ContentIndexer.isText("photo.jpg"));
+        assertFalse(ContentIndexer.isText("archive.zip"));
+    }
+
+    private static List<String> paths(ContentIndexer indexer, String query) {
+        return indexer.index().search(query, 10, path -> true).stream().map(SearchIndex.Hit::path).toList();
+    }
+
+    private static void awaitPaths(ContentIndexer indexer, String query, List<String> expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!paths(indexer, query).equals(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, paths(indexer, query));
+    }
+
+    private static void deleteRecursively(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+}
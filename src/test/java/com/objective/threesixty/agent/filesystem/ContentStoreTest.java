@@ -0,0 +1,83 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentStoreTest {
+    private static final String SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCommit_storesContentOnce() throws IOException {
+        ContentStore store = new ContentStore(tempDir.resolve("store"));
+
+        Path first = Files.writeString(store.newTempFile(), "hello");
+        assertFalse(store.contains(SHA256));
+        assertTrue(store.commit(first, SHA256));
+        assertTrue(store.contains(SHA256));
+
+        Path second = Files.writeString(store.newTempFile(), "hello");
+        assertFalse(store.commit(second, SHA256));
+        assertFalse(Files.exists(first));
+        assertFalse(Files.exists(second));
+    }
+
+    @Test
+    void testLink_replacesTarget() throws IOException {
+        ContentStore store = new ContentStore(tempDir.resolve("store"));
+        store.commit(Files.writeString(store.newTempFile(), "hello"), SHA256);
+        Path target = Files.writeString(tempDir.resolve("out.txt"), "");
+
+        store.link(SHA256, target);
+
+        assertArrayEquals("hello".getBytes(), Files.readAllBytes(target));
+        assertTrue(Files.isSameFile(store.blob(SHA256), target));
+    }
+
+    @Test
+    void testDiscard() throws IOException {
+        ContentStore store = new ContentStore(tempDir.resolve("store"));
+        Path temp = Files.writeString(store.newTempFile(), "hello");
+
+        store.discard(temp);
+        store.discard(temp);
+
+        assertFalse(Files.exists(temp));
+    }
+}
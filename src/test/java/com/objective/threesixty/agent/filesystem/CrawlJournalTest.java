@@ -0,0 +1,290 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CrawlJournalTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testHasChanged_survivesReopen() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path file = Files.writeString(source.resolve("a.txt"), "abc");
+
+        try (CrawlJournal journal = CrawlJournal.open(tempDir.resolve("journal"), source, false)) {
+            assertTrue(journal.hasChanged(file, attributes(file)));
+            journal.recordEmitted(file, attributes(file));
+            assertFalse(journal.hasChanged(file, attributes(file)));
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(tempDir.resolve("journal"), source, false)) {
+            assertFalse(journal.hasChanged(file, attributes(file)));
+
+            Files.writeString(file, "abcd");
+            assertTrue(journal.hasChanged(file, attributes(file)));
+        }
+    }
+
+    @Test
+    void testPreVisitDirectory_skipsUnchangedDirectory() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path folder = Files.createDirectory(source.resolve("folder"));
+        Files.setLastModifiedTime(folder, FileTime.from(Instant.parse("2024-01-01T00:00:00Z")));
+
+        try (CrawlJournal journal = CrawlJournal.open(tempDir.resolve("journal"), source, true)) {
+            assertTrue(journal.preVisitDirectory(folder, attributes(folder)));
+            journal.postVisitDirectory(folder);
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(tempDir.resolve("journal"), source, true)) {
+            assertFalse(journal.preVisitDirectory(folder, attributes(folder)));
+
+            Files.setLastModifiedTime(folder, FileTime.from(Instant.parse("2024-01-02T00:00:00Z")));
+            assertTrue(journal.preVisitDirectory(folder, attributes(folder)));
+        }
+    }
+
+    @Test
+    void testPreVisitDirectory_alwaysEntersDirectoryWithSubdirectories() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path parent = Files.createDirectory(source.resolve("parent"));
+        Path child = Files.createDirectory(parent.resolve("child"));
+
+        try (CrawlJournal journal = CrawlJournal.open(tempDir.resolve("journal"), source, true)) {
+            assertTrue(journal.preVisitDirectory(parent, attributes(parent)));
+            assertTrue(journal.preVisitDirectory(child, attributes(child)));
+            journal.postVisitDirectory(child);
+            journal.postVisitDirectory(parent);
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(tempDir.resolve("journal"), source, true)) {
+            assertTrue(journal.preVisitDirectory(parent, attributes(parent)));
+            assertFalse(journal.preVisitDirectory(child, attributes(child)));
+        }
+    }
+
+    @Test
+    void testPreVisitDirectory_incompleteDirectoryIsNotRecorded() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+
+        try (CrawlJournal journal = CrawlJournal.open(tempDir.resolve("journal"), source, true)) {
+            assertTrue(journal.preVisitDirectory(source, attributes(source)));
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(tempDir.resolve("journal"), source, true)) {
+            assertTrue(journal.preVisitDirectory(source, attributes(source)));
+        }
+    }
+
+    @Test
+    void testPostVisitDirectory_directoryWithExcludedFileIsNotRecorded() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path folder = Files.createDirectory(source.resolve("folder"));
+        Path file = Files.writeString(folder.resolve("old.txt"), "old");
+
+        try (CrawlJournal journal = CrawlJournal.open(tempDir.resolve("journal"), source, true)) {
+            assertTrue(journal.preVisitDirectory(folder, attributes(folder)));
+            journal.fileExcluded(file);
+            journal.postVisitDirectory(folder);
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(tempDir.resolve("journal"), source, true)) {
+            assertTrue(journal.preVisitDirectory(folder, attributes(folder)));
+        }
+    }
+
+    @Test
+    void testDirectoryDeclined_directoryIsNotRecorded() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path folder = Files.createDirectory(source.resolve("folder"));
+
+        try (CrawlJournal journal = CrawlJournal.open(tempDir.resolve("journal"), source, true)) {
+            assertTrue(journal.preVisitDirectory(folder, attributes(folder)));
+            journal.directoryDeclined(folder);
+            journal.postVisitDirectory(folder);
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(tempDir.resolve("journal"), source, true)) {
+            assertTrue(journal.preVisitDirectory(folder, attributes(folder)));
+        }
+    }
+
+    @Test
+    void testClose_removesEntriesNotSeenInListedDirectory() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path kept = Files.writeString(source.resolve("kept.txt"), "1");
+        Path deleted = Files.writeString(source.resolve("deleted.txt"), "2");
+        BasicFileAttributes deletedAttributes = attributes(deleted);
+        Path journalDir = tempDir.resolve("journal");
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            journal.recordEmitted(kept, attributes(kept));
+            journal.recordEmitted(deleted, deletedAttributes);
+        }
+
+        Files.delete(deleted);
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            assertTrue(journal.preVisitDirectory(source, attributes(source)));
+            assertFalse(journal.visitFile(kept, attributes(kept)));
+            journal.postVisitDirectory(source);
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            assertFalse(journal.hasChanged(kept, attributes(kept)));
+            assertTrue(journal.hasChanged(deleted, deletedAttributes));
+        }
+    }
+
+    @Test
+    void testClose_keepsEntriesOfUnlistedDirectories() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path folder = Files.createDirectory(source.resolve("folder"));
+        Path file = Files.writeString(folder.resolve("a.txt"), "1");
+        Path journalDir = tempDir.resolve("journal");
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            journal.recordEmitted(file, attributes(file));
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            assertTrue(journal.preVisitDirectory(source, attributes(source)));
+            journal.postVisitDirectory(source);
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            assertFalse(journal.hasChanged(file, attributes(file)));
+        }
+    }
+
+    @Test
+    void testRecordEmitted_manyEntriesSurviveReopenAndRemoval() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path kept = Files.createDirectory(source.resolve("kept"));
+        Path emptied = Files.createDirectory(source.resolve("emptied"));
+        BasicFileAttributes attributes = attributes(source);
+        Path journalDir = tempDir.resolve("journal");
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            for (int i = 0; i < 5_000; i++) {
+                journal.recordEmitted(kept.resolve(i + ".txt"), attributes);
+                journal.recordEmitted(emptied.resolve(i + ".txt"), attributes);
+            }
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            assertTrue(journal.preVisitDirectory(emptied, attributes(emptied)));
+            journal.postVisitDirectory(emptied);
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            for (int i = 0; i < 5_000; i++) {
+                assertFalse(journal.hasChanged(kept.resolve(i + ".txt"), attributes));
+                assertTrue(journal.hasChanged(emptied.resolve(i + ".txt"), attributes));
+            }
+        }
+    }
+
+    @Test
+    void testOpen_refusesJournalInUse() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path journalDir = tempDir.resolve("journal");
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            assertThrows(IOException.class, () -> CrawlJournal.open(journalDir, source, false));
+        }
+
+        CrawlJournal.open(journalDir, source, false).close();
+    }
+
+    @Test
+    void testRecordEmitted_flushesBeforeClose() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path journalDir = tempDir.resolve("journal");
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            for (int i = 0; i < 1_000; i++) {
+                Path file = source.resolve(i + ".txt");
+                journal.recordEmitted(file, attributes(source));
+            }
+
+            try (var files = Files.list(journalDir)) {
+                assertTrue(Files.size(files.filter(file -> file.toString().endsWith(".journal")).findFirst().orElseThrow()) > 1_000);
+            }
+        }
+    }
+
+    @Test
+    void testOpen_discardsTruncatedRecord() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path first = Files.writeString(source.resolve("first.txt"), "1");
+        Path second = Files.writeString(source.resolve("second.txt"), "2");
+        Path journalDir = tempDir.resolve("journal");
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            journal.recordEmitted(first, attributes(first));
+            journal.recordEmitted(second, attributes(second));
+        }
+
+        Path journalFile;
+        try (var files = Files.list(journalDir)) {
+            journalFile = files.filter(file -> file.toString().endsWith(".journal")).findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(journalFile);
+        Files.write(journalFile, Arrays.copyOf(bytes, bytes.length - 3));
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            assertFalse(journal.hasChanged(first, attributes(first)));
+            assertTrue(journal.hasChanged(second, attributes(second)));
+            journal.recordEmitted(second, attributes(second));
+        }
+
+        try (CrawlJournal journal = CrawlJournal.open(journalDir, source, false)) {
+            assertFalse(journal.hasChanged(second, attributes(second)));
+        }
+        assertEquals(bytes.length, Files.size(journalFile));
+    }
+
+    private BasicFileAttributes attributes(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+}
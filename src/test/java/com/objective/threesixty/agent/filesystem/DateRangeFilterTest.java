@@ -0,0 +1,121 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DateRangeFilterTest {
+    private static final long START = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final long END = Instant.parse("2024-12-31T00:00:00Z").toEpochMilli();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testVisitFile_inRange() throws IOException {
+        DateRangeFilter filter = new DateRangeFilter(FileTreeWalker.ENTER_ALL, START, END, false);
+        Path before = createFile("before.txt", "2023-06-01T00:00:00Z");
+        Path during = createFile("during.txt", "2024-06-01T00:00:00Z");
+        Path after = createFile("after.txt", "2025-06-01T00:00:00Z");
+
+        assertFalse(filter.visitFile(before, attributes(before)));
+        assertTrue(filter.visitFile(during, attributes(during)));
+        assertFalse(filter.visitFile(after, attributes(after)));
+    }
+
+    @Test
+    void testPreVisitDirectory_prunesOnlyOldFoldersWithoutSubfolders() throws IOException {
+        Path oldLeaf = Files.createDirectory(tempDir.resolve("oldLeaf"));
+        Path oldParent = Files.createDirectories(tempDir.resolve("oldParent/child"));
+        oldParent = oldParent.getParent();
+        Path newLeaf = Files.createDirectory(tempDir.resolve("newLeaf"));
+        setModified(oldLeaf, "2023-06-01T00:00:00Z");
+        setModified(oldParent, "2023-06-01T00:00:00Z");
+        setModified(newLeaf, "2024-06-01T00:00:00Z");
+
+        DateRangeFilter pruning = new DateRangeFilter(FileTreeWalker.ENTER_ALL, START, END, true);
+        assertFalse(pruning.preVisitDirectory(oldLeaf, attributes(oldLeaf)));
+        assertTrue(pruning.preVisitDirectory(oldParent, attributes(oldParent)));
+        assertTrue(pruning.preVisitDirectory(newLeaf, attributes(newLeaf)));
+
+        DateRangeFilter notPruning = new DateRangeFilter(FileTreeWalker.ENTER_ALL, START, END, false);
+        assertTrue(notPruning.preVisitDirectory(oldLeaf, attributes(oldLeaf)));
+    }
+
+    @Test
+    void testPreVisitDirectory_delegateSeesPrunedFolder() throws IOException {
+        Path oldLeaf = Files.createDirectory(tempDir.resolve("oldLeaf"));
+        setModified(oldLeaf, "2023-06-01T00:00:00Z");
+        List<Path> visited = new ArrayList<>();
+        List<Path> declined = new ArrayList<>();
+
+        DateRangeFilter filter = new DateRangeFilter(new FileTreeWalker.Listener() {
+            @Override
+            public boolean preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                visited.add(dir);
+                return true;
+            }
+
+            @Override
+            public void directoryDeclined(Path dir) {
+                declined.add(dir);
+            }
+        }, START, END, true);
+
+        assertFalse(filter.preVisitDirectory(oldLeaf, attributes(oldLeaf)));
+        assertEquals(List.of(oldLeaf), visited);
+        assertEquals(List.of(oldLeaf), declined);
+    }
+
+    private Path createFile(String name, String modified) throws IOException {
+        Path file = Files.writeString(tempDir.resolve(name), "abc");
+        setModified(file, modified);
+        return file;
+    }
+
+    private void setModified(Path path, String modified) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.from(Instant.parse(modified)));
+    }
+
+    private BasicFileAttributes attributes(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class);
+    }
+}
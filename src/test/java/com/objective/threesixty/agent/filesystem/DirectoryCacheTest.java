@@ -0,0 +1,105 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryCacheTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCreateDirectories_onlyCreatesOnce() throws IOException {
+        DirectoryCache cache = new DirectoryCache();
+        Path directory = tempDir.resolve("a/b/c");
+
+        cache.createDirectories(directory);
+        assertTrue(Files.isDirectory(directory));
+        assertTrue(cache.size() >= 3);
+
+        // remembered, so not checked again until invalidated
+        Files.delete(directory);
+        cache.createDirectories(directory);
+        assertFalse(Files.exists(directory));
+
+        cache.invalidate(directory);
+        cache.createDirectories(directory);
+        assertTrue(Files.isDirectory(directory));
+    }
+
+    @Test
+    void testCreateDirectories_concurrentRequestsShareCreation() throws Exception {
+        DirectoryCache cache = new DirectoryCache();
+        Path directory = tempDir.resolve("shared/folder");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> {
+                    cache.createDirectories(directory);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(Files.isDirectory(directory));
+    }
+
+    @Test
+    void testCreateDirectories_failureIsNotRemembered() throws IOException {
+        DirectoryCache cache = new DirectoryCache();
+        Path blocker = Files.writeString(tempDir.resolve("blocker"), "not a folder");
+        Path directory = blocker.resolve("child");
+
+        assertThrows(IOException.class, () -> cache.createDirectories(directory));
+        assertEquals(0, cache.size());
+
+        Files.delete(blocker);
+        cache.createDirectories(directory);
+        assertTrue(Files.isDirectory(directory));
+    }
+}
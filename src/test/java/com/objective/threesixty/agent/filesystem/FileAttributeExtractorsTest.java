@@ -0,0 +1,92 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FileAttributeExtractorsTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testPosix_ownerGroupAndPermissions() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+        assumeTrue(Files.getFileAttributeView(file, PosixFileAttributeView.class) != null);
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r-----"));
+
+        Map<String, MetadataType> metadata = new FileAttributeExtractors.Posix().extract(sample(file));
+
+        assertEquals(Files.getOwner(file).getName(), metadata.get("owner").getString());
+        assertNotNull(metadata.get("group"));
+        assertEquals("rw-r-----", metadata.get("permissions").getString());
+    }
+
+    @Test
+    void testExtendedAttributes_decodedAsUtf8() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(file, UserDefinedFileAttributeView.class);
+        assumeTrue(view != null);
+        try {
+            view.write("project", StandardCharsets.UTF_8.encode("Zoë"));
+        } catch (IOException | UnsupportedOperationException e) {
+            assumeTrue(false, "user attributes not supported on " + Files.getFileStore(file).type());
+        }
+
+        Map<String, MetadataType> metadata = new FileAttributeExtractors.ExtendedAttributes().extract(sample(file));
+
+        assertEquals("Zoë", metadata.get("xattr.project").getString());
+    }
+
+    @Test
+    void testAttributeExtractors_doNotReadContent() {
+        assertFalse(new FileAttributeExtractors.Posix().readsContent());
+        assertFalse(new FileAttributeExtractors.Acl().readsContent());
+        assertFalse(new FileAttributeExtractors.ExtendedAttributes().readsContent());
+    }
+
+    private static MetadataExtractor.FileSample sample(Path file) throws IOException {
+        return new MetadataExtractor.FileSample(file, Files.readAttributes(file, BasicFileAttributes.class), ByteBuffer.allocate(0));
+    }
+}
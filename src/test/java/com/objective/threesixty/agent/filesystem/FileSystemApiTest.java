@@ -0,0 +1,150 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.objective.threesixty.RunApiResponse;
+import com.objective.threesixty.Value;
+import com.objective.threesixty.remoteagent.sdk.utils.CustomParameters;
+import com.objective.threesixty.remoteagent.sdk.utils.ValueUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class FileSystemApiTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final FileSystemReader reader = new FileSystemReader();
+    private final FileSystemApi api = new FileSystemApi(reader);
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        reader.close();
+    }
+
+    @Test
+    void testBatchMetadata_returnsMetadataAndErrorsInOrder() throws IOException {
+        Path a = Files.writeString(tempDir.resolve("a.txt"), "abc");
+        Path b = Files.writeString(tempDir.resolve("b.txt"), "abcdef");
+        Path missing = tempDir.resolve("missing.txt");
+        String body = mapper.writeValueAsString(Map.of("ids", new String[]{b.toString(), missing.toString(), a.toString()}));
+
+        RunApiResponse response = api.handle(null, "POST", "batch/metadata/", body, parameters(Map.of()));
+
+        assertEquals(FileSystemApi.OK, response.getCode());
+        JsonNode documents = mapper.readTree(response.getResponse()).get("documents");
+        assertEquals(3, documents.size());
+        assertEquals(b.toString(), documents.get(0).get("id").asText());
+        assertEquals(6, documents.get(0).get("metadata").get("fileSize").asLong());
+        assertEquals("b.txt", documents.get(0).get("metadata").get("fileName").asText());
+        assertEquals(missing.toString(), documents.get(1).get("id").asText());
+        assertEquals("Document not found", documents.get(1).get("error").asText());
+        assertFalse(documents.get(1).has("metadata"));
+        assertEquals(3, documents.get(2).get("metadata").get("fileSize").asLong());
+    }
+
+    @Test
+    void testBatchMetadata_acceptsArrayAndLimitsToSearchRoot() throws IOException {
+        Path root = Files.createDirectory(tempDir.resolve("root"));
+        Path inside = Files.writeString(root.resolve("inside.txt"), "abc");
+        Path outside = Files.writeString(tempDir.resolve("outside.txt"), "abc");
+        String body = mapper.writeValueAsString(new String[]{outside.toString(), inside.toString()});
+
+        RunApiResponse response = api.handle(null, "post", "/batch/metadata", body,
+            parameters(Map.of("searchRootPath", root.toString())));
+
+        JsonNode documents = mapper.readTree(response.getResponse()).get("documents");
+        assertEquals("Document is outside the search root", documents.get(0).get("error").asText());
+        assertEquals(3, documents.get(1).get("metadata").get("fileSize").asLong());
+    }
+
+    @Test
+    void testBatchMetadata_doesNotFollowLinksOutOfSearchRoot() throws IOException {
+        Path root = Files.createDirectory(tempDir.resolve("root"));
+        Path outside = Files.writeString(tempDir.resolve("outside.txt"), "abc");
+        Path fileLink = Files.createSymbolicLink(root.resolve("fileLink"), outside);
+        Path folderLink = Files.createSymbolicLink(root.resolve("folderLink"), tempDir);
+        String body = mapper.writeValueAsString(new String[]{fileLink.toString(), folderLink.resolve("outside.txt").toString()});
+
+        RunApiResponse response = api.handle(null, "POST", "/batch/metadata", body,
+            parameters(Map.of("searchRootPath", root.toString())));
+
+        JsonNode documents = mapper.readTree(response.getResponse()).get("documents");
+        assertEquals("Document is outside the search root", documents.get(0).get("error").asText());
+        assertEquals("Document is outside the search root", documents.get(1).get("error").asText());
+    }
+
+    @Test
+    void testBatchMetadata_readsLinksWithinSearchRootThroughRealPath() throws IOException {
+        Path root = Files.createDirectory(tempDir.resolve("root"));
+        Path target = Files.writeString(root.resolve("target.txt"), "abcd");
+        Path link = Files.createSymbolicLink(root.resolve("link"), target);
+        Path missing = root.resolve("missing.txt");
+        String body = mapper.writeValueAsString(new String[]{link.toString(), missing.toString()});
+
+        RunApiResponse response = api.handle(null, "POST", "/batch/metadata", body,
+            parameters(Map.of("searchRootPath", root.toString())));
+
+        JsonNode documents = mapper.readTree(response.getResponse()).get("documents");
+        assertEquals(link.toString(), documents.get(0).get("id").asText());
+        assertEquals("target.txt", documents.get(0).get("metadata").get("fileName").asText());
+        assertEquals(4, documents.get(0).get("metadata").get("fileSize").asLong());
+        assertEquals("Document is outside the search root", documents.get(1).get("error").asText());
+    }
+
+    @Test
+    void testHandle_rejectsBadRequests() {
+        CustomParameters params = parameters(Map.of());
+        assertEquals(FileSystemApi.NOT_FOUND, api.handle(null, "POST", "/unknown", "[]", params).getCode());
+        assertEquals(FileSystemApi.METHOD_NOT_ALLOWED, api.handle(null, "GET", "/batch/metadata", "[]", params).getCode());
+        assertEquals(FileSystemApi.BAD_REQUEST, api.handle(null, "POST", "/batch/metadata", "{\"ids\": 1}", params).getCode());
+        assertEquals(FileSystemApi.BAD_REQUEST, api.handle(null, "POST", "/batch/metadata", "[1]", params).getCode());
+        assertEquals(FileSystemApi.BAD_REQUEST, api.handle(null, "POST", "/batch/metadata", "not json", params).getCode());
+        assertEquals(FileSystemApi.BAD_REQUEST, api.handle(null, "POST", "/batch/metadata", "", params).getCode());
+
+        String tooMany = "[" + "\"x\",".repeat(FileSystemApi.MAX_BATCH_SIZE) + "\"x\"]";
+        assertEquals(FileSystemApi.BAD_REQUEST, api.handle(null, "POST", "/batch/metadata", tooMany, params).getCode());
+    }
+
+    private static CustomParameters parameters(Map<String, String> values) {
+        Map<String, Value> parameters = new HashMap<>();
+        values.forEach((key, value) -> parameters.put(key, ValueUtils.stringValue(value)));
+        return new CustomParameters(parameters);
+    }
+}
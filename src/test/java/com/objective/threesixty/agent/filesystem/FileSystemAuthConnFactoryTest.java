@@ -27,6 +27,7 @@ package com.objective.threesixty.agent.filesystem;
  */
 
 import com.objective.threesixty.remoteagent.sdk.agent.AuthConnection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -61,4 +62,29 @@ class FileSystemAuthConnFactoryTest {
         assertTrue(factory.getAuthConnections().contains(authConn));
         assertEquals("", result);
     }
+
+    @Test
+    void testCheckConnection_recordsMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FileSystemAuthConnFactory meteredFactory = new FileSystemAuthConnFactory(registry);
+
+        meteredFactory.checkConnection(authConn);
+        meteredFactory.checkConnection(authConn);
+
+        assertEquals(2, registry.get("filesystem.auth.checks").counter().count());
+        assertEquals(1, registry.get("filesystem.auth.connections").gauge().value());
+        assertEquals(0, registry.get("filesystem.auth.evictions").tag("cause", "size").functionCounter().count());
+    }
+
+    @Test
+    void testRegister_boundedBySize() {
+        FileSystemAuthConnFactory boundedFactory = new FileSystemAuthConnFactory(2, 60);
+
+        for (int i = 0; i < 5; i++) {
+            boundedFactory.register(new AuthConnection("id" + i, new HashMap<>()));
+        }
+
+        assertEquals(2, boundedFactory.getAuthConnections().size());
+        assertTrue(boundedFactory.getAuthConnections().contains(new AuthConnection("id4", new HashMap<>())));
+    }
 }
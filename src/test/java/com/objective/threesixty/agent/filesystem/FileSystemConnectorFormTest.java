@@ -50,6 +50,14 @@ class FileSystemConnectorFormTest {
         Field field = formConfig.getRepoFields(0);
         assertEquals("File Path", field.getLabel());
         assertEquals("sourceFilePath", field.getId());
+        assertEquals("incrementalCrawl", formConfig.getRepoFields(1).getId());
+        assertEquals("incrementalCrawl", formConfig.getRepoFields(2).getDependsOn());
+        assertEquals("incrementalCrawl", formConfig.getRepoFields(3).getDependsOn());
+        assertEquals("watchSourceFolder", formConfig.getRepoFields(4).getId());
+        assertEquals("incrementalCrawl", formConfig.getRepoFields(4).getDependsOn());
+        assertEquals("crawlParallelism", formConfig.getRepoFields(5).getId());
+        assertEquals("pruneFoldersByDate", formConfig.getRepoFields(6).getId());
+        assertEquals("computeDigests", formConfig.getRepoFields(7).getId());
     }
 
     @Test
@@ -64,6 +72,17 @@ class FileSystemConnectorFormTest {
         Field field = formConfig.getOutputFields(0);
         assertEquals("Output File Path", field.getLabel());
         assertEquals("outFilePath", field.getId());
+        assertEquals("computeDigests", formConfig.getOutputFields(2).getId());
+        assertEquals("deduplicateContent", formConfig.getOutputFields(3).getId());
+        assertEquals("deduplicateContent", formConfig.getOutputFields(4).getDependsOn());
+        assertEquals("groupCommit", formConfig.getOutputFields(5).getId());
+        assertEquals("groupCommit", formConfig.getOutputFields(6).getDependsOn());
+        assertEquals("groupCommit", formConfig.getOutputFields(7).getDependsOn());
+        assertEquals("metadataOutput", formConfig.getOutputFields(8).getId());
+        assertEquals("sidecar", formConfig.getOutputFields(8).getSelectField().getValue());
+        assertEquals(3, formConfig.getOutputFields(8).getSelectField().getOptionsCount());
+        assertEquals("atomicWrites", formConfig.getOutputFields(9).getId());
+        assertEquals("copyLocalSources", formConfig.getOutputFields(10).getId());
     }
 
     @Test
@@ -100,8 +119,9 @@ class FileSystemConnectorFormTest {
 
         assertNotNull(fields);
         assertNotNull(formConfig);
-        assertEquals(1, formConfig.getSearchConnFieldsCount());
-        Field field = formConfig.getSearchConnFields(0);
-        assertEquals("textField", field.getId());
+        assertEquals(3, formConfig.getSearchConnFieldsCount());
+        assertEquals("searchRootPath", formConfig.getSearchConnFields(0).getId());
+        assertEquals("searchMaxResults", formConfig.getSearchConnFields(1).getId());
+        assertEquals("searchMaxFileMb", formConfig.getSearchConnFields(2).getId());
     }
 }
\ No newline at end of file
@@ -26,17 +26,32 @@ package com.objective.threesixty.agent.filesystem;
  * %-
  */
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.objective.threesixty.ObjectiveAuthConn;
+import com.objective.threesixty.RunApiResponse;
 import com.objective.threesixty.remoteagent.sdk.agent.AuthConnection;
 import com.objective.threesixty.remoteagent.sdk.utils.CustomParameters;
+import com.objective.threesixty.remoteagent.sdk.utils.ValueUtils;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FileSystemContentSearchServiceTest {
+    private static final AuthConnection AUTH_CONNECTION = new AuthConnection(ObjectiveAuthConn.newBuilder().build());
+
+    @TempDir
+    Path tempDir;
     private FileSystemContentSearchService searchService;
 
     @BeforeEach
@@ -44,8 +59,59 @@ class FileSystemContentSearchServiceTest {
         searchService = new FileSystemContentSearchService();
     }
 
+    @AfterEach
+    void tearDown() {
+        searchService.close();
+    }
+
     @Test
     void runQuery() {
         assertEquals("", searchService.runQuery(new AuthConnection(ObjectiveAuthConn.newBuilder().build()), "", "", new CustomParameters(Map.of())));
     }
+
+    @Test
+    void runQuery_returnsRankedMatches() throws IOException {
+        Files.createDirectories(tempDir.resolve("reports"));
+        Files.writeString(tempDir.resolve("reports/q1.txt"), "revenue revenue forecast");
+        Files.writeString(tempDir.resolve("reports/q2.txt"), "revenue summary");
+        Files.writeString(tempDir.resolve("notes.txt"), "revenue");
+
+        JsonNode response = query("", "Revenue forecast");
+        assertTrue(response.get("complete").asBoolean());
+        assertEquals("Revenue forecast", response.get("query").asText());
+        JsonNode results = response.get("results");
+        assertEquals(3, results.size());
+        assertEquals(tempDir.resolve("reports/q1.txt").toAbsolutePath().toString(), results.get(0).get("id").asText());
+        assertEquals("q1.txt", results.get(0).get("name").asText());
+        assertEquals(24, results.get(0).get("size").asLong());
+
+        JsonNode scoped = query("reports", "revenue").get("results");
+        assertEquals(2, scoped.size());
+        assertTrue(scoped.get(0).get("id").asText().contains("reports"));
+        assertTrue(scoped.get(1).get("id").asText().contains("reports"));
+    }
+
+    @Test
+    void runQuery_rejectsCollectionOutsideRoot() {
+        CustomParameters params = new CustomParameters(Map.of("searchRootPath", ValueUtils.stringValue(tempDir.toString())));
+        assertThrows(IllegalArgumentException.class, () -> searchService.runQuery(AUTH_CONNECTION, "../elsewhere", "revenue", params));
+    }
+
+    @Test
+    void runApi_servesBatchMetadata() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+        CustomParameters params = new CustomParameters(Map.of());
+
+        RunApiResponse response = searchService.runApi(AUTH_CONNECTION, "POST", FileSystemApi.BATCH_METADATA, "",
+            "{\"ids\": [\"" + file.toString().replace("\\", "\\\\") + "\"]}", params);
+
+        assertEquals(FileSystemApi.OK, response.getCode());
+        JsonNode document = new ObjectMapper().readTree(response.getResponse()).get("documents").get(0);
+        assertEquals(3, document.get("metadata").get("fileSize").asLong());
+    }
+
+    private JsonNode query(String collection, String searchString) throws IOException {
+        CustomParameters params = new CustomParameters(Map.of("searchRootPath", ValueUtils.stringValue(tempDir.toString())));
+        return new ObjectMapper().readTree(searchService.runQuery(AUTH_CONNECTION, collection, searchString, params));
+    }
 }
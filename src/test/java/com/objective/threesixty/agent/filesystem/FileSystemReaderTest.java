@@ -33,6 +33,8 @@ import com.objective.threesixty.remoteagent.sdk.BinaryDetails;
 import com.objective.threesixty.remoteagent.sdk.utils.CustomParameters;
 import com.objective.threesixty.remoteagent.sdk.utils.ReservedIdentifier;
 import com.objective.threesixty.remoteagent.sdk.utils.ValueUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -40,21 +42,30 @@ import org.mockito.MockedStatic;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -189,6 +200,170 @@ class FileSystemReaderTest {
         }
     }
 
+    @Test
+    void testGetDocuments_readsAttributesOncePerEntry() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path folder = Files.createDirectory(source.resolve("folder"));
+        for (int i = 0; i < 10; i++) {
+            Files.writeString(source.resolve("file" + i + ".txt"), "abc");
+            Files.writeString(folder.resolve("file" + i + ".txt"), "abc");
+        }
+        customParameters.put("sourceFilePath", Value.newBuilder().setString(source.toString()).build());
+        AtomicInteger attributeReads = new AtomicInteger();
+
+        try (MockedStatic<Files> mockedFiles = mockStatic(Files.class, invocation -> {
+            if (invocation.getMethod().getName().equals("readAttributes")) {
+                attributeReads.incrementAndGet();
+            }
+            return invocation.callRealMethod();
+        })) {
+            try (Stream<Document> docs = fileSystemReader.getDocuments(customParameters, null)) {
+                assertEquals(20, docs.count());
+            }
+        }
+
+        // one read each for the source folder, its subfolder and the 20 files
+        assertEquals(22, attributeReads.get());
+    }
+
+    @Test
+    void testGetDocuments_recordsMetrics() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FileSystemReader reader = new FileSystemReader(new ContentDigests(), registry);
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Files.writeString(source.resolve("a.txt"), "abc");
+        Files.writeString(source.resolve("b.txt"), "defgh");
+        customParameters.put("sourceFilePath", Value.newBuilder().setString(source.toString()).build());
+
+        try (Stream<Document> docs = reader.getDocuments(customParameters, null)) {
+            assertEquals(2, docs.count());
+        }
+        try (InputStream in = reader.getDocumentBinary(source.resolve("b.txt").toString(), customParameters, null).getInputStream()) {
+            assertEquals(5, in.readAllBytes().length);
+        }
+        assertThrows(RuntimeException.class, () -> reader.getDocument(source.resolve("missing.txt").toString(), customParameters, null));
+
+        assertEquals(2, registry.get("filesystem.reader.documents").counter().count());
+        // the source folder and both files while walking, the binary's file, then the missing file
+        assertEquals(5, registry.get("filesystem.reader.stat").timer().count());
+        assertEquals(5, registry.get("filesystem.reader.bytes.read").summary().totalAmount());
+        assertEquals(1, registry.get("filesystem.reader.errors").tag("operation", "getDocument").counter().count());
+    }
+
+    @Test
+    void testGetDocumentMetadata_reusesRecentlyReadAttributes() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FileSystemReader reader = new FileSystemReader(new ContentDigests(), registry);
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path a = Files.writeString(source.resolve("a.txt"), "abc");
+        Path b = Files.writeString(source.resolve("b.txt"), "defgh");
+        customParameters.put("sourceFilePath", Value.newBuilder().setString(source.toString()).build());
+
+        try (Stream<Document> docs = reader.getDocuments(customParameters, null)) {
+            assertEquals(2, docs.count());
+        }
+        double stats = registry.get("filesystem.reader.stat").timer().count();
+
+        // the crawl does not fill the cache, so each file's first metadata request reads its attributes
+        assertEquals(3, reader.getDocumentMetadata(a.toString(), customParameters, null).get("fileSize").getLong());
+        List<FileSystemReader.MetadataResult> results = reader.getDocumentMetadata(List.of(a.toString(), b.toString()), customParameters, null);
+        assertEquals(5, results.get(1).metadata().get("fileSize").getLong());
+        reader.getDocumentMetadata(List.of(a.toString(), b.toString()), customParameters, null);
+
+        assertEquals(stats + 2, registry.get("filesystem.reader.stat").timer().count());
+        assertEquals(3, registry.get("filesystem.reader.attribute.cache").tag("result", "hit").functionCounter().count());
+        reader.close();
+    }
+
+    @Test
+    void testGetDocuments_parallelCrawl() {
+        File file = loadTestFile("TestDirectory/TestDoc.txt");
+        File file2 = loadTestFile("TestDirectory/TestSubfolder/TestDoc2.txt");
+        customParameters.put("sourceFilePath", Value.newBuilder().setString(file.getParent()).build());
+        customParameters.put("crawlParallelism", ValueUtils.longValue(4));
+
+        try (Stream<Document> docs = fileSystemReader.getDocuments(customParameters, null)) {
+            List<String> ids = docs.map(Document::getId).sorted().toList();
+            assertEquals(List.of(file.getPath(), file2.getPath()), ids);
+        }
+    }
+
+    @Test
+    void testGetDocuments_incrementalCrawl_onlyReturnsChangedFiles() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path unchanged = Files.writeString(source.resolve("unchanged.txt"), "abc");
+        Path changed = Files.writeString(source.resolve("changed.txt"), "abc");
+        customParameters.put("sourceFilePath", Value.newBuilder().setString(source.toString()).build());
+        customParameters.put("incrementalCrawl", ValueUtils.booleanValue(true));
+        customParameters.put("crawlJournalPath", ValueUtils.stringValue(tempDir.resolve("journal").toString()));
+
+        try (Stream<Document> docs = fileSystemReader.getDocuments(customParameters, null)) {
+            assertEquals(2, docs.count());
+        }
+
+        Files.writeString(changed, "abcdef");
+        Path added = Files.writeString(source.resolve("added.txt"), "abc");
+
+        try (Stream<Document> docs = fileSystemReader.getDocuments(customParameters, null)) {
+            List<String> ids = docs.map(Document::getId).sorted().toList();
+            assertEquals(List.of(added.toString(), changed.toString()), ids);
+        }
+        assertTrue(Files.exists(unchanged));
+    }
+
+    @Test
+    void testGetDocuments_watchSourceFolder_findsFilesEditedInPlace() throws IOException, InterruptedException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path folder = Files.createDirectory(source.resolve("folder"));
+        Path edited = Files.writeString(folder.resolve("edited.txt"), "abc");
+        Files.writeString(source.resolve("other.txt"), "abc");
+        customParameters.put("sourceFilePath", Value.newBuilder().setString(source.toString()).build());
+        customParameters.put("incrementalCrawl", ValueUtils.booleanValue(true));
+        customParameters.put("crawlJournalPath", ValueUtils.stringValue(tempDir.resolve("journal").toString()));
+        customParameters.put("skipUnchangedFolders", ValueUtils.booleanValue(true));
+        customParameters.put("watchSourceFolder", ValueUtils.booleanValue(true));
+
+        try {
+            try (Stream<Document> docs = fileSystemReader.getDocuments(customParameters, null)) {
+                assertEquals(2, docs.count());
+            }
+
+            // the folder's modified time does not change, so the journal alone would skip it
+            Files.writeString(edited, "abcdef");
+            List<String> ids = List.of();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (ids.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+                try (Stream<Document> docs = fileSystemReader.getDocuments(customParameters, null)) {
+                    ids = docs.map(Document::getId).toList();
+                }
+            }
+            assertEquals(List.of(edited.toString()), ids);
+        } finally {
+            fileSystemReader.close();
+        }
+    }
+
+    @Test
+    void testGetDocuments_pruneFoldersByDate() throws IOException {
+        Path source = Files.createDirectory(tempDir.resolve("source"));
+        Path oldFolder = Files.createDirectory(source.resolve("old"));
+        Path editedInPlace = Files.writeString(oldFolder.resolve("edited.txt"), "abc");
+        Path recent = Files.writeString(source.resolve("recent.txt"), "abc");
+        Files.setLastModifiedTime(oldFolder, FileTime.from(Instant.parse("2020-01-01T00:00:00Z")));
+        customParameters.put("sourceFilePath", Value.newBuilder().setString(source.toString()).build());
+        customParameters.put(ReservedIdentifier.START_TIME.getName(), ValueUtils.longValue(Instant.parse("2021-01-01T00:00:00Z").toEpochMilli()));
+
+        try (Stream<Document> docs = fileSystemReader.getDocuments(customParameters, null)) {
+            assertEquals(List.of(editedInPlace.toString(), recent.toString()), docs.map(Document::getId).sorted().toList());
+        }
+
+        customParameters.put("pruneFoldersByDate", ValueUtils.booleanValue(true));
+        try (Stream<Document> docs = fileSystemReader.getDocuments(customParameters, null)) {
+            assertEquals(List.of(recent.toString()), docs.map(Document::getId).toList());
+        }
+    }
+
     @Test
     void testGetDocumentMetadata() {
         File file = loadTestFile("TestDirectory/TestDoc.txt");
@@ -203,6 +378,53 @@ class FileSystemReaderTest {
         }
     }
 
+    @Test
+    void testGetDocumentMetadata_extractsContentProperties() throws IOException {
+        Path pdf = Files.writeString(tempDir.resolve("report.bin"), "%PDF-1.7\n<< /Title (Annual Report) >>\n");
+
+        Map<String, MetadataType> metadata = fileSystemReader.getDocumentMetadata(pdf.toString(), customParameters, null);
+
+        assertEquals("report.bin", metadata.get("fileName").getString());
+        assertEquals("application/pdf", metadata.get("detectedMimeType").getString());
+        assertEquals("Annual Report", metadata.get("pdf.title").getString());
+    }
+
+    @Test
+    void testGetDocumentMetadata_batch() throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(Files.writeString(tempDir.resolve("file" + i + ".txt"), "x".repeat(i)).toString());
+        }
+        ids.add(tempDir.resolve("missing.txt").toString());
+
+        List<FileSystemReader.MetadataResult> results = fileSystemReader.getDocumentMetadata(ids, customParameters, null);
+
+        assertEquals(ids, results.stream().map(FileSystemReader.MetadataResult::docId).toList());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, results.get(i).metadata().get("fileSize").getLong());
+        }
+        assertNull(results.get(100).metadata());
+        assertInstanceOf(NoSuchFileException.class, results.get(100).error());
+    }
+
+    @Test
+    void testGetDocumentMetadata_digestsFromBinaryRead() throws IOException {
+        File file = loadTestFile("TestDirectory/TestDoc.txt");
+        String docId = file.getPath();
+        byte[] content = Files.readAllBytes(file.toPath());
+
+        assertNull(fileSystemReader.getDocumentMetadata(docId, customParameters, null).get("sha256"));
+
+        customParameters.put("computeDigests", ValueUtils.booleanValue(true));
+        try (InputStream in = fileSystemReader.getDocumentBinary(docId, customParameters, null).getInputStream()) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+
+        Map<String, MetadataType> metadata = fileSystemReader.getDocumentMetadata(docId, customParameters, null);
+        assertEquals(DigestUtils.sha256Hex(content), metadata.get("sha256").getString());
+        assertEquals(DigestUtils.md5Hex(content), metadata.get("md5").getString());
+    }
+
     @Test
     void testGetDocumentBinary_success() {
         File file = loadTestFile("TestDirectory/TestDoc.txt");
@@ -33,25 +33,42 @@ import com.objective.threesixty.MetadataType;
 import com.objective.threesixty.StringArray;
 import com.objective.threesixty.Value;
 import com.objective.threesixty.remoteagent.sdk.utils.CustomParameters;
+import com.objective.threesixty.remoteagent.sdk.utils.ValueUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.MediaType;
+import org.springframework.util.FileSystemUtils;
 import reactor.core.publisher.Flux;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FileSystemWriterTest {
     FileSystemWriter writer;
@@ -88,6 +105,271 @@ class FileSystemWriterTest {
             result);
     }
 
+    @Test
+    void testWriteDocument_recreatesFolderRemovedSinceLastWrite() throws IOException {
+        Document document = createDocument();
+        Document first = writer.writeDocument(document, createMetadata(), content("abc"), customParameters, null).block();
+        FileSystemUtils.deleteRecursively(Paths.get(first.getParentPath()));
+
+        Document second = writer.writeDocument(document, createMetadata(), content("def"), customParameters, null).block();
+
+        assertEquals("def", Files.readString(Paths.get(second.getId())));
+    }
+
+    @Test
+    void testWriteDocument_recordsMetrics() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FileSystemWriter meteredWriter = new FileSystemWriter(new ContentDigests(), new WritePipeline(4, 4, registry),
+            new MetadataSidecarWriter(1), registry);
+
+        meteredWriter.writeDocument(createDocument(), createMetadata(), content("abcdef"), customParameters, null).block();
+
+        assertEquals(1, registry.get("filesystem.writer.write").timer().count());
+        assertEquals(6, registry.get("filesystem.writer.bytes.written").summary().totalAmount());
+        assertEquals(1, registry.get("filesystem.writer.fsync").tag("mode", "file").timer().count());
+        assertEquals(1, registry.get("filesystem.writer.metadata").tag("output", "sidecar").timer().count());
+        assertNull(registry.find("filesystem.writer.errors").counter());
+    }
+
+    @Test
+    void testWriteDocument_computeDigests() throws IOException {
+        ContentDigests contentDigests = new ContentDigests();
+        FileSystemWriter digestingWriter = new FileSystemWriter(contentDigests, new WritePipeline(4, 4, new SimpleMeterRegistry()),
+            new MetadataSidecarWriter(1), new SimpleMeterRegistry());
+        customParameters.put("computeDigests", ValueUtils.booleanValue(true));
+        DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+        Flux<DataBuffer> dataBufferFlux = Flux.just(
+            bufferFactory.wrap("abc".getBytes(StandardCharsets.UTF_8)),
+            bufferFactory.wrap("def".getBytes(StandardCharsets.UTF_8))
+        );
+
+        Document result = digestingWriter.writeDocument(createDocument(), createMetadata(), dataBufferFlux, customParameters, null).block();
+
+        FileSystemReader reader = new FileSystemReader(contentDigests);
+        Map<String, MetadataType> metadata = reader.getDocumentMetadata(result.getId(), customParameters, null);
+        assertEquals(DigestUtils.sha256Hex("abcdef"), metadata.get("sha256").getString());
+        assertEquals(DigestUtils.md5Hex("abcdef"), metadata.get("md5").getString());
+    }
+
+    @Test
+    void testWriteDocument_deduplicateContent() throws IOException {
+        customParameters.put("deduplicateContent", ValueUtils.booleanValue(true));
+        Document first = createDocument();
+        Document second = first.toBuilder().setName("copy.txt").build();
+
+        Document firstResult = writer.writeDocument(first, createMetadata(), content("abc"), customParameters, null).block();
+        Document secondResult = writer.writeDocument(second, createMetadata(), content("abc"), customParameters, null).block();
+
+        Path store = Paths.get(customParameters.get("outFilePath").getString(), ".content-store");
+        Path blob = new ContentStore(store).blob(DigestUtils.sha256Hex("abc"));
+        assertEquals("abc", Files.readString(Paths.get(firstResult.getId())));
+        assertTrue(Files.isSameFile(blob, Paths.get(firstResult.getId())));
+        assertTrue(Files.isSameFile(blob, Paths.get(secondResult.getId())));
+        try (Stream<Path> staged = Files.list(store.resolve("tmp"))) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void testWriteDocument_groupCommit() throws IOException {
+        customParameters.put("groupCommit", ValueUtils.booleanValue(true));
+        customParameters.put("groupCommitWindowMs", ValueUtils.longValue(20L));
+        Document first = createDocument();
+
+        List<Document> results = Flux.range(0, 5)
+            .flatMap(i -> writer.writeDocument(first.toBuilder().setName("file" + i + ".txt").build(), createMetadata(),
+                content("content" + i), customParameters, null))
+            .collectList()
+            .block();
+
+        assertEquals(5, results.size());
+        for (Document result : results) {
+            String name = Paths.get(result.getId()).getFileName().toString();
+            assertEquals(name.replace("file", "content").replace(".txt", ""), Files.readString(Paths.get(result.getId())));
+        }
+    }
+
+    @Test
+    void testWriteDocument_groupCommitReleasesWriteSlotWhileWaiting() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FileSystemWriter singleSlotWriter = new FileSystemWriter(new ContentDigests(), new WritePipeline(1, 2, registry),
+            new MetadataSidecarWriter(1), registry);
+        customParameters.put("groupCommit", ValueUtils.booleanValue(true));
+        customParameters.put("groupCommitWindowMs", ValueUtils.longValue(60_000L));
+        customParameters.put("groupCommitMaxFiles", ValueUtils.longValue(2L));
+        Document document = createDocument();
+
+        // the batch only fills if the first document gives up its slot while it waits for the second
+        List<Document> results = Flux.range(0, 2)
+            .flatMap(i -> singleSlotWriter.writeDocument(document.toBuilder().setName("file" + i + ".txt").build(),
+                createMetadata(), content("content" + i), customParameters, null))
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertEquals(2, results.size());
+    }
+
+    @Test
+    void testWriteDocument_atomicWrites() throws IOException {
+        customParameters.put("atomicWrites", ValueUtils.booleanValue(true));
+        Document document = createDocument().toBuilder().setSize(1024).build();
+
+        Document result = writer.writeDocument(document, createMetadata(), content("abc"), customParameters, null).block();
+
+        Path output = Paths.get(result.getId());
+        assertEquals("abc", Files.readString(output));
+        try (Stream<Path> files = Files.list(output.getParent())) {
+            assertEquals(List.of(output.getFileName().toString(), output.getFileName() + ".metadata.properties.xml"),
+                files.map(file -> file.getFileName().toString()).sorted().toList());
+        }
+    }
+
+    @Test
+    void testWriteDocument_atomicWriteRemovesStaleStagingFilesFromFolder() throws IOException {
+        customParameters.put("atomicWrites", ValueUtils.booleanValue(true));
+        Document document = createDocument();
+        Path folder = Files.createDirectories(Paths.get(customParameters.get("outFilePath").getString(),
+            writer.sanitizePath(document.getParentPath())));
+        Path stale = Files.writeString(folder.resolve(".old.txt.1234" + FileSystemWriter.STAGING_SUFFIX), "partial");
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - 2 * FileSystemWriter.STALE_STAGING_MILLIS));
+        Path recent = Files.writeString(folder.resolve(".new.txt.5678" + FileSystemWriter.STAGING_SUFFIX), "in progress");
+
+        writer.writeDocument(document, createMetadata(), content("abc"), customParameters, null).block();
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(recent));
+    }
+
+    @Test
+    void testWriteDocument_nonAtomicWriteLeavesStagingFiles() throws IOException {
+        Document document = createDocument();
+        Path folder = Files.createDirectories(Paths.get(customParameters.get("outFilePath").getString(),
+            writer.sanitizePath(document.getParentPath())));
+        Path stale = Files.writeString(folder.resolve(".old.txt.1234" + FileSystemWriter.STAGING_SUFFIX), "partial");
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - 2 * FileSystemWriter.STALE_STAGING_MILLIS));
+
+        writer.writeDocument(document, createMetadata(), content("abc"), customParameters, null).block();
+
+        assertTrue(Files.exists(stale));
+    }
+
+    @Test
+    void testWriteDocument_atomicWriteFailureLeavesPreviousFile() throws IOException {
+        customParameters.put("atomicWrites", ValueUtils.booleanValue(true));
+        Document document = createDocument();
+        Document first = writer.writeDocument(document, createMetadata(), content("abc"), customParameters, null).block();
+        Path output = Paths.get(first.getId());
+        Path sidecar = Paths.get(first.getId() + ".metadata.properties.xml");
+        byte[] sidecarContent = Files.readAllBytes(sidecar);
+
+        Flux<DataBuffer> failing = content("partial").concatWith(Flux.error(new UncheckedIOException(new IOException("connection lost"))));
+        assertThrows(UncheckedIOException.class, () -> writer.writeDocument(document, Map.of(), failing, customParameters, null).block());
+
+        assertEquals("abc", Files.readString(output));
+        assertArrayEquals(sidecarContent, Files.readAllBytes(sidecar));
+        try (Stream<Path> files = Files.list(output.getParent())) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void testWriteDocument_copyLocalSources() throws IOException {
+        customParameters.put("copyLocalSources", ValueUtils.booleanValue(true));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LocalDocuments localDocuments = new LocalDocuments();
+        localDocuments.enable();
+        FileSystemReader reader = new FileSystemReader(new ContentDigests(), localDocuments, registry);
+        FileSystemWriter localWriter = new FileSystemWriter(new ContentDigests(), localDocuments, new WritePipeline(4, 4, registry),
+            new MetadataSidecarWriter(1), registry);
+        Path source = Files.writeString(Files.createDirectories(tempDir.resolve("source")).resolve("report.txt"), "local content");
+        Document document = reader.getDocument(source.toString(), customParameters, null);
+
+        // the streamed content is cancelled without any of it being requested
+        AtomicLong requested = new AtomicLong();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<DataBuffer> streamed = content("local content")
+            .doOnRequest(requested::addAndGet)
+            .doOnCancel(() -> cancelled.set(true));
+        Document result = localWriter.writeDocument(document, createMetadata(), streamed, customParameters, null).block();
+
+        assertEquals("local content", Files.readString(Paths.get(result.getId())));
+        assertEquals(1, registry.get("filesystem.writer.local.copies").counter().count());
+        assertEquals(0, requested.get());
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    void testWriteDocument_copyLocalSourcesStreamsChangedSource() throws IOException {
+        customParameters.put("copyLocalSources", ValueUtils.booleanValue(true));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LocalDocuments localDocuments = new LocalDocuments();
+        localDocuments.enable();
+        FileSystemReader reader = new FileSystemReader(new ContentDigests(), localDocuments, registry);
+        FileSystemWriter localWriter = new FileSystemWriter(new ContentDigests(), localDocuments, new WritePipeline(4, 4, registry),
+            new MetadataSidecarWriter(1), registry);
+        Path source = Files.writeString(Files.createDirectories(tempDir.resolve("source")).resolve("report.txt"), "local content");
+        Document document = reader.getDocument(source.toString(), customParameters, null);
+
+        // edited after it was read, so the streamed content is the one to write
+        Files.writeString(source, "edited content");
+        Document result = localWriter.writeDocument(document, createMetadata(), content("streamed"), customParameters, null).block();
+
+        assertEquals("streamed", Files.readString(Paths.get(result.getId())));
+        assertEquals(0, registry.get("filesystem.writer.local.copies").counter().count());
+    }
+
+    @Test
+    void testWriteDocument_copyLocalSources_streamsOtherDocuments() throws IOException {
+        customParameters.put("copyLocalSources", ValueUtils.booleanValue(true));
+
+        Document result = writer.writeDocument(createDocument(), createMetadata(), content("abc"), customParameters, null).block();
+
+        assertEquals("abc", Files.readString(Paths.get(result.getId())));
+    }
+
+    @Test
+    void testWriteDocument_metadataSidecar() throws IOException {
+        customParameters.put("metadataAsXml", ValueUtils.booleanValue(false));
+
+        Document result = writer.writeDocument(createDocument(), createMetadata(), content("abc"), customParameters, null).block();
+
+        Properties sidecar = new Properties();
+        try (InputStream in = Files.newInputStream(Paths.get(result.getId() + ".metadata.properties.properties"))) {
+            sidecar.load(in);
+        }
+        assertEquals("user1", sidecar.getProperty("fileCreator"));
+        assertEquals("5", sidecar.getProperty("fileNumber"));
+    }
+
+    @Test
+    void testWriteDocument_metadataManifest() throws IOException {
+        customParameters.put("metadataOutput", ValueUtils.stringValue("manifest"));
+
+        Document result = writer.writeDocument(createDocument(), createMetadata(), content("abc"), customParameters, null).block();
+
+        Path output = Paths.get(result.getId());
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(output.resolveSibling(MetadataSidecarWriter.MANIFEST_FILE_NAME))) {
+            manifest.load(in);
+        }
+        assertEquals("user1", manifest.getProperty("someFile.txt/fileCreator"));
+        assertFalse(Files.exists(Paths.get(result.getId() + ".metadata.properties.xml")));
+    }
+
+    @Test
+    void testWriteDocument_binaryManifest() throws IOException {
+        customParameters.put("metadataOutput", ValueUtils.stringValue("binaryManifest"));
+
+        Document result = writer.writeDocument(createDocument(), createMetadata(), content("abc"), customParameters, null).block();
+
+        Path outputRoot = Paths.get(customParameters.get("outFilePath").getString());
+        Path segment = outputRoot.resolve(MetadataSidecarWriter.BINARY_MANIFEST_DIRECTORY).resolve(BinaryManifestWriter.segmentName(1));
+        Map<String, Map<String, MetadataType>> documents = new HashMap<>();
+        BinaryManifestReader.read(segment, documents::put);
+        String path = outputRoot.toAbsolutePath().relativize(Paths.get(result.getId())).toString().replace(File.separatorChar, '/');
+        assertEquals(Map.of(path, createMetadata()), documents);
+    }
+
     @Test
     void extractMetadataStringValue() {
         MetadataType.Builder metadata = MetadataType.newBuilder();
@@ -162,6 +444,10 @@ class FileSystemWriterTest {
             .build();
     }
 
+    private Flux<DataBuffer> content(String content) {
+        return Flux.just(new DefaultDataBufferFactory().wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
     private Map<String, MetadataType> createMetadata() {
         Map<String, MetadataType> metadata = new HashMap<>();
         metadata.put("fileNumber", MetadataType.newBuilder().setInteger(5).build());
@@ -0,0 +1,142 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileTreeWalkerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWalk_matchesFilesWalk() throws IOException {
+        Files.writeString(tempDir.resolve("a.txt"), "a");
+        Path sub = Files.createDirectories(tempDir.resolve("sub/nested"));
+        Files.writeString(sub.resolve("b.txt"), "b");
+        Files.writeString(tempDir.resolve("sub/c.txt"), "c");
+        Files.createDirectory(tempDir.resolve("empty"));
+
+        List<Path> expected;
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            expected = paths.filter(Files::isRegularFile).toList();
+        }
+        try (Stream<FileTreeWalker.FileEntry> files = FileTreeWalker.walk(tempDir, FileTreeWalker.ENTER_ALL)) {
+            assertEquals(expected, files.map(FileTreeWalker.FileEntry::path).toList());
+        }
+    }
+
+    @Test
+    void testWalk_listenerSkipsSubtree() throws IOException {
+        Files.writeString(tempDir.resolve("a.txt"), "a");
+        Path skipped = Files.createDirectories(tempDir.resolve("skipped/nested"));
+        Files.writeString(skipped.resolve("b.txt"), "b");
+        List<Path> completed = new ArrayList<>();
+
+        FileTreeWalker.Listener listener = new FileTreeWalker.Listener() {
+            @Override
+            public boolean preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                return !dir.getFileName().toString().equals("skipped");
+            }
+
+            @Override
+            public void postVisitDirectory(Path dir) {
+                completed.add(dir);
+            }
+        };
+
+        try (Stream<FileTreeWalker.FileEntry> walk = FileTreeWalker.walk(tempDir, listener)) {
+            Set<Path> files = walk.map(FileTreeWalker.FileEntry::path).collect(Collectors.toSet());
+            assertEquals(Set.of(tempDir.resolve("a.txt")), files);
+        }
+        assertEquals(List.of(tempDir), completed);
+    }
+
+    @Test
+    void testWalk_listenerSkipsFolderThatCannotBeListed() throws IOException {
+        Files.writeString(tempDir.resolve("a.txt"), "a");
+        Path gone = Files.createDirectory(tempDir.resolve("gone"));
+        List<Path> failed = new ArrayList<>();
+        List<Path> completed = new ArrayList<>();
+
+        FileTreeWalker.Listener listener = new FileTreeWalker.Listener() {
+            @Override
+            public boolean preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                // removed between reading its attributes and listing it
+                if (dir.equals(gone)) {
+                    Files.delete(gone);
+                }
+                return true;
+            }
+
+            @Override
+            public void postVisitDirectory(Path dir) {
+                completed.add(dir);
+            }
+
+            @Override
+            public void visitFailed(Path path, IOException e) {
+                failed.add(path);
+            }
+        };
+
+        try (Stream<FileTreeWalker.FileEntry> walk = FileTreeWalker.walk(tempDir, listener)) {
+            assertEquals(List.of(tempDir.resolve("a.txt")), walk.map(FileTreeWalker.FileEntry::path).toList());
+        }
+        assertEquals(List.of(gone), failed);
+        assertEquals(List.of(tempDir), completed);
+    }
+
+    @Test
+    void testWalk_returnsAttributesAndFollowsFileLinksOnly() throws IOException {
+        Path target = Files.writeString(tempDir.resolve("target.txt"), "abc");
+        Path folder = Files.createDirectory(tempDir.resolve("folder"));
+        Files.writeString(folder.resolve("inside.txt"), "a");
+        Path outside = Files.createDirectory(tempDir.resolve("outside"));
+        Files.createSymbolicLink(outside.resolve("fileLink"), target);
+        Files.createSymbolicLink(outside.resolve("folderLink"), folder);
+
+        try (Stream<FileTreeWalker.FileEntry> files = FileTreeWalker.walk(outside, FileTreeWalker.ENTER_ALL)) {
+            List<FileTreeWalker.FileEntry> entries = files.toList();
+            assertEquals(1, entries.size());
+            assertEquals(outside.resolve("fileLink"), entries.get(0).path());
+            assertEquals(3, entries.get(0).attributes().size());
+        }
+    }
+}
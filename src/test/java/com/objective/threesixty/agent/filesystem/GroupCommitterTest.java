@@ -0,0 +1,110 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupCommitterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testCommit_fullBatchForcedBeforeWindow() throws IOException {
+        GroupCommitter committer = new GroupCommitter(60_000, 3, Schedulers.boundedElastic());
+        Path[] files = new Path[3];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = Files.writeString(tempDir.resolve("file" + i), "content");
+        }
+
+        Flux.fromArray(files)
+            .flatMap(committer::commit)
+            .then()
+            .block(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void testCommit_recordsBatchForceTime() throws IOException {
+        Timer forceTimer = new SimpleMeterRegistry().timer("force");
+        GroupCommitter committer = new GroupCommitter(60_000, 2, Schedulers.boundedElastic(), forceTimer);
+        Path first = Files.writeString(tempDir.resolve("first"), "content");
+        Path second = Files.writeString(tempDir.resolve("second"), "content");
+
+        Flux.just(first, second)
+            .flatMap(committer::commit)
+            .then()
+            .block(Duration.ofSeconds(10));
+
+        assertEquals(1, forceTimer.count());
+    }
+
+    @Test
+    void testCommit_windowEnds() throws IOException {
+        GroupCommitter committer = new GroupCommitter(10, 1000, Schedulers.boundedElastic());
+        Path file = Files.writeString(tempDir.resolve("file"), "content");
+
+        long start = System.nanoTime();
+        committer.commit(file).block(Duration.ofSeconds(10));
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(10).toNanos());
+
+        committer.commit(file).block(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void testClose_forcesQueuedFiles() throws IOException {
+        GroupCommitter committer = new GroupCommitter(60_000, 1000, Schedulers.boundedElastic());
+        Path file = Files.writeString(tempDir.resolve("file"), "content");
+
+        Mono<Void> commit = committer.commit(file).cache();
+        commit.subscribe();
+        committer.close();
+
+        commit.block(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void testCommit_missingFile() {
+        GroupCommitter committer = new GroupCommitter(1, 1, Schedulers.boundedElastic());
+
+        assertThrows(UncheckedIOException.class, () -> committer.commit(tempDir.resolve("missing")).block(Duration.ofSeconds(10)));
+    }
+}
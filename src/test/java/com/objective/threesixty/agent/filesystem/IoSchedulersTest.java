@@ -0,0 +1,70 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class IoSchedulersTest {
+    @Test
+    void testNewScheduler_platformThreadsByDefault() {
+        assertFalse(IoSchedulers.usingVirtualThreads());
+        Scheduler scheduler = IoSchedulers.newScheduler(2, "io-test");
+        try {
+            String thread = Mono.fromCallable(() -> Thread.currentThread().getName()).subscribeOn(scheduler).block();
+            assertTrue(thread.startsWith("io-test-"), thread);
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    void testNewScheduler_virtualThreads() throws Exception {
+        assumeTrue(IoSchedulers.virtualThreadsSupported());
+        Scheduler scheduler = IoSchedulers.newScheduler(1, "io-virtual-test", true);
+        try {
+            Thread thread = Mono.fromCallable(Thread::currentThread).subscribeOn(scheduler).block();
+            assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+            assertTrue(thread.getName().startsWith("io-virtual-test-"), thread.getName());
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    @Test
+    void testNewScheduler_virtualThreadsUnsupported() {
+        assumeFalse(IoSchedulers.virtualThreadsSupported());
+        assertThrows(UnsupportedOperationException.class, () -> IoSchedulers.newScheduler(1, "io-virtual-test", true));
+    }
+}
@@ -0,0 +1,103 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalDocumentsTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testGet_onlyDocumentsPut() throws IOException {
+        LocalDocuments documents = new LocalDocuments();
+        documents.enable();
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+
+        documents.put(file.toString(), file, attributes(file));
+
+        assertEquals(file, documents.get(file.toString()).file());
+        assertNull(documents.get(tempDir.resolve("b.txt").toString()));
+    }
+
+    @Test
+    void testPut_ignoredUntilEnabled() throws IOException {
+        LocalDocuments documents = new LocalDocuments();
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+
+        documents.put(file.toString(), file, attributes(file));
+        assertNull(documents.get(file.toString()));
+
+        documents.enable();
+        documents.put(file.toString(), file, attributes(file));
+        assertEquals(file, documents.get(file.toString()).file());
+    }
+
+    @Test
+    void testSource_isUnchangedUntilFileChanges() throws IOException {
+        LocalDocuments documents = new LocalDocuments();
+        documents.enable();
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+        documents.put(file.toString(), file, attributes(file));
+        LocalDocuments.Source source = documents.get(file.toString());
+
+        assertTrue(source.isUnchanged(attributes(file)));
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 60_000));
+        assertFalse(source.isUnchanged(attributes(file)));
+    }
+
+    @Test
+    void testPut_evictsLeastRecentlyUsed() throws IOException {
+        LocalDocuments documents = new LocalDocuments();
+        documents.enable();
+        BasicFileAttributes attributes = attributes(Files.writeString(tempDir.resolve("a.txt"), "abc"));
+        for (int i = 0; i <= LocalDocuments.MAX_TRACKED_DOCUMENTS; i++) {
+            documents.put("doc" + i, Paths.get("doc" + i), attributes);
+        }
+
+        assertNull(documents.get("doc0"));
+        assertEquals(Paths.get("doc1"), documents.get("doc1").file());
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+}
@@ -0,0 +1,79 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MagicMimeTypeExtractorTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testDetect_fromMagicBytes() throws IOException {
+        assertEquals("application/pdf", detect("%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("image/png", detect(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0}));
+        assertEquals("image/jpeg", detect(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0}));
+        assertEquals("image/webp", detect("RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("application/gzip", detect(new byte[]{(byte) 0x1F, (byte) 0x8B, 8}));
+    }
+
+    @Test
+    void testDetect_officeOpenXmlFromZipEntryNames() throws IOException {
+        assertEquals("application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            detect("PK\3\4....[Content_Types].xml....PK\3\4....word/document.xml".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(MagicMimeTypeExtractor.ZIP, detect("PK\3\4....readme.txt".getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    void testExtract_unknownContentHasNoMimeType() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.bin"), "plain ascii");
+        MetadataExtractor.FileSample sample = new MetadataExtractor.FileSample(file,
+            Files.readAttributes(file, BasicFileAttributes.class), ByteBuffer.wrap(Files.readAllBytes(file)));
+
+        assertNull(MagicMimeTypeExtractor.detect(sample));
+        assertEquals(Map.<String, MetadataType>of(), new MagicMimeTypeExtractor().extract(sample));
+    }
+
+    private String detect(byte[] header) throws IOException {
+        Path file = Files.write(tempDir.resolve("file"), header);
+        return MagicMimeTypeExtractor.detect(new MetadataExtractor.FileSample(file,
+            Files.readAttributes(file, BasicFileAttributes.class), ByteBuffer.wrap(header)));
+    }
+}
@@ -0,0 +1,164 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Timestamp;
+import com.objective.threesixty.MetadataType;
+import com.objective.threesixty.StringArray;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetadataEncoderTest {
+    @Test
+    void testAppendProperties_loadsBack() throws IOException {
+        byte[] out = new MetadataEncoder()
+            .appendPropertiesComment(MetadataEncoder.COMMENT)
+            .appendProperties(metadata(), "")
+            .toByteArray();
+
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(out));
+        assertEquals(expected(), properties);
+        for (byte b : out) {
+            assertTrue(b >= 0, "properties output is ASCII");
+        }
+    }
+
+    @Test
+    void testAppendProperties_keyPrefixAndOrder() {
+        Map<String, MetadataType> metadata = new HashMap<>();
+        metadata.put("b", MetadataType.newBuilder().setString("2").build());
+        metadata.put("a", MetadataType.newBuilder().setString("1").build());
+        metadata.put("empty", MetadataType.newBuilder().build());
+
+        byte[] out = new MetadataEncoder().appendProperties(metadata, "doc.txt/").toByteArray();
+
+        assertEquals("doc.txt/a=1\ndoc.txt/b=2\n", new String(out, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void testAppendXml_loadsBack() throws IOException {
+        byte[] out = new MetadataEncoder().appendXml(metadata()).toByteArray();
+
+        Properties properties = new Properties();
+        properties.loadFromXML(new ByteArrayInputStream(out));
+        assertEquals(expected(), properties);
+        assertFalse(new String(out, StandardCharsets.UTF_8).contains("empty"));
+    }
+
+    @Test
+    void testAppendValues_matchStringValue() throws IOException {
+        Map<String, MetadataType> metadata = new HashMap<>();
+        metadata.put("negative", MetadataType.newBuilder().setLong(-9876543210L).build());
+        metadata.put("min", MetadataType.newBuilder().setLong(Long.MIN_VALUE).build());
+        metadata.put("integer", MetadataType.newBuilder().setInteger(0).build());
+        metadata.put("boolean", MetadataType.newBuilder().setBoolean(true).build());
+        metadata.put("double", MetadataType.newBuilder().setDouble(1.5e-7).build());
+        metadata.put("decimal", MetadataType.newBuilder().setDecimal(2.25f).build());
+        metadata.put("largeString", MetadataType.newBuilder().setLargeString("large").build());
+        metadata.put("array", MetadataType.newBuilder().setArray(StringArray.newBuilder().addValues("a").addValues("b")).build());
+        metadata.put("millis", dateTime(1633046400L, 123_000_000));
+        metadata.put("micros", dateTime(1633046400L, 123_456_000));
+        metadata.put("nanos", dateTime(1633046400L, 123_456_789));
+        metadata.put("beforeEpoch", dateTime(-1L, 0));
+        metadata.put("leapDay", dateTime(951_782_400L, 0));
+        metadata.put("farFuture", dateTime(400_000_000_000L, 0));
+
+        Properties fromProperties = new Properties();
+        fromProperties.load(new ByteArrayInputStream(new MetadataEncoder().appendProperties(metadata, "").toByteArray()));
+        Properties fromXml = new Properties();
+        fromXml.loadFromXML(new ByteArrayInputStream(new MetadataEncoder().appendXml(metadata).toByteArray()));
+
+        metadata.forEach((key, value) -> {
+            assertEquals(MetadataEncoder.stringValue(key, value), fromProperties.get(key), key);
+            assertEquals(MetadataEncoder.stringValue(key, value), fromXml.get(key), key);
+        });
+        assertEquals("2000-02-29T00:00:00Z", fromXml.get("leapDay"));
+        assertEquals("1969-12-31T23:59:59Z", fromXml.get("beforeEpoch"));
+    }
+
+    @Test
+    void testAppendXml_encodesSupplementaryCharacters() {
+        Map<String, MetadataType> metadata = Map.of("emoji", MetadataType.newBuilder().setString("\uD83D\uDE00").build());
+
+        String out = new String(new MetadataEncoder().appendXml(metadata).toByteArray(), StandardCharsets.UTF_8);
+
+        assertTrue(out.contains("<entry key=\"emoji\">\uD83D\uDE00</entry>"), out);
+    }
+
+    @Test
+    void testForCurrentThread_reusesEmptiedEncoder() {
+        MetadataEncoder encoder = MetadataEncoder.forCurrentThread();
+        encoder.appendPropertiesComment("first");
+
+        MetadataEncoder again = MetadataEncoder.forCurrentThread();
+
+        assertSame(encoder, again);
+        assertEquals(0, again.size());
+    }
+
+    private static MetadataType dateTime(long seconds, int nanos) {
+        return MetadataType.newBuilder().setDateTime(Timestamp.newBuilder().setSeconds(seconds).setNanos(nanos)).build();
+    }
+
+    private static Map<String, MetadataType> metadata() {
+        Map<String, MetadataType> metadata = new HashMap<>();
+        metadata.put("plain", MetadataType.newBuilder().setString("value").build());
+        metadata.put(" key with spaces=:#!", MetadataType.newBuilder().setString(" leading space\ttab\nnewline \\ back").build());
+        metadata.put("unicode", MetadataType.newBuilder().setString("café 中文").build());
+        metadata.put("xml", MetadataType.newBuilder().setString("<a href=\"x\">'&'</a>").build());
+        metadata.put("binary", MetadataType.newBuilder().setBinary(ByteString.fromHex("ac89")).build());
+        metadata.put("date", MetadataType.newBuilder().setDateTime(Timestamp.newBuilder().setSeconds(1633046400)).build());
+        metadata.put("long", MetadataType.newBuilder().setLong(123456789L).build());
+        metadata.put("empty", MetadataType.newBuilder().build());
+        return metadata;
+    }
+
+    private static Properties expected() {
+        Properties expected = new Properties();
+        expected.put("plain", "value");
+        expected.put(" key with spaces=:#!", " leading space\ttab\nnewline \\ back");
+        expected.put("unicode", "café 中文");
+        expected.put("xml", "<a href=\"x\">'&'</a>");
+        expected.put("binary", "ac89");
+        expected.put("date", "2021-10-01T00:00:00Z");
+        expected.put("long", "123456789");
+        return expected;
+    }
+}
@@ -0,0 +1,146 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MetadataExtractorsTest {
+    @TempDir
+    Path tempDir;
+    private final List<Integer> headerSizes = Collections.synchronizedList(new ArrayList<>());
+    private MetadataExtractors extractors;
+
+    @AfterEach
+    void tearDown() {
+        if (extractors != null) {
+            extractors.close();
+        }
+    }
+
+    @Test
+    void testExtract_sharesOneHeaderOfTheLargestSize() throws IOException {
+        extractors = new MetadataExtractors(List.of(content("a", 4), content("b", 16), attribute("owner")), 2);
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "0123456789");
+
+        MetadataExtractors.Result result = extractors.extract(file, attributes(file), null);
+
+        assertEquals(List.of(10, 10), headerSizes);
+        assertEquals(Map.of("a", string("0123"), "b", string("0123456789"), "owner", string("owner")), result.metadata());
+        assertEquals(Map.of("a", string("0123"), "b", string("0123456789")), result.contentMetadata());
+    }
+
+    @Test
+    void testExtract_reusesContentMetadata() throws IOException {
+        extractors = new MetadataExtractors(List.of(content("a", 4), attribute("owner")), 2);
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "0123456789");
+        Map<String, MetadataType> cached = Map.of("a", string("cached"));
+
+        MetadataExtractors.Result result = extractors.extract(file, attributes(file), cached);
+
+        assertEquals(List.of(), headerSizes);
+        assertEquals(Map.of("a", string("cached"), "owner", string("owner")), result.metadata());
+        assertSame(cached, result.contentMetadata());
+    }
+
+    @Test
+    void testExtract_skipsFailedExtractorsAndDoesNotCacheIncompleteContent() throws IOException {
+        MetadataExtractor failing = new MetadataExtractor() {
+            @Override
+            public int headerBytes() {
+                return 1;
+            }
+
+            @Override
+            public Map<String, MetadataType> extract(FileSample file) throws IOException {
+                throw new IOException("unreadable");
+            }
+        };
+        extractors = new MetadataExtractors(List.of(failing, content("a", 4)), 2);
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "0123456789");
+
+        MetadataExtractors.Result result = extractors.extract(file, attributes(file), null);
+
+        assertEquals(Map.of("a", string("0123")), result.metadata());
+        assertNull(result.contentMetadata());
+    }
+
+    @Test
+    void testDefaults_detectsMimeType() throws IOException {
+        extractors = MetadataExtractors.defaults();
+        Path file = Files.writeString(tempDir.resolve("a.pdf"), "%PDF-1.7\n<< /Title (Hello) >>\n");
+
+        Map<String, MetadataType> metadata = extractors.extract(file, attributes(file), null).metadata();
+
+        assertEquals("application/pdf", metadata.get("detectedMimeType").getString());
+        assertEquals("Hello", metadata.get("pdf.title").getString());
+    }
+
+    private MetadataExtractor content(String key, int headerBytes) {
+        return new MetadataExtractor() {
+            @Override
+            public int headerBytes() {
+                return headerBytes;
+            }
+
+            @Override
+            public Map<String, MetadataType> extract(FileSample file) {
+                byte[] header = new byte[file.header().remaining()];
+                headerSizes.add(header.length);
+                file.header().get(header);
+                return Map.of(key, string(new String(header, 0, Math.min(headerBytes, header.length))));
+            }
+        };
+    }
+
+    private static MetadataExtractor attribute(String key) {
+        return file -> Map.of(key, string(key));
+    }
+
+    private static MetadataType string(String value) {
+        return MetadataType.newBuilder().setString(value).build();
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+}
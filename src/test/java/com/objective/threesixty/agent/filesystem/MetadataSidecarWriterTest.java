@@ -0,0 +1,128 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetadataSidecarWriterTest {
+    @TempDir
+    Path tempDir;
+
+    private final MetadataSidecarWriter writer = new MetadataSidecarWriter(2);
+
+    @Test
+    void testWriteSidecar() throws IOException {
+        Map<String, MetadataType> metadata = Map.of("fileCreator", MetadataType.newBuilder().setString("user1").build());
+
+        writer.writeSidecar(tempDir.resolve("a.xml"), metadata, true, false).block(Duration.ofSeconds(10));
+        writer.writeSidecar(tempDir.resolve("a.properties"), metadata, false, false).block(Duration.ofSeconds(10));
+
+        Properties xml = new Properties();
+        try (InputStream in = Files.newInputStream(tempDir.resolve("a.xml"))) {
+            xml.loadFromXML(in);
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(tempDir.resolve("a.properties"))) {
+            properties.load(in);
+        }
+        assertEquals("user1", xml.getProperty("fileCreator"));
+        assertEquals(xml, properties);
+    }
+
+    @Test
+    void testWriteSidecar_atomicReplacesPreviousSidecar() throws IOException {
+        Path sidecar = Files.writeString(tempDir.resolve("a.properties"), "fileCreator=old\n");
+        Map<String, MetadataType> metadata = Map.of("fileCreator", MetadataType.newBuilder().setString("user2").build());
+
+        writer.writeSidecar(sidecar, metadata, false, true).block(Duration.ofSeconds(10));
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(sidecar)) {
+            properties.load(in);
+        }
+        assertEquals("user2", properties.getProperty("fileCreator"));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of(sidecar), files.toList());
+        }
+    }
+
+    @Test
+    void testAppendToManifest() throws IOException {
+        Flux.range(0, 200)
+            .flatMap(i -> writer.appendToManifest(tempDir.resolve("file" + i + ".txt"),
+                Map.of("index", MetadataType.newBuilder().setInteger(i).build())))
+            .then()
+            .block(Duration.ofSeconds(30));
+
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(tempDir.resolve(MetadataSidecarWriter.MANIFEST_FILE_NAME))) {
+            manifest.load(in);
+        }
+        assertEquals(200, manifest.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(String.valueOf(i), manifest.getProperty("file" + i + ".txt/index"));
+        }
+    }
+
+    @Test
+    void testAppendToBinaryManifest_flushedOnCompletionAndClosed() throws IOException {
+        Flux.range(0, 2500)
+            .flatMap(i -> writer.appendToBinaryManifest(tempDir, tempDir.resolve("file" + i + ".txt"),
+                Map.of("index", MetadataType.newBuilder().setInteger(i).build())))
+            .then()
+            .block(Duration.ofSeconds(30));
+
+        Path manifestDirectory = tempDir.resolve(MetadataSidecarWriter.BINARY_MANIFEST_DIRECTORY);
+        Map<String, Map<String, MetadataType>> documents = new HashMap<>();
+        BinaryManifestReader.read(manifestDirectory.resolve(BinaryManifestWriter.segmentName(1)), documents::put);
+        assertEquals(2500, documents.size());
+        assertEquals(42, documents.get("file42.txt").get("index").getInteger());
+
+        writer.close();
+        writer.appendToBinaryManifest(tempDir, tempDir.resolve("late.txt"), Map.of()).block(Duration.ofSeconds(10));
+        writer.close();
+
+        assertTrue(Files.exists(manifestDirectory.resolve(BinaryManifestWriter.segmentName(2))));
+    }
+}
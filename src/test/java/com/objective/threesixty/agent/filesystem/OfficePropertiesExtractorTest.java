@@ -0,0 +1,114 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OfficePropertiesExtractorTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testExtract_coreProperties() throws IOException {
+        Path file = zip("report.docx", """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <cp:coreProperties xmlns:cp="http://schemas.openxmlformats.org/package/2006/metadata/core-properties"
+                xmlns:dc="http://purl.org/dc/elements/1.1/" xmlns:dcterms="http://purl.org/dc/terms/"
+                xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance">
+              <dc:title>Quarterly Report</dc:title>
+              <dc:creator>Jo Bloggs</dc:creator>
+              <cp:keywords>finance</cp:keywords>
+              <cp:revision>3</cp:revision>
+              <dcterms:created xsi:type="dcterms:W3CDTF">2024-05-01T09:30:00Z</dcterms:created>
+            </cp:coreProperties>
+            """);
+
+        Map<String, MetadataType> metadata = new OfficePropertiesExtractor().extract(sample(file));
+
+        assertEquals("Quarterly Report", metadata.get("office.title").getString());
+        assertEquals("Jo Bloggs", metadata.get("office.author").getString());
+        assertEquals("finance", metadata.get("office.keywords").getString());
+        assertEquals("3", metadata.get("office.revision").getString());
+        assertEquals(Instant.parse("2024-05-01T09:30:00Z").getEpochSecond(), metadata.get("office.created").getDateTime().getSeconds());
+    }
+
+    @Test
+    void testExtract_ignoresOtherFiles() throws IOException {
+        Path text = Files.writeString(tempDir.resolve("a.txt"), "not a zip");
+        Path zip = zip("a.zip", null);
+
+        assertTrue(new OfficePropertiesExtractor().extract(sample(text)).isEmpty());
+        assertTrue(new OfficePropertiesExtractor().extract(sample(zip)).isEmpty());
+    }
+
+    @Test
+    void testExtract_rejectsDoctype() throws IOException {
+        Path file = zip("evil.docx", """
+            <?xml version="1.0"?>
+            <!DOCTYPE cp [<!ENTITY x SYSTEM "file:///etc/passwd">]>
+            <cp>&x;</cp>
+            """);
+
+        assertThrows(IOException.class, () -> new OfficePropertiesExtractor().extract(sample(file)));
+    }
+
+    private Path zip(String name, String coreProperties) throws IOException {
+        Path file = tempDir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("[Content_Types].xml"));
+            zip.write("<Types/>".getBytes(StandardCharsets.UTF_8));
+            if (coreProperties != null) {
+                zip.putNextEntry(new ZipEntry(OfficePropertiesExtractor.CORE_PROPERTIES));
+                zip.write(coreProperties.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return file;
+    }
+
+    private static MetadataExtractor.FileSample sample(Path file) throws IOException {
+        return new MetadataExtractor.FileSample(file, Files.readAttributes(file, BasicFileAttributes.class),
+            ByteBuffer.wrap(Files.readAllBytes(file), 0, 4));
+    }
+}
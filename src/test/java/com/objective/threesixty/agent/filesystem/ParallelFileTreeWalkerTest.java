@@ -0,0 +1,236 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelFileTreeWalkerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWalk_returnsSameFilesAsFilesWalk() throws IOException {
+        createTree(tempDir, 3, 4, 5);
+
+        Set<Path> expected;
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            expected = paths.filter(Files::isRegularFile).collect(Collectors.toSet());
+        }
+        try (Stream<FileTreeWalker.FileEntry> files = ParallelFileTreeWalker.walk(tempDir, 4, FileTreeWalker.ENTER_ALL)) {
+            List<Path> actual = files.map(FileTreeWalker.FileEntry::path).toList();
+            assertEquals(expected.size(), actual.size());
+            assertEquals(expected, Set.copyOf(actual));
+        }
+    }
+
+    @Test
+    void testWalk_postVisitsEveryDirectory() throws IOException {
+        createTree(tempDir, 2, 3, 2);
+        Set<Path> completed = ConcurrentHashMap.newKeySet();
+
+        FileTreeWalker.Listener listener = new FileTreeWalker.Listener() {
+            @Override
+            public void postVisitDirectory(Path dir) {
+                completed.add(dir);
+            }
+        };
+
+        try (Stream<FileTreeWalker.FileEntry> files = ParallelFileTreeWalker.walk(tempDir, 4, listener)) {
+            files.forEach(file -> { });
+        }
+
+        try (Stream<Path> dirs = Files.walk(tempDir)) {
+            assertEquals(dirs.filter(Files::isDirectory).collect(Collectors.toSet()), completed);
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void testWalk_skipsFolderThatCannotBeListed() throws IOException {
+        Files.writeString(tempDir.resolve("a.txt"), "a");
+        Path gone = Files.createDirectory(tempDir.resolve("gone"));
+        Set<Path> failed = ConcurrentHashMap.newKeySet();
+        Set<Path> completed = ConcurrentHashMap.newKeySet();
+
+        FileTreeWalker.Listener listener = new FileTreeWalker.Listener() {
+            @Override
+            public boolean preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                // removed between reading its attributes and listing it
+                if (dir.equals(gone)) {
+                    Files.delete(gone);
+                }
+                return true;
+            }
+
+            @Override
+            public void postVisitDirectory(Path dir) {
+                completed.add(dir);
+            }
+
+            @Override
+            public void visitFailed(Path path, IOException e) {
+                failed.add(path);
+            }
+        };
+
+        try (Stream<FileTreeWalker.FileEntry> files = ParallelFileTreeWalker.walk(tempDir, 2, listener)) {
+            assertEquals(List.of(tempDir.resolve("a.txt")), files.map(FileTreeWalker.FileEntry::path).toList());
+        }
+        assertEquals(Set.of(gone), failed);
+        assertEquals(Set.of(tempDir), completed);
+    }
+
+    @Test
+    @Timeout(10)
+    void testWalk_doesNotPostVisitDirectoryWhoseFileWasNotFinished() throws IOException {
+        Path folder = Files.createDirectory(tempDir.resolve("folder"));
+        Files.writeString(folder.resolve("file.txt"), "x");
+        Set<Path> completed = ConcurrentHashMap.newKeySet();
+
+        FileTreeWalker.Listener listener = new FileTreeWalker.Listener() {
+            @Override
+            public void postVisitDirectory(Path dir) {
+                completed.add(dir);
+            }
+        };
+
+        try (Stream<FileTreeWalker.FileEntry> files = ParallelFileTreeWalker.walk(tempDir, 2, listener)) {
+            Iterator<FileTreeWalker.FileEntry> iterator = files.iterator();
+            assertTrue(iterator.hasNext());
+            iterator.next();
+            // the consumer fails on, or stops after, the file, so never asks for the next one
+        }
+
+        assertEquals(Set.of(), completed);
+    }
+
+    @Test
+    @Timeout(10)
+    void testWalk_closeBeforeExhaustedDoesNotHang() throws IOException {
+        createTree(tempDir, 1, 4, ParallelFileTreeWalker.QUEUE_CAPACITY);
+
+        try (Stream<FileTreeWalker.FileEntry> files = ParallelFileTreeWalker.walk(tempDir, 4, FileTreeWalker.ENTER_ALL)) {
+            Iterator<FileTreeWalker.FileEntry> iterator = files.iterator();
+            assertTrue(iterator.hasNext());
+            iterator.next();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void testWalk_closePartlyConsumedStopsWorkers() throws IOException, InterruptedException {
+        createTree(tempDir, 1, 4, ParallelFileTreeWalker.QUEUE_CAPACITY);
+        Set<Thread> before = walkerThreads();
+
+        Set<Thread> workers;
+        try (Stream<FileTreeWalker.FileEntry> files = ParallelFileTreeWalker.walk(tempDir, 4, FileTreeWalker.ENTER_ALL)) {
+            Iterator<FileTreeWalker.FileEntry> iterator = files.iterator();
+            assertTrue(iterator.hasNext());
+            iterator.next();
+            workers = walkerThreads();
+            workers.removeAll(before);
+            assertFalse(workers.isEmpty());
+        }
+
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void testWalk_droppedPartlyConsumedStreamStopsWorkers() throws IOException, InterruptedException {
+        createTree(tempDir, 1, 4, ParallelFileTreeWalker.QUEUE_CAPACITY);
+        Set<Thread> before = walkerThreads();
+
+        Iterator<FileTreeWalker.FileEntry> iterator = ParallelFileTreeWalker.walk(tempDir, 4, FileTreeWalker.ENTER_ALL).iterator();
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        Set<Thread> workers = walkerThreads();
+        workers.removeAll(before);
+        assertFalse(workers.isEmpty());
+        iterator = null;
+
+        while (workers.stream().anyMatch(Thread::isAlive)) {
+            System.gc();
+            Thread.sleep(100);
+        }
+    }
+
+    @Test
+    void testWalk_missingRootThrows() {
+        Path missing = tempDir.resolve("missing");
+
+        assertThrows(UncheckedIOException.class, () -> {
+            try (Stream<FileTreeWalker.FileEntry> files = ParallelFileTreeWalker.walk(missing, 2, FileTreeWalker.ENTER_ALL)) {
+                files.count();
+            }
+        });
+    }
+
+    private static Set<Thread> walkerThreads() {
+        Set<Thread> threads = new HashSet<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("file-tree-walker-")) {
+                threads.add(thread);
+            }
+        }
+        return threads;
+    }
+
+    private void createTree(Path dir, int depth, int folders, int files) throws IOException {
+        for (int i = 0; i < files; i++) {
+            Files.writeString(dir.resolve("file" + i + ".txt"), "x");
+        }
+        if (depth == 0) {
+            return;
+        }
+        for (int i = 0; i < folders; i++) {
+            createTree(Files.createDirectory(dir.resolve("folder" + i)), depth - 1, folders, files);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import com.objective.threesixty.MetadataType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PdfPropertiesExtractorTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testExtract_infoDictionaryAtEndOfFile() throws IOException {
+        String pdf = "%PDF-1.4\n1 0 obj\n<< /Type /Catalog >>\nendobj\n"
+            + "stream\n" + "x".repeat(PdfPropertiesExtractor.TAIL_BYTES * 2) + "\nendstream\n"
+            + "9 0 obj\n<< /Title (Annual \\(draft\\) Report) /Author <FEFF004A006F> /Producer (Writer\\051) >>\nendobj\n"
+            + "trailer\n<< /Info 9 0 R >>\n%%EOF\n";
+        Path file = Files.writeString(tempDir.resolve("a.pdf"), pdf, StandardCharsets.ISO_8859_1);
+
+        Map<String, MetadataType> metadata = new PdfPropertiesExtractor().extract(sample(file));
+
+        assertEquals("1.4", metadata.get("pdf.version").getString());
+        assertEquals("Annual (draft) Report", metadata.get("pdf.title").getString());
+        assertEquals("Jo", metadata.get("pdf.author").getString());
+        assertEquals("Writer)", metadata.get("pdf.producer").getString());
+        assertNull(metadata.get("pdf.subject"));
+    }
+
+    @Test
+    void testExtract_ignoresOtherFiles() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "/Title (not a pdf)");
+
+        assertTrue(new PdfPropertiesExtractor().extract(sample(file)).isEmpty());
+    }
+
+    @Test
+    void testReadString_skipsDictionaries() {
+        assertNull(PdfPropertiesExtractor.readString("/Title << /A 1 >>", 6));
+        assertEquals("AB", PdfPropertiesExtractor.readString("/Title <4 14 2>", 6));
+    }
+
+    private static MetadataExtractor.FileSample sample(Path file) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        return new MetadataExtractor.FileSample(file, Files.readAttributes(file, BasicFileAttributes.class),
+            ByteBuffer.wrap(content, 0, Math.min(content.length, PdfPropertiesExtractor.HEADER_BYTES)).slice());
+    }
+}
@@ -0,0 +1,107 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchIndexTest {
+    @Test
+    void testSearch_ranksByTermFrequencyAndRarity() {
+        try (SearchIndex index = new SearchIndex()) {
+            index.add("/once", 1, 1, Map.of("invoice", 1, "total", 5));
+            index.add("/often", 1, 1, Map.of("invoice", 4, "total", 5));
+            index.add("/other", 1, 1, Map.of("total", 3));
+
+            assertEquals(List.of("/often", "/once"), paths(index.search("Invoice", 10, path -> true)));
+            assertEquals("/often", paths(index.search("total invoice", 10, path -> true)).get(0));
+            assertEquals(List.of("/often"), paths(index.search("invoice", 1, path -> true)));
+            assertEquals(List.of("/once"), paths(index.search("invoice", 10, path -> path.equals("/once"))));
+            assertEquals(List.of(), index.search("missing", 10, path -> true));
+            assertEquals(List.of(), index.search(" ,", 10, path -> true));
+        }
+    }
+
+    @Test
+    void testAdd_replacesAndRemoveDeletes() {
+        try (SearchIndex index = new SearchIndex()) {
+            index.add("/a", 3, 100, Map.of("apple", 1));
+            index.flush();
+            assertTrue(index.isCurrent("/a", 3, 100));
+
+            index.add("/a", 4, 200, Map.of("pear", 1));
+            assertFalse(index.isCurrent("/a", 3, 100));
+            assertTrue(index.isCurrent("/a", 4, 200));
+            assertEquals(List.of(), index.search("apple", 10, path -> true));
+            SearchIndex.Hit hit = index.search("pear", 10, path -> true).get(0);
+            assertEquals("/a", hit.path());
+            assertEquals(4, hit.size());
+            assertEquals(200, hit.modified());
+
+            assertTrue(index.remove("/a"));
+            assertFalse(index.remove("/a"));
+            assertEquals(List.of(), index.search("pear", 10, path -> true));
+            assertEquals(0, index.size());
+        }
+    }
+
+    @Test
+    void testFlush_mergesSegmentsInBackground() {
+        try (SearchIndex index = new SearchIndex(2)) {
+            int documents = 2 * (SearchIndex.MAX_SEGMENTS + 1) * SearchIndex.MERGE_FACTOR;
+            for (int i = 0; i < documents; i++) {
+                index.add("/doc" + i, i, i, Map.of("common", 1, "doc" + i, 1));
+            }
+            index.remove("/doc0");
+            index.add("/doc1", 1, 1, Map.of("replaced", 1));
+
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                while (index.segmentCount() > SearchIndex.MAX_SEGMENTS) {
+                    Thread.sleep(10);
+                }
+            });
+            assertEquals(documents - 1, index.size());
+            assertEquals(documents - 2, index.search("common", documents, path -> true).size());
+            assertEquals(List.of("/doc1"), paths(index.search("replaced", 10, path -> true)));
+            assertEquals(List.of(), index.search("doc0", 10, path -> true));
+            assertEquals(List.of("/doc5"), paths(index.search("doc5", 10, path -> true)));
+            assertTrue(index.isCurrent("/doc5", 5, 5));
+        }
+    }
+
+    private static List<String> paths(List<SearchIndex.Hit> hits) {
+        return hits.stream().map(SearchIndex.Hit::path).toList();
+    }
+}
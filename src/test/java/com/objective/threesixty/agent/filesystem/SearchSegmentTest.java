@@ -0,0 +1,93 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SearchSegmentTest {
+    @Test
+    void testBuild_encodesPostingsInDocumentOrder() {
+        SearchSegment.Builder builder = new SearchSegment.Builder();
+        builder.add("/a", 1, 10, Map.of("apple", 2, "pear", 1));
+        builder.add("/b", 2, 20, Map.of("pear", 300));
+        builder.add("/c", 3, 30, Map.of("apple", 1));
+        SearchSegment segment = builder.build();
+
+        assertEquals(2, segment.docFreq("apple"));
+        assertEquals(0, segment.docFreq("plum"));
+        assertNull(segment.postings("plum"));
+        assertPostings(segment.postings("apple"), new int[]{0, 2, 2, 1});
+        assertPostings(segment.postings("pear"), new int[]{0, 1, 1, 300});
+        assertEquals(303, segment.length(1) + segment.length(0));
+        assertEquals("/c", segment.path(2));
+        assertEquals(30, segment.modified(2));
+    }
+
+    @Test
+    void testMerge_dropsDeletedDocumentsAndRenumbers() {
+        SearchSegment.Builder first = new SearchSegment.Builder();
+        first.add("/a", 1, 1, Map.of("apple", 1));
+        first.add("/b", 1, 1, Map.of("apple", 1, "pear", 1));
+        SearchSegment.Builder second = new SearchSegment.Builder();
+        second.add("/c", 1, 1, Map.of("pear", 2));
+        second.add("/d", 1, 1, Map.of("plum", 1));
+        SearchSegment a = first.build();
+        SearchSegment b = second.build();
+        a.delete(1);
+        b.delete(1);
+
+        SearchSegment.Merged merged = SearchSegment.merge(List.of(a, b), List.of(a.deletedDocs(), b.deletedDocs()));
+
+        SearchSegment segment = merged.segment();
+        assertEquals(2, segment.docCount());
+        assertEquals(2, segment.liveDocCount());
+        assertArrayEquals(new int[]{0, -1}, merged.docMaps()[0]);
+        assertArrayEquals(new int[]{1, -1}, merged.docMaps()[1]);
+        assertPostings(segment.postings("apple"), new int[]{0, 1});
+        assertPostings(segment.postings("pear"), new int[]{1, 2});
+        assertNull(segment.postings("plum"));
+        assertEquals("/c", segment.path(1));
+        assertEquals(new BitSet(), segment.deletedDocs());
+    }
+
+    private static void assertPostings(SearchSegment.Postings postings, int[] expected) {
+        for (int i = 0; i < expected.length; i += 2) {
+            postings.next();
+            assertEquals(expected[i], postings.doc());
+            assertEquals(expected[i + 1], postings.freq());
+        }
+        assertEquals(false, postings.next());
+    }
+}
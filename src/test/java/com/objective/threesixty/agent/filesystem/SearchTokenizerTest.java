@@ -0,0 +1,66 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchTokenizerTest {
+    @Test
+    void testTokenize_splitsOnNonLetterOrDigits() {
+        List<String> terms = new ArrayList<>();
+        SearchTokenizer.tokenize("Quarterly Report_2024-v2.docx, Zürich", terms::add);
+        assertEquals(List.of("quarterly", "report", "2024", "v2", "docx", "zürich"), terms);
+    }
+
+    @Test
+    void testTokenize_dropsOverlongTerms() {
+        List<String> terms = new ArrayList<>();
+        SearchTokenizer.tokenize("short " + "x".repeat(SearchTokenizer.MAX_TERM_LENGTH + 1) + " "
+            + "y".repeat(SearchTokenizer.MAX_TERM_LENGTH), terms::add);
+        assertEquals(List.of("short", "y".repeat(SearchTokenizer.MAX_TERM_LENGTH)), terms);
+    }
+
+    @Test
+    void testTokenize_readerMatchesCharSequence() throws IOException {
+        // longer than the read buffer, so terms span reads
+        String text = "alpha beta gamma ".repeat(1000) + "omega";
+        List<String> expected = new ArrayList<>();
+        SearchTokenizer.tokenize(text, expected::add);
+
+        List<String> terms = new ArrayList<>();
+        new SearchTokenizer().tokenize(new StringReader(text), terms::add);
+        assertEquals(expected, terms);
+        assertEquals(3001, terms.size());
+    }
+}
@@ -0,0 +1,126 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class SourceWatcherTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRegister_reportsChangesAndWatchesNewFolders() throws IOException, InterruptedException {
+        Path existing = Files.createDirectory(tempDir.resolve("existing"));
+        RecordingListener listener = new RecordingListener();
+
+        try (SourceWatcher watcher = SourceWatcher.start(tempDir, listener)) {
+            watcher.register(tempDir);
+            watcher.register(existing);
+            Path file = Files.writeString(existing.resolve("a.txt"), "a");
+            listener.await("changed " + file);
+
+            Path folder = Files.createDirectory(tempDir.resolve("new"));
+            listener.await("changed " + folder);
+            Path nested = Files.writeString(folder.resolve("b.txt"), "b");
+            listener.await("changed " + nested);
+
+            Files.delete(file);
+            listener.await("deleted " + file);
+        }
+    }
+
+    @Test
+    void testStart_watchesNothingUntilRegistered() throws IOException, InterruptedException {
+        RecordingListener listener = new RecordingListener();
+
+        try (SourceWatcher watcher = SourceWatcher.start(tempDir, listener)) {
+            Files.writeString(tempDir.resolve("before.txt"), "a");
+            watcher.register(tempDir);
+            Path after = Files.writeString(tempDir.resolve("after.txt"), "b");
+            assertEquals("changed " + after, listener.next());
+        }
+    }
+
+    @Test
+    void testIsNetworkFileStoreType() {
+        assertTrue(SourceWatcher.isNetworkFileStoreType("nfs4"));
+        assertTrue(SourceWatcher.isNetworkFileStoreType("CIFS"));
+        assertTrue(SourceWatcher.isNetworkFileStoreType("fuse.sshfs"));
+        assertFalse(SourceWatcher.isNetworkFileStoreType("ext4"));
+        assertFalse(SourceWatcher.isNetworkFileStoreType("NTFS"));
+        assertFalse(SourceWatcher.isNetworkFileStoreType(null));
+    }
+
+    private static final class RecordingListener implements SourceWatcher.Listener {
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void changed(Path path) {
+            events.add("changed " + path);
+        }
+
+        @Override
+        public void deleted(Path path) {
+            events.add("deleted " + path);
+        }
+
+        @Override
+        public void overflow() {
+            events.add("overflow");
+        }
+
+        String next() throws InterruptedException {
+            return events.poll(10, TimeUnit.SECONDS);
+        }
+
+        void await(String expected) throws InterruptedException {
+            while (true) {
+                String event = events.poll(10, TimeUnit.SECONDS);
+                assertNotNull(event, "Timed out waiting for " + expected);
+                if (event.equals(expected)) {
+                    return;
+                } else if (event.equals("overflow")) {
+                    fail("Unexpected overflow waiting for " + expected);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WatchedChangesTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBeginCrawl_listsOnlyChangedFoldersAfterFullCrawl() throws IOException {
+        Path a = Files.createDirectories(tempDir.resolve("a/inner"));
+        Files.createDirectories(tempDir.resolve("b"));
+        Files.writeString(a.resolve("one.txt"), "1");
+        Files.writeString(tempDir.resolve("b/two.txt"), "2");
+        WatchedChanges changes = new WatchedChanges(tempDir);
+
+        assertEquals(Set.of("a/inner/one.txt", "b/two.txt"), crawl(changes));
+
+        // nothing changed, so nothing below the root is listed
+        assertEquals(Set.of(), crawl(changes));
+
+        Path edited = Files.writeString(a.resolve("one.txt"), "one");
+        changes.changed(edited);
+        assertEquals(Set.of("a/inner/one.txt"), crawl(changes));
+    }
+
+    @Test
+    void testBeginCrawl_listsNewFolderTrees() throws IOException {
+        WatchedChanges changes = new WatchedChanges(tempDir);
+        crawl(changes);
+
+        Path moved = Files.createDirectories(tempDir.resolve("moved/deep"));
+        Files.writeString(moved.resolve("file.txt"), "x");
+        changes.changed(tempDir.resolve("moved"));
+        assertEquals(Set.of("moved/deep/file.txt"), crawl(changes));
+    }
+
+    @Test
+    void testOverflow_listsEverythingUntilNextFullCrawl() throws IOException {
+        Files.createDirectories(tempDir.resolve("a"));
+        Files.writeString(tempDir.resolve("a/one.txt"), "1");
+        WatchedChanges changes = new WatchedChanges(tempDir);
+        crawl(changes);
+
+        changes.overflow();
+        assertEquals(Set.of("a/one.txt"), crawl(changes));
+        assertEquals(Set.of(), crawl(changes));
+    }
+
+    @Test
+    void testClose_keepsChangesOfUnfinishedCrawl() throws IOException {
+        Files.createDirectories(tempDir.resolve("a"));
+        Files.createDirectories(tempDir.resolve("b"));
+        Path one = Files.writeString(tempDir.resolve("a/one.txt"), "1");
+        Path two = Files.writeString(tempDir.resolve("b/two.txt"), "2");
+        WatchedChanges changes = new WatchedChanges(tempDir);
+        crawl(changes);
+
+        changes.changed(one);
+        changes.changed(two);
+        WatchedChanges.Crawl abandoned = changes.beginCrawl(FileTreeWalker.ENTER_ALL);
+        try (Stream<FileTreeWalker.FileEntry> files = FileTreeWalker.walk(tempDir, abandoned)) {
+            files.findFirst();
+        }
+        abandoned.close();
+
+        assertEquals(Set.of("a/one.txt", "b/two.txt"), crawl(changes));
+    }
+
+    @Test
+    void testBeginCrawl_firstCrawlRegistersFoldersWithWatcher() throws IOException, InterruptedException {
+        Path a = Files.createDirectories(tempDir.resolve("a/inner"));
+        Files.writeString(a.resolve("one.txt"), "1");
+        WatchedChanges changes = new WatchedChanges(tempDir);
+
+        try (SourceWatcher watcher = SourceWatcher.start(tempDir, changes)) {
+            changes.setWatcher(watcher);
+            assertEquals(Set.of("a/inner/one.txt"), crawl(changes));
+
+            Files.writeString(a.resolve("two.txt"), "2");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            Set<String> listed = Set.of();
+            while (listed.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+                listed = crawl(changes);
+            }
+            assertEquals(Set.of("a/inner/one.txt", "a/inner/two.txt"), listed);
+        }
+    }
+
+    private Set<String> crawl(WatchedChanges changes) {
+        WatchedChanges.Crawl crawl = changes.beginCrawl(FileTreeWalker.ENTER_ALL);
+        List<String> files = new ArrayList<>();
+        try (Stream<FileTreeWalker.FileEntry> walk = FileTreeWalker.walk(tempDir, crawl)) {
+            walk.forEach(entry -> files.add(tempDir.relativize(entry.path()).toString().replace('\\', '/')));
+        } finally {
+            crawl.close();
+        }
+        return Set.copyOf(files);
+    }
+}
@@ -0,0 +1,111 @@
+package com.objective.threesixty.agent.filesystem;
+
+/*-
+ * %%
+ * 3Sixty Remote Agent Example
+ * -
+ * Copyright (C) 2024 - 2025 Objective Corporation Limited.
+ * -
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * %-
+ */
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WritePipelineTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void testSubmit_limitsConcurrentWrites() {
+        WritePipeline pipeline = new WritePipeline(2, 2, registry);
+        AtomicInteger started = new AtomicInteger();
+        List<Sinks.One<String>> writes = new ArrayList<>();
+        List<Mono<String>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Sinks.One<String> write = Sinks.one();
+            writes.add(write);
+            results.add(pipeline.submit(write.asMono().doOnSubscribe(s -> started.incrementAndGet())).cache());
+            results.get(i).subscribe();
+        }
+
+        awaitGauge("filesystem.writer.in.flight", 2);
+        assertEquals(3, gauge("filesystem.writer.queue.depth"));
+
+        writes.get(0).tryEmitValue("done");
+        assertEquals("done", results.get(0).block(Duration.ofSeconds(10)));
+        awaitGauge("filesystem.writer.queue.depth", 2);
+        assertEquals(2, gauge("filesystem.writer.in.flight"));
+
+        writes.forEach(write -> write.tryEmitValue("done"));
+        results.forEach(result -> result.block(Duration.ofSeconds(10)));
+        assertEquals(5, started.get());
+        // slots are released once a write terminates, which can be just after its result is delivered
+        awaitGauge("filesystem.writer.in.flight", 0);
+    }
+
+    @Test
+    void testSubmit_cancelWhileQueued() {
+        WritePipeline pipeline = new WritePipeline(1, 1, registry);
+        Sinks.One<String> first = Sinks.one();
+        Mono<String> firstResult = pipeline.submit(first.asMono()).cache();
+        firstResult.subscribe();
+        Disposable queued = pipeline.submit(Mono.just("queued")).subscribe();
+        awaitGauge("filesystem.writer.queue.depth", 1);
+
+        queued.dispose();
+        assertEquals(0, gauge("filesystem.writer.queue.depth"));
+
+        first.tryEmitValue("done");
+        firstResult.block(Duration.ofSeconds(10));
+        awaitGauge("filesystem.writer.in.flight", 0);
+        assertEquals("next", pipeline.submit(Mono.just("next")).block(Duration.ofSeconds(10)));
+    }
+
+    @Test
+    void testBytesPerSecond() {
+        WritePipeline pipeline = new WritePipeline(1, 1, registry);
+
+        pipeline.recordBytes(WritePipeline.RATE_WINDOW_SECONDS * 100L);
+
+        assertEquals(100, gauge("filesystem.writer.bytes.per.second"));
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+
+    private void awaitGauge(String name, double expected) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (gauge(name) != expected && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(expected, gauge(name));
+    }
+}